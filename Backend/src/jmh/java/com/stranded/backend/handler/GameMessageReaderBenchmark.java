@@ -0,0 +1,38 @@
+package com.stranded.backend.handler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a JSON MOVE with the streaming reader vs a Jackson tree. Run with the gc
+ * profiler (the default in build.gradle); the streaming path should report close to 0 B/op.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GameMessageReaderBenchmark {
+
+    private static final String MOVE =
+            "{\"type\":\"MOVE\",\"x\":1234.5678,\"y\":-98.765,\"velX\":4.25,\"grounded\":false}";
+
+    private final GameMessageReader reader = new GameMessageReader();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Benchmark
+    public double streaming() throws Exception {
+        reader.read(MOVE);
+        return reader.x;
+    }
+
+    @Benchmark
+    public double tree() throws Exception {
+        return objectMapper.readTree(MOVE).get("x").asDouble();
+    }
+}
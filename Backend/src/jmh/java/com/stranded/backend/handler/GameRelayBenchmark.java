@@ -0,0 +1,56 @@
+package com.stranded.backend.handler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/** Cost of relaying one MOVE: parse the inbound frame and encode the outbound one, JSON vs binary. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GameRelayBenchmark {
+
+    private static final String INBOUND =
+            "{\"type\":\"MOVE\",\"x\":1234.5678,\"y\":-98.765,\"velX\":4.25,\"grounded\":true}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String playerId = UUID.randomUUID().toString();
+    private final ByteBuffer binaryInbound = GameBinaryCodec.encodeMove(1234.5678, -98.765, 4.25, true);
+
+    // Mirrors the JSON handler: parse the inbound frame and serialize the outbound MOVE.
+    @Benchmark
+    public String json() throws Exception {
+        JsonNode json = objectMapper.readTree(INBOUND);
+        return objectMapper.writeValueAsString(Map.of(
+                "type", "MOVE",
+                "id", playerId,
+                "x", json.get("x").asDouble(),
+                "y", json.get("y").asDouble(),
+                "velX", json.get("velX").asDouble(),
+                "grounded", json.get("grounded").asBoolean()));
+    }
+
+    @Benchmark
+    public ByteBuffer binary() {
+        ByteBuffer inbound = binaryInbound.duplicate();
+        PlayerMove move = new PlayerMove();
+        GameBinaryCodec.readType(inbound);
+        GameBinaryCodec.readMove(inbound, move);
+        move.setHandle(17);
+        List<PlayerMove> moves = new ArrayList<>(1);
+        moves.add(move);
+        return GameBinaryCodec.encodeBatch(moves, List.of(), List.of());
+    }
+}
@@ -0,0 +1,49 @@
+package com.stranded.backend.config;
+
+import com.stranded.backend.service.LocalMessageBus;
+import com.stranded.backend.service.MessageBus;
+import com.stranded.backend.service.RedisMessageBus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.UUID;
+
+/**
+ * Picks the {@link MessageBus} that connects this node to the others: "local" for a
+ * single instance, "redis" to share rooms, chat and STOMP topics with every instance
+ * using the same Redis.
+ */
+@Configuration
+public class ClusterConfig {
+
+    @Value("${cluster.bus:local}")
+    private String busType;
+
+    @Value("${cluster.node-id:}")
+    private String nodeId;
+
+    @Value("${cluster.redis.host:localhost}")
+    private String redisHost;
+
+    @Value("${cluster.redis.port:6379}")
+    private int redisPort;
+
+    @Value("${cluster.redis.queue-capacity:10000}")
+    private int redisQueueCapacity;
+
+    @Bean(destroyMethod = "shutdown")
+    public MessageBus messageBus() {
+        String id = nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        if ("redis".equals(busType)) {
+            RedisMessageBus bus = new RedisMessageBus(id, redisHost, redisPort, redisQueueCapacity);
+            bus.start();
+            System.out.println("[Cluster] Node " + id + " on Redis bus " + redisHost + ":" + redisPort);
+            return bus;
+        }
+        if (!"local".equals(busType)) {
+            throw new IllegalArgumentException("Unknown cluster.bus: " + busType);
+        }
+        return new LocalMessageBus(id);
+    }
+}
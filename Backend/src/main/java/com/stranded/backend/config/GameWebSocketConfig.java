@@ -1,6 +1,15 @@
 package com.stranded.backend.config;
 
+import com.stranded.backend.handler.ChatHandler;
+import com.stranded.backend.handler.GameBinaryWebSocketHandler;
+import com.stranded.backend.handler.GameProtocolRouter;
+import com.stranded.backend.handler.GameRoomRegistry;
+import com.stranded.backend.handler.OutboundQueueRegistry;
 import com.stranded.backend.handler.GameWebSocketHandler;
+import com.stranded.backend.handler.VoiceHandler;
+import com.stranded.backend.service.MessageBus;
+import com.stranded.backend.service.SessionDirectory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
@@ -11,14 +20,53 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
 @EnableWebSocket
 public class GameWebSocketConfig implements WebSocketConfigurer {
 
+    private final OutboundQueueRegistry outboundQueues;
+    private final ChatHandler chatHandler;
+    private final VoiceHandler voiceHandler;
+    private final MessageBus messageBus;
+    private final SessionDirectory sessionDirectory;
+
+    @Value("${game.tick-rate:20}")
+    private int tickRate;
+
+    @Value("${game.room-capacity:32}")
+    private int roomCapacity;
+
+    @Value("${game.interest-radius:0}")
+    private double interestRadius;
+
+    public GameWebSocketConfig(OutboundQueueRegistry outboundQueues, ChatHandler chatHandler,
+            VoiceHandler voiceHandler, MessageBus messageBus, SessionDirectory sessionDirectory) {
+        this.outboundQueues = outboundQueues;
+        this.chatHandler = chatHandler;
+        this.voiceHandler = voiceHandler;
+        this.messageBus = messageBus;
+        this.sessionDirectory = sessionDirectory;
+    }
+
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
-        registry.addHandler(gameWebSocketHandler(), "/game")
+        registry.addHandler(new GameProtocolRouter(gameWebSocketHandler(), gameBinaryWebSocketHandler()), "/game")
+                .setAllowedOrigins("*");
+        registry.addHandler(chatHandler, "/chat")
                 .setAllowedOrigins("*");
+        registry.addHandler(voiceHandler, "/voice")
+                .setAllowedOrigins("*");
+    }
+
+    @Bean
+    public GameRoomRegistry gameRoomRegistry() {
+        return new GameRoomRegistry(tickRate, roomCapacity, interestRadius, outboundQueues, messageBus,
+                sessionDirectory);
     }
 
     @Bean
     public GameWebSocketHandler gameWebSocketHandler() {
-        return new GameWebSocketHandler();
+        return new GameWebSocketHandler(gameRoomRegistry());
+    }
+
+    @Bean
+    public GameBinaryWebSocketHandler gameBinaryWebSocketHandler() {
+        return new GameBinaryWebSocketHandler(gameRoomRegistry());
     }
 }
@@ -0,0 +1,121 @@
+package com.stranded.backend.config;
+
+import com.stranded.backend.service.MessageBus;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Carries STOMP topic messages between nodes. What the application sends to the simple
+ * broker (@SendTo replies and convertAndSend) under one of the bridged prefixes is also
+ * published on the bus, and messages from other nodes are handed to this node's broker,
+ * so a subscriber on any node receives them. Topics every node produces on its own, like
+ * the leaderboard, are left out. Inactive unless the bus is distributed.
+ */
+public class StompBusBridge implements ChannelInterceptor {
+
+    private static final String TOPIC = "stomp.broker";
+    private static final String ORIGIN_HEADER = "x-bus-origin";
+
+    private final MessageBus bus;
+    private final List<String> bridgedPrefixes;
+    // The template is built from the broker configuration that registers this interceptor.
+    private final ObjectProvider<SimpMessageSendingOperations> messagingTemplate;
+
+    public StompBusBridge(MessageBus bus, List<String> bridgedPrefixes,
+            ObjectProvider<SimpMessageSendingOperations> messagingTemplate) {
+        this.bus = bus;
+        this.bridgedPrefixes = bridgedPrefixes;
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    public void start() {
+        if (bus.isDistributed()) {
+            bus.subscribe(TOPIC, this::onMessage);
+        }
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (!bus.isDistributed()) {
+            return message;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        String destination = accessor.getDestination();
+        if (accessor.getMessageType() != SimpMessageType.MESSAGE || !isBridged(destination)
+                || accessor.getFirstNativeHeader(ORIGIN_HEADER) != null) {
+            return message;
+        }
+        Object payload = message.getPayload();
+        byte[] body = payload instanceof byte[] raw ? raw
+                : payload instanceof String text ? text.getBytes(StandardCharsets.UTF_8) : null;
+        if (body == null) {
+            return message;
+        }
+        try {
+            MimeType contentType = accessor.getContentType();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length + 64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeUTF(destination);
+            out.writeUTF(contentType != null ? contentType.toString() : "");
+            out.write(body);
+            bus.publish(TOPIC, bytes.toByteArray());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return message;
+    }
+
+    private boolean isBridged(String destination) {
+        if (destination == null) {
+            return false;
+        }
+        for (String prefix : bridgedPrefixes) {
+            if (destination.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Runs on the bus thread.
+    private void onMessage(String topic, String originNode, byte[] payload) {
+        if (originNode.equals(bus.getNodeId())) {
+            return;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            String destination = in.readUTF();
+            String contentType = in.readUTF();
+            byte[] body = in.readAllBytes();
+
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.setDestination(destination);
+            if (!contentType.isEmpty()) {
+                accessor.setContentType(MimeTypeUtils.parseMimeType(contentType));
+            }
+            // Marks the message so preSend does not publish it back onto the bus.
+            accessor.setNativeHeader(ORIGIN_HEADER, originNode);
+            accessor.setLeaveMutable(true);
+            messagingTemplate.getObject().send(destination,
+                    MessageBuilder.createMessage(body, accessor.getMessageHeaders()));
+        } catch (IOException e) {
+            System.out.println("[StompBusBridge] Ignoring malformed message from node " + originNode);
+        }
+    }
+}
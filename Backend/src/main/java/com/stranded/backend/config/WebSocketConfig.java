@@ -1,25 +1,74 @@
 package com.stranded.backend.config;
 
+import com.stranded.backend.service.MessageBus;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 
+import java.util.List;
+
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final StompBusBridge busBridge;
+    private final boolean virtualThreads;
+
+    public WebSocketConfig(MessageBus messageBus, ObjectProvider<SimpMessageSendingOperations> messagingTemplate,
+            @Value("${cluster.stomp.bridged-prefixes:/topic/chat,/topic/voice/}") List<String> bridgedPrefixes,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.busBridge = new StompBusBridge(messageBus, bridgedPrefixes, messagingTemplate);
+        this.busBridge.start();
+        this.virtualThreads = virtualThreads;
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
+        if (virtualThreads) {
+            // A thread per message would otherwise let one session's frames overtake each other.
+            registry.setPreserveReceiveOrder(true);
+        }
     }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
         registry.enableSimpleBroker("/topic");
         registry.setApplicationDestinationPrefixes("/app");
+        // Each node keeps its own simple broker; the bridge shares /topic messages between them.
+        registry.configureBrokerChannel().interceptors(busBridge);
+        if (virtualThreads) {
+            registry.setPreservePublishOrder(true);
+        }
+    }
+
+    // Without virtual threads both channels keep Spring's default thread pools.
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        if (virtualThreads) {
+            registration.executor(virtualExecutor("stomp-inbound-"));
+        }
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        if (virtualThreads) {
+            registration.executor(virtualExecutor("stomp-outbound-"));
+        }
+    }
+
+    private static SimpleAsyncTaskExecutor virtualExecutor(String threadNamePrefix) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+        return executor;
     }
 }
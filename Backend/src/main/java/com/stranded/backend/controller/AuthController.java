@@ -1,6 +1,10 @@
 package com.stranded.backend.controller;
 
+import com.stranded.backend.security.JwtAuthenticationFilter;
+import com.stranded.backend.security.PasswordHasher;
 import com.stranded.backend.service.AuthService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -21,6 +25,8 @@ public class AuthController {
         try {
             String token = authService.register(request.getUsername(), request.getPassword());
             return ResponseEntity.ok(Map.of("token", token));
+        } catch (PasswordHasher.SaturatedException e) {
+            return busy(e);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
@@ -31,6 +37,8 @@ public class AuthController {
         try {
             String token = authService.login(request.getUsername(), request.getPassword());
             return ResponseEntity.ok(Map.of("token", token));
+        } catch (PasswordHasher.SaturatedException e) {
+            return busy(e);
         } catch (RuntimeException e) {
             return ResponseEntity.status(401).body(Map.of("error", e.getMessage()));
         }
@@ -50,8 +58,11 @@ public class AuthController {
         }
         try {
             String currentUsername = authentication.getName();
-            String token = authService.upgradeGuest(currentUsername, request.getUsername(), request.getPassword());
+            String token = authService.upgradeGuest(currentUsername, JwtAuthenticationFilter.isGuest(authentication),
+                    request.getUsername(), request.getPassword());
             return ResponseEntity.ok(Map.of("token", token));
+        } catch (PasswordHasher.SaturatedException e) {
+            return busy(e);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
@@ -67,6 +78,12 @@ public class AuthController {
                 "username", authentication.getName()));
     }
 
+    private static ResponseEntity<?> busy(PasswordHasher.SaturatedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("error", e.getMessage()));
+    }
+
     public static class AuthRequest {
         private String username;
         private String password;
@@ -1,15 +1,39 @@
 package com.stranded.backend.controller;
 
+import com.stranded.backend.service.ChatChannel;
+import com.stranded.backend.service.ChatRateLimiter;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.stereotype.Controller;
 
+/**
+ * STOMP chat. /app/chat/{channel} is delivered to /topic/chat/{channel}, so the broker's
+ * subscription registry sends it to that channel's subscribers only; /app/chat is the
+ * global channel on /topic/chat. Whispers are only available on the /chat WebSocket.
+ * Returning null sheds a message that is over its channel's rate cap.
+ */
 @Controller
 public class ChatController {
 
+    private final ChatRateLimiter rateLimiter;
+
+    public ChatController(ChatRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
     @MessageMapping("/chat")
     @SendTo("/topic/chat")
     public ChatMessage send(ChatMessage message) {
+        return rateLimiter.tryAcquire(ChatChannel.GLOBAL, message.getUsername()) ? message : null;
+    }
+
+    @MessageMapping("/chat/{channel}")
+    @SendTo("/topic/chat/{channel}")
+    public ChatMessage sendToChannel(@DestinationVariable String channel, ChatMessage message) {
+        if (!ChatChannel.isJoinable(channel) || !rateLimiter.tryAcquire(channel, message.getUsername())) {
+            return null;
+        }
         return message;
     }
 
@@ -0,0 +1,79 @@
+package com.stranded.backend.controller;
+
+import com.stranded.backend.entity.ChatMessage;
+import com.stranded.backend.service.ChatChannel;
+import com.stranded.backend.service.ChatHistoryService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/chat")
+public class ChatHistoryController {
+
+    private static final int MAX_LIMIT = 100;
+
+    private final ChatHistoryService chatHistoryService;
+
+    public ChatHistoryController(ChatHistoryService chatHistoryService) {
+        this.chatHistoryService = chatHistoryService;
+    }
+
+    @GetMapping("/history")
+    public ResponseEntity<List<HistoryMessage>> getHistory(
+            @RequestParam(defaultValue = ChatChannel.GLOBAL) String channel,
+            @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "50") int limit) {
+        // Party chat is for its members and whispers for their recipient; neither is served here.
+        if (!ChatChannel.isJoinable(channel) || channel.startsWith(ChatChannel.PARTY_PREFIX)) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<HistoryMessage> messages = chatHistoryService
+                .getHistory(channel, before, Math.max(1, Math.min(limit, MAX_LIMIT)))
+                .stream()
+                .map(HistoryMessage::new)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(messages);
+    }
+
+    public static class HistoryMessage {
+        private final Long id;
+        private final String channel;
+        private final String sender;
+        private final String content;
+        private final String timestamp;
+
+        public HistoryMessage(ChatMessage message) {
+            this.id = message.getId();
+            this.channel = message.getChannel();
+            this.sender = message.getSender();
+            this.content = message.getContent();
+            this.timestamp = message.getTimestamp() != null ? message.getTimestamp().toString() : null;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getChannel() {
+            return channel;
+        }
+
+        public String getSender() {
+            return sender;
+        }
+
+        public String getContent() {
+            return content;
+        }
+
+        public String getTimestamp() {
+            return timestamp;
+        }
+    }
+}
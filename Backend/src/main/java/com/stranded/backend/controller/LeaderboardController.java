@@ -1,40 +1,123 @@
 package com.stranded.backend.controller;
 
-import com.stranded.backend.entity.Score;
-import com.stranded.backend.repository.ScoreRepository;
-import org.springframework.data.domain.PageRequest;
+import com.stranded.backend.service.LeaderboardIndex;
+import com.stranded.backend.service.LeaderboardResponseCache;
+import com.stranded.backend.service.LeaderboardService;
+import com.stranded.backend.service.LeaderboardWindow;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/leaderboard")
 public class LeaderboardController {
 
-    private final ScoreRepository scoreRepository;
+    private static final int MAX_LIMIT = LeaderboardService.TOP_SIZE;
+    private static final int MAX_RADIUS = 25;
 
-    public LeaderboardController(ScoreRepository scoreRepository) {
-        this.scoreRepository = scoreRepository;
+    private final LeaderboardService leaderboardService;
+    private final LeaderboardResponseCache responseCache;
+    private final CacheControl cacheControl;
+
+    public LeaderboardController(LeaderboardService leaderboardService, LeaderboardResponseCache responseCache,
+            @Value("${leaderboard.cache.max-age-seconds:5}") long maxAgeSeconds) {
+        this.leaderboardService = leaderboardService;
+        this.responseCache = responseCache;
+        this.cacheControl = CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePublic().mustRevalidate();
     }
 
     @GetMapping
-    public ResponseEntity<List<LeaderboardEntry>> getLeaderboard() {
-        List<Score> topScores = scoreRepository.findTopScores(PageRequest.of(0, 50));
+    public ResponseEntity<byte[]> getLeaderboard(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        LeaderboardResponseCache.CachedResponse response = responseCache.get("all",
+                leaderboardService.getVersion(),
+                () -> leaderboardService.getTopAcrossModes(10).stream()
+                        .map(score -> new LeaderboardEntry(score.getUsername(), score.getScore(), score.getGameMode()))
+                        .collect(Collectors.toList()));
+
+        return respond(response, ifNoneMatch);
+    }
+
+    @GetMapping("/modes")
+    public ResponseEntity<List<String>> getGameModes() {
+        return ResponseEntity.ok(leaderboardService.getGameModes());
+    }
+
+    @GetMapping("/{gameMode}")
+    public ResponseEntity<byte[]> getModeLeaderboard(@PathVariable String gameMode,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "all") String window,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String mode = LeaderboardService.modeKey(gameMode);
+        LeaderboardWindow span = LeaderboardWindow.fromParam(window);
+        int top = clamp(limit, MAX_LIMIT);
+        // Cached per bucket: a new day or week restarts board versions and drops the old entries.
+        String bucket = leaderboardService.getBucketKey(span);
+        // Unknown modes share one empty entry so arbitrary paths cannot grow the cache.
+        String key = leaderboardService.hasMode(span, mode) ? "mode:" + top + ":" + mode : "none";
+        LeaderboardResponseCache.CachedResponse response = responseCache.get(span, bucket, key,
+                leaderboardService.getVersion(span, mode),
+                () -> toEntries(leaderboardService.getTop(span, mode, top)));
+
+        return respond(response, ifNoneMatch);
+    }
+
+    @GetMapping("/{gameMode}/rank/{username}")
+    public ResponseEntity<RankedEntry> getRank(@PathVariable String gameMode, @PathVariable String username,
+            @RequestParam(defaultValue = "all") String window) {
+        LeaderboardIndex.RankedScore rank = leaderboardService.getRank(LeaderboardWindow.fromParam(window),
+                gameMode, username);
+        if (rank == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(new RankedEntry(rank));
+    }
+
+    @GetMapping("/{gameMode}/around/{username}")
+    public ResponseEntity<List<RankedEntry>> getAround(@PathVariable String gameMode,
+            @PathVariable String username, @RequestParam(defaultValue = "5") int radius,
+            @RequestParam(defaultValue = "all") String window) {
+        List<LeaderboardIndex.RankedScore> around = leaderboardService.getAround(LeaderboardWindow.fromParam(window),
+                gameMode, username, clamp(radius, MAX_RADIUS));
+        if (around.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(toEntries(around));
+    }
+
+    private ResponseEntity<byte[]> respond(LeaderboardResponseCache.CachedResponse response, String ifNoneMatch) {
+        if (response.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(response.getEtag())
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(response.getEtag())
+                .cacheControl(cacheControl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(response.getBody());
+    }
 
-        List<LeaderboardEntry> leaderboard = topScores.stream()
-                .filter(score -> !score.getUser().isGuest())
-                .limit(10)
-                .map(score -> new LeaderboardEntry(
-                        score.getUser().getUsername(),
-                        score.getFinalScore(),
-                        score.getGameMode()))
-                .collect(Collectors.toList());
+    private static List<RankedEntry> toEntries(List<LeaderboardIndex.RankedScore> scores) {
+        return scores.stream().map(RankedEntry::new).collect(Collectors.toList());
+    }
 
-        return ResponseEntity.ok(leaderboard);
+    private static int clamp(int value, int max) {
+        return Math.max(1, Math.min(value, max));
     }
 
     public static class LeaderboardEntry {
@@ -60,4 +143,34 @@ public class LeaderboardController {
             return gameMode;
         }
     }
+
+    public static class RankedEntry {
+        private int rank;
+        private String username;
+        private int score;
+        private String gameMode;
+
+        public RankedEntry(LeaderboardIndex.RankedScore score) {
+            this.rank = score.getRank();
+            this.username = score.getUsername();
+            this.score = score.getScore();
+            this.gameMode = score.getGameMode();
+        }
+
+        public int getRank() {
+            return rank;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public String getGameMode() {
+            return gameMode;
+        }
+    }
 }
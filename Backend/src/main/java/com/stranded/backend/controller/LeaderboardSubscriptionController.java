@@ -0,0 +1,23 @@
+package com.stranded.backend.controller;
+
+import com.stranded.backend.service.LeaderboardPublisher;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
+import org.springframework.stereotype.Controller;
+
+@Controller
+public class LeaderboardSubscriptionController {
+
+    private final LeaderboardPublisher leaderboardPublisher;
+
+    public LeaderboardSubscriptionController(LeaderboardPublisher leaderboardPublisher) {
+        this.leaderboardPublisher = leaderboardPublisher;
+    }
+
+    // SUBSCRIBE /app/leaderboard/{gameMode} answers once with the full board; live
+    // changes follow on /topic/leaderboard/{gameMode}.
+    @SubscribeMapping("/leaderboard/{gameMode}")
+    public LeaderboardPublisher.Update snapshot(@DestinationVariable String gameMode) {
+        return leaderboardPublisher.snapshot(gameMode);
+    }
+}
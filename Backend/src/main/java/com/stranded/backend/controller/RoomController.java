@@ -0,0 +1,57 @@
+package com.stranded.backend.controller;
+
+import com.stranded.backend.handler.GameRoom;
+import com.stranded.backend.handler.GameRoomRegistry;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/rooms")
+public class RoomController {
+
+    private final GameRoomRegistry roomRegistry;
+
+    public RoomController(GameRoomRegistry roomRegistry) {
+        this.roomRegistry = roomRegistry;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<RoomInfo>> getRooms() {
+        List<RoomInfo> rooms = roomRegistry.getRooms().stream()
+                .sorted(Comparator.comparing(GameRoom::getId))
+                .map(room -> new RoomInfo(room.getId(), room.getPlayerCount(), room.getCapacity()))
+                .collect(Collectors.toList());
+
+        return ResponseEntity.ok(rooms);
+    }
+
+    public static class RoomInfo {
+        private String id;
+        private int players;
+        private int capacity;
+
+        public RoomInfo(String id, int players, int capacity) {
+            this.id = id;
+            this.players = players;
+            this.capacity = capacity;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public int getPlayers() {
+            return players;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+    }
+}
@@ -1,20 +1,34 @@
 package com.stranded.backend.controller;
 
+import com.stranded.backend.repository.BestScore;
+import com.stranded.backend.security.JwtAuthenticationFilter;
+import com.stranded.backend.service.LeaderboardIndex;
+import com.stranded.backend.service.LeaderboardService;
 import com.stranded.backend.service.ScoreService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/scores")
 public class ScoreController {
 
     private final ScoreService scoreService;
+    private final LeaderboardService leaderboardService;
+    private final long retryAfterSeconds;
 
-    public ScoreController(ScoreService scoreService) {
+    public ScoreController(ScoreService scoreService, LeaderboardService leaderboardService,
+            @Value("${scores.ingest.retry-after-seconds:2}") long retryAfterSeconds) {
         this.scoreService = scoreService;
+        this.leaderboardService = leaderboardService;
+        this.retryAfterSeconds = retryAfterSeconds;
     }
 
     @PostMapping
@@ -25,9 +39,28 @@ public class ScoreController {
 
         String username = authentication.getName();
 
-        scoreService.submitScore(username, request.getFinalScore(), request.getGameMode(), request.getTimestamp());
+        boolean accepted = scoreService.submitScore(username, JwtAuthenticationFilter.isGuest(authentication),
+                request.getFinalScore(), request.getGameMode(), request.getTimestamp());
+        if (!accepted) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                    .body(Map.of("message", "Score queue is full, try again shortly"));
+        }
 
-        return ResponseEntity.ok(Map.of("message", "Score submitted successfully"));
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("message", "Score submitted successfully"));
+    }
+
+    @GetMapping("/me")
+    public ResponseEntity<?> getMyBests(Authentication authentication) {
+        if (authentication == null) {
+            return ResponseEntity.status(401).build();
+        }
+
+        String username = authentication.getName();
+        List<PersonalBest> bests = scoreService.getPersonalBests(username).stream()
+                .map(best -> new PersonalBest(best, leaderboardService.getRank(best.getGameMode(), username)))
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(bests);
     }
 
     public static class ScoreRequest {
@@ -68,4 +101,35 @@ public class ScoreController {
             this.playerId = playerId;
         }
     }
+
+    public static class PersonalBest {
+        private String gameMode;
+        private int score;
+        private String achievedAt;
+        // Null for guests, who are not ranked.
+        private Integer rank;
+
+        public PersonalBest(BestScore best, LeaderboardIndex.RankedScore ranked) {
+            this.gameMode = best.getGameMode();
+            this.score = best.getScore();
+            this.achievedAt = best.getAchievedAt() == null ? null : best.getAchievedAt().toString();
+            this.rank = ranked == null ? null : ranked.getRank();
+        }
+
+        public String getGameMode() {
+            return gameMode;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public String getAchievedAt() {
+            return achievedAt;
+        }
+
+        public Integer getRank() {
+            return rank;
+        }
+    }
 }
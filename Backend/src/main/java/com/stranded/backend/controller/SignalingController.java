@@ -1,15 +1,55 @@
 package com.stranded.backend.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stranded.backend.service.ChatChannel;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.handler.annotation.SendTo;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
 import org.springframework.stereotype.Controller;
 
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * STOMP signaling. A signal with a targetId is sent to /topic/voice/peer/{targetId}, which
+ * only that peer subscribes to, so the broker delivers it to one session. Presence (join,
+ * leave, and a hangup without a target) goes to /topic/voice/channel/{channel}, global by
+ * default. Anything else is dropped. The /voice WebSocket also tracks membership and
+ * batches ICE candidates.
+ */
 @Controller
 public class SignalingController {
 
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final Set<String> PRESENCE_TYPES = Set.of("join", "leave", "hangup");
+    // Peer ids become part of a destination, so no separators.
+    private static final Pattern PEER_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final SimpMessageSendingOperations messagingTemplate;
+
+    public SignalingController(SimpMessageSendingOperations messagingTemplate) {
+        this.messagingTemplate = messagingTemplate;
+    }
+
     @MessageMapping("/voice")
-    @SendTo("/topic/voice")
-    public String relaySignal(String signal) {
-        return signal;
+    public void relaySignal(String signal) {
+        Map<?, ?> payload;
+        try {
+            payload = objectMapper.readValue(signal, Map.class);
+        } catch (Exception e) {
+            return;
+        }
+        Object targetId = payload.get("targetId");
+        if (targetId != null) {
+            if (PEER_ID.matcher(targetId.toString()).matches()) {
+                messagingTemplate.convertAndSend("/topic/voice/peer/" + targetId, signal);
+            }
+            return;
+        }
+        Object channel = payload.get("channel");
+        String voiceChannel = channel != null ? channel.toString() : ChatChannel.GLOBAL;
+        if (PRESENCE_TYPES.contains(String.valueOf(payload.get("type"))) && ChatChannel.isJoinable(voiceChannel)) {
+            messagingTemplate.convertAndSend("/topic/voice/channel/" + voiceChannel, signal);
+        }
     }
 }
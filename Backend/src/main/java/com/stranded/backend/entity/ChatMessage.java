@@ -4,13 +4,23 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "chat_messages")
+@Table(name = "chat_messages", indexes = {
+        // History pages walk one channel's (timestamp, id) backwards from a cursor.
+        @Index(name = "idx_chat_messages_channel_time", columnList = "channel, timestamp, id")
+})
 public class ChatMessage {
 
+    // Ids come from this sequence in blocks, assigned by ChatMessageWriter before the row
+    // is written so a message can be broadcast with its id straight away.
+    public static final String ID_SEQUENCE = "chat_messages_seq";
+    public static final int ID_BLOCK_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // See ChatChannel; whispers are stored as "whisper:<recipient>".
+    private String channel;
+
     private String sender;
 
     private String content;
@@ -19,13 +29,16 @@ public class ChatMessage {
 
     @PrePersist
     protected void onCreate() {
-        timestamp = LocalDateTime.now();
+        if (timestamp == null) {
+            timestamp = LocalDateTime.now();
+        }
     }
 
     public ChatMessage() {
     }
 
-    public ChatMessage(String sender, String content) {
+    public ChatMessage(String channel, String sender, String content) {
+        this.channel = channel;
         this.sender = sender;
         this.content = content;
         this.timestamp = LocalDateTime.now();
@@ -39,6 +52,14 @@ public class ChatMessage {
         this.id = id;
     }
 
+    public String getChannel() {
+        return channel;
+    }
+
+    public void setChannel(String channel) {
+        this.channel = channel;
+    }
+
     public String getSender() {
         return sender;
     }
@@ -4,20 +4,30 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "scores")
+@Table(name = "scores", indexes = {
+        @Index(name = "idx_scores_mode_score", columnList = "game_mode, final_score"),
+        @Index(name = "idx_scores_user", columnList = "user_id"),
+        @Index(name = "idx_scores_timestamp", columnList = "timestamp")
+})
 public class Score {
 
+    // Pooled sequence: Hibernate reserves ids in blocks, so batched inserts stay batched.
+    public static final String ID_SEQUENCE = "scores_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "score_seq")
+    @SequenceGenerator(name = "score_seq", sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
-    @Column(nullable = false)
+    @Column(name = "final_score", nullable = false)
     private int finalScore;
 
+    @Column(name = "game_mode")
     private String gameMode;
 
     private LocalDateTime timestamp;
@@ -4,7 +4,10 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_guest_created", columnList = "is_guest, created_at"),
+        @Index(name = "idx_users_upgraded_at", columnList = "upgraded_at")
+})
 public class User {
 
     @Id
@@ -20,6 +23,11 @@ public class User {
 
     private LocalDateTime createdAt;
 
+    // Set when a guest registers: the guest name, whose tokens are refused from then on.
+    private String upgradedFrom;
+
+    private LocalDateTime upgradedAt;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -64,4 +72,20 @@ public class User {
     public void setCreatedAt(LocalDateTime createdAt) {
         this.createdAt = createdAt;
     }
+
+    public String getUpgradedFrom() {
+        return upgradedFrom;
+    }
+
+    public void setUpgradedFrom(String upgradedFrom) {
+        this.upgradedFrom = upgradedFrom;
+    }
+
+    public LocalDateTime getUpgradedAt() {
+        return upgradedAt;
+    }
+
+    public void setUpgradedAt(LocalDateTime upgradedAt) {
+        this.upgradedAt = upgradedAt;
+    }
 }
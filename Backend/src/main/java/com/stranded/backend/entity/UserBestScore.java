@@ -0,0 +1,74 @@
+package com.stranded.backend.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A player's best score in one game mode. Kept current by the score writer and
+ * rebuildable from {@code scores}, so "best per player" reads are index lookups.
+ */
+@Entity
+@Table(name = "user_best_scores", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_user_best_scores_user_mode", columnNames = {"user_id", "game_mode"})
+}, indexes = {
+        @Index(name = "idx_user_best_scores_mode_score", columnList = "game_mode, best_score")
+})
+public class UserBestScore {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    // Normalized with LeaderboardService.modeKey, so never null.
+    @Column(name = "game_mode", nullable = false)
+    private String gameMode;
+
+    @Column(name = "best_score", nullable = false)
+    private int bestScore;
+
+    // When the player first reached bestScore.
+    @Column(name = "achieved_at")
+    private LocalDateTime achievedAt;
+
+    public UserBestScore() {
+    }
+
+    public UserBestScore(User user, String gameMode, int bestScore, LocalDateTime achievedAt) {
+        this.user = user;
+        this.gameMode = gameMode;
+        this.bestScore = bestScore;
+        this.achievedAt = achievedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public String getGameMode() {
+        return gameMode;
+    }
+
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    public void setBestScore(int bestScore) {
+        this.bestScore = bestScore;
+    }
+
+    public LocalDateTime getAchievedAt() {
+        return achievedAt;
+    }
+
+    public void setAchievedAt(LocalDateTime achievedAt) {
+        this.achievedAt = achievedAt;
+    }
+}
@@ -0,0 +1,86 @@
+package com.stranded.backend.handler;
+
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Subscription index for /chat: channel -> subscribed sessions, the reverse for cleanup,
+ * and username -> session so a whisper finds its recipient with one lookup. A user
+ * signed in from several places receives whispers on the latest connection.
+ */
+class ChatChannels {
+
+    private final Map<String, Set<WebSocketSession>> subscribers = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> subscriptions = new ConcurrentHashMap<>();
+    private final Map<String, WebSocketSession> users = new ConcurrentHashMap<>();
+    private final int maxChannelsPerSession;
+
+    ChatChannels(int maxChannelsPerSession) {
+        this.maxChannelsPerSession = maxChannelsPerSession;
+    }
+
+    /** Returns false if the session is already in as many channels as it may join. */
+    boolean subscribe(WebSocketSession session, String channel) {
+        Set<String> channels = subscriptions.computeIfAbsent(session.getId(), id -> ConcurrentHashMap.newKeySet());
+        if (!channels.contains(channel) && channels.size() >= maxChannelsPerSession) {
+            return false;
+        }
+        channels.add(channel);
+        subscribers.computeIfAbsent(channel, c -> ConcurrentHashMap.newKeySet()).add(session);
+        return true;
+    }
+
+    /** Returns true if that was the channel's last subscriber. */
+    boolean unsubscribe(WebSocketSession session, String channel) {
+        Set<String> channels = subscriptions.get(session.getId());
+        if (channels != null) {
+            channels.remove(channel);
+        }
+        boolean[] emptied = new boolean[1];
+        subscribers.computeIfPresent(channel, (c, sessions) -> {
+            sessions.remove(session);
+            emptied[0] = sessions.isEmpty();
+            return emptied[0] ? null : sessions;
+        });
+        return emptied[0];
+    }
+
+    boolean isSubscribed(WebSocketSession session, String channel) {
+        Set<String> channels = subscriptions.get(session.getId());
+        return channels != null && channels.contains(channel);
+    }
+
+    Set<WebSocketSession> subscribers(String channel) {
+        Set<WebSocketSession> sessions = subscribers.get(channel);
+        return sessions != null ? sessions : Collections.emptySet();
+    }
+
+    void bindUser(String username, WebSocketSession session) {
+        users.put(username, session);
+    }
+
+    WebSocketSession user(String username) {
+        return users.get(username);
+    }
+
+    /** Drops the session from every channel; returns the channels left empty. */
+    Set<String> remove(WebSocketSession session, String username) {
+        if (username != null) {
+            users.remove(username, session);
+        }
+        Set<String> emptied = ConcurrentHashMap.newKeySet();
+        Set<String> channels = subscriptions.remove(session.getId());
+        if (channels != null) {
+            for (String channel : channels) {
+                if (unsubscribe(session, channel)) {
+                    emptied.add(channel);
+                }
+            }
+        }
+        return emptied;
+    }
+}
@@ -1,60 +1,459 @@
 package com.stranded.backend.handler;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stranded.backend.entity.ChatMessage;
-import com.stranded.backend.repository.ChatMessageRepository;
+import com.stranded.backend.security.JwtUtil;
+import com.stranded.backend.service.ChatChannel;
+import com.stranded.backend.service.ChatHistoryService;
+import com.stranded.backend.service.ChatMessageWriter;
+import com.stranded.backend.service.ChatRateLimiter;
+import com.stranded.backend.service.MessageBus;
+import com.stranded.backend.service.SessionDirectory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Plain WebSocket chat on /chat. Every connection is in the global channel and can JOIN
+ * room and party channels; a message goes only to its channel's subscribers, and a
+ * whisper only to its recipient. Connecting with ?token=<jwt> signs messages with the
+ * token's username and is required to send or receive whispers.
+ *
+ * Rate caps are checked on the socket thread, so floods are shed before fan-out.
+ * Accepted messages are handed to a single fan-out thread, which assigns the id, queues
+ * the row for {@link ChatMessageWriter} and serializes the message once for every
+ * recipient's outbound queue. One thread keeps delivery in id order.
+ *
+ * The last messages of each channel are kept serialized in memory and replayed on
+ * JOIN, also from the fan-out thread, so a joiner sees each message exactly once.
+ * Older messages come from /api/chat/history.
+ *
+ * On a clustered {@link MessageBus} each node subscribes to the channels its own
+ * sessions are in, so a message reaches subscribers on every node; whispers find the
+ * recipient's node through the {@link SessionDirectory}. Messages from other nodes
+ * join the fan-out thread's queue like local ones.
+ */
 @Component
 public class ChatHandler extends TextWebSocketHandler {
 
-    private final List<WebSocketSession> sessions = new ArrayList<>();
-    private final ChatMessageRepository chatMessageRepository;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String USERNAME_ATTRIBUTE = "chat.username";
+    private static final String CHANNEL_TOPIC_PREFIX = "chat.channel.";
+    private static final String NODE_TOPIC_PREFIX = "chat.node.";
+    public static final String DIRECTORY_KIND = "chat-user";
+    private static final String[] TEXT_FIELDS = { "type", "channel", "sender", "content", "to" };
 
-    public ChatHandler(ChatMessageRepository chatMessageRepository) {
-        this.chatMessageRepository = chatMessageRepository;
+    private final ChatMessageWriter chatMessageWriter;
+    private final ChatHistoryService chatHistoryService;
+    private final ChatRateLimiter rateLimiter;
+    private final JwtUtil jwtUtil;
+    private final OutboundQueueRegistry outboundQueues;
+    private final MessageBus bus;
+    private final SessionDirectory directory;
+    private final ChatChannels channels;
+    private final ThreadPoolExecutor fanout;
+    // Fan-out thread only, once loaded.
+    private final Map<String, RecentChat> recent = new HashMap<>();
+    // Fan-out thread only: bus subscriptions of the channels this node's sessions are in.
+    private final Map<String, MessageBus.Subscription> channelTopics = new HashMap<>();
+    private final int recentSize;
+
+    public ChatHandler(ChatMessageWriter chatMessageWriter, ChatHistoryService chatHistoryService,
+            ChatRateLimiter rateLimiter, JwtUtil jwtUtil, OutboundQueueRegistry outboundQueues,
+            MessageBus bus, SessionDirectory directory,
+            @Value("${chat.fanout.queue-limit:1024}") int queueLimit,
+            @Value("${chat.history.recent-size:50}") int recentSize,
+            @Value("${chat.max-channels-per-session:16}") int maxChannelsPerSession) {
+        this.chatMessageWriter = chatMessageWriter;
+        this.chatHistoryService = chatHistoryService;
+        this.rateLimiter = rateLimiter;
+        this.jwtUtil = jwtUtil;
+        this.outboundQueues = outboundQueues;
+        this.bus = bus;
+        this.directory = directory;
+        this.channels = new ChatChannels(maxChannelsPerSession);
+        this.recentSize = recentSize;
+        this.fanout = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueLimit),
+                r -> {
+                    Thread thread = new Thread(r, "chat-fanout");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PostConstruct
+    public void loadRecent() {
+        RecentChat global = recentChat(ChatChannel.GLOBAL);
+        for (ChatMessage chatMessage : chatHistoryService.getLatest(ChatChannel.GLOBAL, recentSize)) {
+            try {
+                global.add(frame(chatMessage, null));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        if (bus.isDistributed()) {
+            channelTopics.put(ChatChannel.GLOBAL,
+                    bus.subscribe(CHANNEL_TOPIC_PREFIX + ChatChannel.GLOBAL, this::onChannelMessage));
+            bus.subscribe(NODE_TOPIC_PREFIX + bus.getNodeId(), this::onNodeMessage);
+        }
     }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        sessions.add(session);
+        outboundQueues.register(session, "chat");
+        String username = authenticate(session);
+        if (username != null) {
+            session.getAttributes().put(USERNAME_ATTRIBUTE, username);
+            channels.bindUser(username, session);
+            directory.put(DIRECTORY_KIND, username, "");
+        }
+        try {
+            fanout.execute(() -> join(session, ChatChannel.GLOBAL));
+        } catch (RejectedExecutionException e) {
+            // Too busy to replay history; the session still gets new messages.
+            channels.subscribe(session, ChatChannel.GLOBAL);
+        }
     }
 
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        JsonNode payload;
         try {
-            @SuppressWarnings("unchecked")
-            Map<String, String> payload = objectMapper.readValue(message.getPayload(), Map.class);
-            String sender = payload.get("sender");
-            String content = payload.get("content");
+            payload = objectMapper.readTree(message.getPayload());
+        } catch (JsonProcessingException e) {
+            payload = null;
+        }
+        if (payload == null || !payload.isObject() || !textFields(payload)) {
+            error(session, "MALFORMED", ChatChannel.GLOBAL);
+            return;
+        }
+        String type = text(payload, "type");
+        String channel = payload.hasNonNull("channel") ? text(payload, "channel") : ChatChannel.GLOBAL;
 
-            if (sender != null && content != null) {
-                ChatMessage chatMessage = new ChatMessage(sender, content);
-                chatMessageRepository.save(chatMessage);
+        if ("JOIN".equals(type) || "LEAVE".equals(type)) {
+            if (!ChatChannel.isJoinable(channel)) {
+                error(session, "UNKNOWN_CHANNEL", channel);
+            } else if ("JOIN".equals(type)) {
+                submit(session, channel, () -> join(session, channel));
+            } else {
+                submit(session, channel, () -> leave(session, channel));
+            }
+            return;
+        }
 
-                String broadcastMessage = objectMapper.writeValueAsString(chatMessage);
-                for (WebSocketSession s : sessions) {
-                    if (s.isOpen()) {
-                        s.sendMessage(new TextMessage(broadcastMessage));
-                    }
-                }
+        String username = (String) session.getAttributes().get(USERNAME_ATTRIBUTE);
+        // Connections without a token keep the old behaviour of naming themselves.
+        String sender = username != null ? username : text(payload, "sender");
+        String content = text(payload, "content");
+        if (sender == null || content == null) {
+            return;
+        }
+
+        if (ChatChannel.WHISPER.equals(channel)) {
+            String to = text(payload, "to");
+            if (username == null) {
+                error(session, "UNAUTHENTICATED", channel);
+            } else if (to != null && !rateLimiter.tryAcquire(channel, sender)) {
+                error(session, "RATE_LIMITED", channel);
+            } else if (to != null) {
+                submit(session, channel, () -> whisper(session, new ChatMessage(
+                        ChatChannel.whisperTo(to), sender, content), to));
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+        } else if (!ChatChannel.isJoinable(channel)) {
+            error(session, "UNKNOWN_CHANNEL", channel);
+        } else if (!rateLimiter.tryAcquire(channel, sender)) {
+            error(session, "RATE_LIMITED", channel);
+        } else {
+            submit(session, channel, () -> publish(session, new ChatMessage(channel, sender, content)));
         }
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
-        sessions.remove(session);
+        String username = (String) session.getAttributes().get(USERNAME_ATTRIBUTE);
+        Set<String> emptied = channels.remove(session, username);
+        if (username != null && channels.user(username) == null) {
+            directory.remove(DIRECTORY_KIND, username);
+        }
+        outboundQueues.unregister(session);
+        if (!emptied.isEmpty()) {
+            try {
+                fanout.execute(() -> emptied.forEach(this::forgetIfEmpty));
+            } catch (RejectedExecutionException e) {
+                // Their rings are dropped the next time those channels empty out.
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fanout.shutdownNow();
+    }
+
+    private void submit(WebSocketSession session, String channel, Runnable task) {
+        try {
+            fanout.execute(task);
+        } catch (RejectedExecutionException e) {
+            error(session, "BUSY", channel);
+        }
+    }
+
+    // Runs on the fan-out thread.
+    private void join(WebSocketSession session, String channel) {
+        OutboundQueue outbound = outboundQueues.get(session);
+        if (outbound == null || channels.isSubscribed(session, channel)) {
+            return;
+        }
+        if (!channels.subscribe(session, channel)) {
+            error(session, "TOO_MANY_CHANNELS", channel);
+            return;
+        }
+        if (bus.isDistributed() && !channelTopics.containsKey(channel)) {
+            channelTopics.put(channel, bus.subscribe(CHANNEL_TOPIC_PREFIX + channel, this::onChannelMessage));
+        }
+        RecentChat ring = recent.get(channel);
+        if (ring != null) {
+            for (TextMessage frame : ring.frames()) {
+                outbound.send(frame);
+            }
+        }
+        // Closed while this was queued: afterConnectionClosed has already run.
+        if (outboundQueues.get(session) == null) {
+            channels.remove(session, null);
+        }
+    }
+
+    // Runs on the fan-out thread.
+    private void leave(WebSocketSession session, String channel) {
+        if (channels.unsubscribe(session, channel)) {
+            forgetIfEmpty(channel);
+        }
+    }
+
+    // Runs on the fan-out thread.
+    private void publish(WebSocketSession origin, ChatMessage chatMessage) {
+        String channel = chatMessage.getChannel();
+        // Checked here, after any JOIN the client sent just before.
+        if (!channels.isSubscribed(origin, channel)) {
+            error(origin, "NOT_SUBSCRIBED", channel);
+            return;
+        }
+        try {
+            TextMessage frame = store(origin, chatMessage, null);
+            if (frame == null) {
+                return;
+            }
+            deliver(channel, frame);
+            if (bus.isDistributed()) {
+                bus.publish(CHANNEL_TOPIC_PREFIX + channel, frame.getPayload().getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Runs on the fan-out thread.
+    private void deliver(String channel, TextMessage frame) {
+        recentChat(channel).add(frame);
+        for (WebSocketSession s : channels.subscribers(channel)) {
+            OutboundQueue outbound = outboundQueues.get(s);
+            if (outbound != null) {
+                outbound.send(frame);
+            }
+        }
+    }
+
+    // Runs on the fan-out thread.
+    private void whisper(WebSocketSession origin, ChatMessage chatMessage, String to) {
+        WebSocketSession recipient = channels.user(to);
+        OutboundQueue target = recipient != null ? outboundQueues.get(recipient) : null;
+        SessionDirectory.Entry elsewhere = target == null && bus.isDistributed()
+                ? directory.get(DIRECTORY_KIND, to) : null;
+        if (target == null && (elsewhere == null || elsewhere.getNode().equals(bus.getNodeId()))) {
+            error(origin, "USER_OFFLINE", ChatChannel.WHISPER);
+            return;
+        }
+        try {
+            TextMessage frame = store(origin, chatMessage, to);
+            if (frame == null) {
+                return;
+            }
+            if (target != null) {
+                target.send(frame);
+            } else {
+                bus.publish(NODE_TOPIC_PREFIX + elsewhere.getNode(), whisperEnvelope(to, frame));
+            }
+            // The sender sees their own whisper, like any other message they send.
+            OutboundQueue echo = outboundQueues.get(origin);
+            if (echo != null && origin != recipient) {
+                echo.send(frame);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Assigns id and time, queues the row and serializes the message; null if not accepted.
+    private TextMessage store(WebSocketSession origin, ChatMessage chatMessage, String to) throws Exception {
+        // Stamped here with the id so (timestamp, id) order matches id order.
+        chatMessage.setTimestamp(LocalDateTime.now());
+        chatMessage.setId(chatMessageWriter.nextId());
+        if (!chatMessageWriter.offer(chatMessage)) {
+            error(origin, "BUSY", to != null ? ChatChannel.WHISPER : chatMessage.getChannel());
+            return null;
+        }
+        return frame(chatMessage, to);
+    }
+
+    // Runs on the fan-out thread.
+    private void forgetIfEmpty(String channel) {
+        if (!ChatChannel.GLOBAL.equals(channel) && channels.subscribers(channel).isEmpty()) {
+            recent.remove(channel);
+            MessageBus.Subscription subscription = channelTopics.remove(channel);
+            if (subscription != null) {
+                subscription.cancel();
+            }
+        }
+    }
+
+    // Runs on the bus thread: a message published on another node.
+    private void onChannelMessage(String topic, String originNode, byte[] payload) {
+        if (originNode.equals(bus.getNodeId())) {
+            return;
+        }
+        String channel = topic.substring(CHANNEL_TOPIC_PREFIX.length());
+        TextMessage frame = new TextMessage(payload);
+        try {
+            fanout.execute(() -> {
+                if (channelTopics.containsKey(channel)) {
+                    deliver(channel, frame);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Local senders get BUSY; a remote message is lost for this node's sessions only.
+        }
+    }
+
+    // Runs on the bus thread: a whisper to a user connected to this node.
+    private void onNodeMessage(String topic, String originNode, byte[] payload) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            String to = in.readUTF();
+            TextMessage frame = new TextMessage(in.readAllBytes());
+            fanout.execute(() -> {
+                WebSocketSession recipient = channels.user(to);
+                OutboundQueue target = recipient != null ? outboundQueues.get(recipient) : null;
+                if (target != null) {
+                    target.send(frame);
+                }
+            });
+        } catch (IOException e) {
+            System.out.println("[ChatHandler] Ignoring malformed whisper from node " + originNode);
+        } catch (RejectedExecutionException e) {
+            // Dropped like a remote channel message.
+        }
+    }
+
+    private static byte[] whisperEnvelope(String to, TextMessage frame) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(to);
+        out.write(frame.getPayload().getBytes(StandardCharsets.UTF_8));
+        return bytes.toByteArray();
+    }
+
+    // Every field the client sends is a string; anything else is rejected as MALFORMED.
+    private static boolean textFields(JsonNode payload) {
+        for (String field : TEXT_FIELDS) {
+            JsonNode value = payload.get(field);
+            if (value != null && !value.isNull() && !value.isTextual()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String text(JsonNode payload, String field) {
+        JsonNode value = payload.get(field);
+        return value != null && value.isTextual() ? value.textValue() : null;
+    }
+
+    private RecentChat recentChat(String channel) {
+        return recent.computeIfAbsent(channel, c -> new RecentChat(recentSize));
+    }
+
+    private String authenticate(WebSocketSession session) {
+        URI uri = session.getUri();
+        // Raw, so an encoded '&' or '=' inside a value cannot split the parameters.
+        String query = uri != null ? uri.getRawQuery() : null;
+        if (query == null) {
+            return null;
+        }
+        for (String param : query.split("&")) {
+            if (param.startsWith("token=")) {
+                String token;
+                try {
+                    token = URLDecoder.decode(param.substring("token=".length()), StandardCharsets.UTF_8);
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+                JwtUtil.TokenClaims claims = jwtUtil.verify(token);
+                return claims != null ? claims.getUsername() : null;
+            }
+        }
+        return null;
+    }
+
+    private static TextMessage frame(ChatMessage chatMessage, String to) throws Exception {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("id", chatMessage.getId());
+        fields.put("channel", to != null ? ChatChannel.WHISPER : chatMessage.getChannel());
+        fields.put("sender", chatMessage.getSender());
+        fields.put("content", chatMessage.getContent());
+        fields.put("timestamp", String.valueOf(chatMessage.getTimestamp()));
+        if (to != null) {
+            fields.put("to", to);
+        }
+        return new TextMessage(objectMapper.writeValueAsString(fields));
+    }
+
+    // The request was not accepted; tell the sender rather than dropping it silently.
+    private void error(WebSocketSession session, String reason, String channel) {
+        OutboundQueue outbound = outboundQueues.get(session);
+        if (outbound == null) {
+            return;
+        }
+        try {
+            outbound.send(new TextMessage(objectMapper.writeValueAsString(Map.of(
+                    "type", "ERROR",
+                    "reason", reason,
+                    "channel", channel))));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
     }
 }
@@ -0,0 +1,351 @@
+package com.stranded.backend.handler;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary wire format for the /game endpoint, selected with the {@link #SUBPROTOCOL}
+ * WebSocket subprotocol. Every frame starts with a version byte and a type byte;
+ * all integers are big-endian.
+ *
+ * <pre>
+ * client JOIN     ver, type, u8 roomLength, room (UTF-8)
+ * client MOVE     ver, type, i32 x, i32 y, i16 velX, u8 flags
+ * server WELCOME  ver, type, u16 handle
+ * server JOIN     ver, type, u16 handle
+ * server LEAVE    ver, type, u16 handle
+ * server ERROR    ver, type, u8 code
+ * server BATCH    ver, type, u16 count, count * (u16 handle, i32 x, i32 y, i16 velX, u8 flags),
+ *                 u16 enterCount, enterCount * u16 handle, u16 leaveCount, leaveCount * u16 handle
+ * client ACK      ver, type, u32 seq
+ * server DELTA    ver, type, u32 seq, u8 deltaFlags, u16 count,
+ *                 count * (u16 handle, u8 fields, [i32 x], [i32 y], [i16 velX]),
+ *                 u16 enterCount, enterCount * u16 handle, u16 leaveCount, leaveCount * u16 handle
+ * </pre>
+ *
+ * Positions are fixed point at 1/{@value #POSITION_SCALE} of a world unit and
+ * velocity at 1/{@value #VELOCITY_SCALE}; bit 0 of flags is the grounded bit.
+ * In a DELTA record the fields byte says which of x, y and velX follow (bits 0-2);
+ * bit 3 marks a grounded change with the new value in bit 4. Bit 0 of deltaFlags
+ * marks a full snapshot, after which the client should drop players it was not sent.
+ * A client opts into DELTA frames instead of BATCH by sending its first ACK (seq 0).
+ */
+public final class GameBinaryCodec {
+
+    public static final String SUBPROTOCOL = "stranded.bin.v1";
+    public static final byte VERSION = 1;
+
+    public static final byte JOIN = 1;
+    public static final byte LEAVE = 2;
+    public static final byte MOVE = 3;
+    public static final byte BATCH = 4;
+    public static final byte ERROR = 5;
+    public static final byte WELCOME = 6;
+    public static final byte ACK = 7;
+    public static final byte DELTA = 8;
+
+    public static final byte ERROR_ROOM_FULL = 1;
+
+    public static final int POSITION_SCALE = 256;
+    public static final int VELOCITY_SCALE = 100;
+    public static final int MAX_HANDLE = 0xFFFF;
+
+    private static final int HEADER_BYTES = 2;
+    private static final int MOVE_BYTES = 4 + 4 + 2 + 1;
+    private static final int RECORD_BYTES = 2 + MOVE_BYTES;
+    private static final byte FLAG_GROUNDED = 1;
+    private static final int FIELD_GROUNDED_VALUE = 16;
+    private static final byte DELTA_FULL = 1;
+
+    private GameBinaryCodec() {
+    }
+
+    public static ByteBuffer encodeJoin(String roomId) {
+        byte[] room = roomId.getBytes(StandardCharsets.UTF_8);
+        if (room.length > 0xFF) {
+            throw new IllegalArgumentException("Room id too long");
+        }
+        ByteBuffer frame = header(JOIN, 1 + room.length);
+        frame.put((byte) room.length).put(room);
+        return frame.flip();
+    }
+
+    public static ByteBuffer encodeMove(double x, double y, double velX, boolean grounded) {
+        ByteBuffer frame = header(MOVE, MOVE_BYTES);
+        writeMove(frame, x, y, velX, grounded);
+        return frame.flip();
+    }
+
+    public static ByteBuffer encodeWelcome(int handle) {
+        return encodePlayerEvent(WELCOME, handle);
+    }
+
+    public static ByteBuffer encodePlayerEvent(byte type, int handle) {
+        ByteBuffer frame = header(type, 2);
+        frame.putShort((short) handle);
+        return frame.flip();
+    }
+
+    public static ByteBuffer encodeError(byte code) {
+        ByteBuffer frame = header(ERROR, 1);
+        frame.put(code);
+        return frame.flip();
+    }
+
+    public static ByteBuffer encodeBatch(List<PlayerMove> moves, List<Integer> entered, List<Integer> left) {
+        ByteBuffer frame = header(BATCH, 2 + moves.size() * RECORD_BYTES
+                + 2 + entered.size() * 2 + 2 + left.size() * 2);
+        frame.putShort((short) moves.size());
+        for (PlayerMove move : moves) {
+            frame.putShort((short) move.getHandle());
+            writeMove(frame, move.getX(), move.getY(), move.getVelX(), move.isGrounded());
+        }
+        writeHandles(frame, entered);
+        writeHandles(frame, left);
+        return frame.flip();
+    }
+
+    public static ByteBuffer encodeAck(long seq) {
+        ByteBuffer frame = header(ACK, 4);
+        frame.putInt((int) seq);
+        return frame.flip();
+    }
+
+    /** Encodes a DELTA frame; {@code fields} holds the SnapshotTracker field mask for each move. */
+    public static ByteBuffer encodeDelta(long seq, boolean full, List<PlayerMove> moves, int[] fields,
+            List<Integer> entered, List<Integer> left) {
+        int size = 4 + 1 + 2 + 2 + entered.size() * 2 + 2 + left.size() * 2;
+        for (int i = 0; i < moves.size(); i++) {
+            size += 3 + deltaBodyBytes(fields[i]);
+        }
+        ByteBuffer frame = header(DELTA, size);
+        frame.putInt((int) seq);
+        frame.put(full ? DELTA_FULL : 0);
+        frame.putShort((short) moves.size());
+        for (int i = 0; i < moves.size(); i++) {
+            PlayerMove move = moves.get(i);
+            int mask = fields[i];
+            frame.putShort((short) move.getHandle());
+            frame.put((byte) (move.isGrounded() ? mask | FIELD_GROUNDED_VALUE : mask));
+            if ((mask & SnapshotTracker.FIELD_X) != 0) {
+                frame.putInt(quantizeInt(move.getX(), POSITION_SCALE));
+            }
+            if ((mask & SnapshotTracker.FIELD_Y) != 0) {
+                frame.putInt(quantizeInt(move.getY(), POSITION_SCALE));
+            }
+            if ((mask & SnapshotTracker.FIELD_VEL_X) != 0) {
+                frame.putShort(quantizeShort(move.getVelX(), VELOCITY_SCALE));
+            }
+        }
+        writeHandles(frame, entered);
+        writeHandles(frame, left);
+        return frame.flip();
+    }
+
+    /** Validates the header and returns the frame type, leaving the buffer positioned at the body. */
+    public static byte readType(ByteBuffer frame) {
+        if (frame.remaining() < HEADER_BYTES) {
+            throw new IllegalArgumentException("Truncated frame");
+        }
+        byte version = frame.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported protocol version " + version);
+        }
+        return frame.get();
+    }
+
+    public static String readJoin(ByteBuffer frame) {
+        try {
+            int length = frame.get() & 0xFF;
+            byte[] room = new byte[length];
+            frame.get(room);
+            return new String(room, StandardCharsets.UTF_8);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated JOIN frame");
+        }
+    }
+
+    public static void readMove(ByteBuffer frame, PlayerMove into) {
+        try {
+            readMoveBody(frame, into);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated MOVE frame");
+        }
+    }
+
+    public static int readHandle(ByteBuffer frame) {
+        try {
+            return frame.getShort() & 0xFFFF;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated frame");
+        }
+    }
+
+    public static byte readError(ByteBuffer frame) {
+        try {
+            return frame.get();
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated ERROR frame");
+        }
+    }
+
+    public static long readAck(ByteBuffer frame) {
+        try {
+            return frame.getInt() & 0xFFFFFFFFL;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated ACK frame");
+        }
+    }
+
+    /** Decodes a DELTA frame; fields absent from a record are left at their defaults in the returned moves. */
+    public static Batch readDelta(ByteBuffer frame) {
+        try {
+            long seq = frame.getInt() & 0xFFFFFFFFL;
+            boolean full = (frame.get() & DELTA_FULL) != 0;
+            int count = frame.getShort() & 0xFFFF;
+            List<PlayerMove> moves = new ArrayList<>(count);
+            List<Integer> fields = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int handle = frame.getShort() & 0xFFFF;
+                int mask = frame.get() & 0xFF;
+                double x = (mask & SnapshotTracker.FIELD_X) != 0 ? frame.getInt() / (double) POSITION_SCALE : 0;
+                double y = (mask & SnapshotTracker.FIELD_Y) != 0 ? frame.getInt() / (double) POSITION_SCALE : 0;
+                double velX = (mask & SnapshotTracker.FIELD_VEL_X) != 0
+                        ? frame.getShort() / (double) VELOCITY_SCALE : 0;
+                moves.add(new PlayerMove(handle, x, y, velX, (mask & FIELD_GROUNDED_VALUE) != 0));
+                fields.add(mask & SnapshotTracker.ALL_FIELDS);
+            }
+            return new Batch(seq, full, moves, fields, readHandles(frame), readHandles(frame));
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated DELTA frame");
+        }
+    }
+
+    public static Batch readBatch(ByteBuffer frame) {
+        try {
+            int count = frame.getShort() & 0xFFFF;
+            List<PlayerMove> moves = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                PlayerMove move = new PlayerMove();
+                move.setHandle(frame.getShort() & 0xFFFF);
+                readMoveBody(frame, move);
+                moves.add(move);
+            }
+            return new Batch(moves, readHandles(frame), readHandles(frame));
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated BATCH frame");
+        }
+    }
+
+    private static ByteBuffer header(byte type, int bodyBytes) {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + bodyBytes);
+        frame.put(VERSION).put(type);
+        return frame;
+    }
+
+    private static void writeMove(ByteBuffer frame, double x, double y, double velX, boolean grounded) {
+        frame.putInt(quantizeInt(x, POSITION_SCALE));
+        frame.putInt(quantizeInt(y, POSITION_SCALE));
+        frame.putShort(quantizeShort(velX, VELOCITY_SCALE));
+        frame.put(grounded ? FLAG_GROUNDED : 0);
+    }
+
+    private static void readMoveBody(ByteBuffer frame, PlayerMove into) {
+        double x = frame.getInt() / (double) POSITION_SCALE;
+        double y = frame.getInt() / (double) POSITION_SCALE;
+        double velX = frame.getShort() / (double) VELOCITY_SCALE;
+        boolean grounded = (frame.get() & FLAG_GROUNDED) != 0;
+        into.set(x, y, velX, grounded);
+    }
+
+    private static int deltaBodyBytes(int mask) {
+        int bytes = 0;
+        if ((mask & SnapshotTracker.FIELD_X) != 0) {
+            bytes += 4;
+        }
+        if ((mask & SnapshotTracker.FIELD_Y) != 0) {
+            bytes += 4;
+        }
+        if ((mask & SnapshotTracker.FIELD_VEL_X) != 0) {
+            bytes += 2;
+        }
+        return bytes;
+    }
+
+    private static void writeHandles(ByteBuffer frame, List<Integer> handles) {
+        frame.putShort((short) handles.size());
+        for (int handle : handles) {
+            frame.putShort((short) handle);
+        }
+    }
+
+    private static List<Integer> readHandles(ByteBuffer frame) {
+        int count = frame.getShort() & 0xFFFF;
+        List<Integer> handles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            handles.add(frame.getShort() & 0xFFFF);
+        }
+        return handles;
+    }
+
+    static int quantizeInt(double value, int scale) {
+        long quantized = Math.round(value * scale);
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, quantized));
+    }
+
+    static short quantizeShort(double value, int scale) {
+        long quantized = Math.round(value * scale);
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, quantized));
+    }
+
+    public static class Batch {
+        private final long seq;
+        private final boolean full;
+        private final List<PlayerMove> moves;
+        private final List<Integer> fields;
+        private final List<Integer> entered;
+        private final List<Integer> left;
+
+        public Batch(List<PlayerMove> moves, List<Integer> entered, List<Integer> left) {
+            this(0, true, moves, null, entered, left);
+        }
+
+        public Batch(long seq, boolean full, List<PlayerMove> moves, List<Integer> fields, List<Integer> entered,
+                List<Integer> left) {
+            this.seq = seq;
+            this.full = full;
+            this.moves = moves;
+            this.fields = fields;
+            this.entered = entered;
+            this.left = left;
+        }
+
+        public long getSeq() {
+            return seq;
+        }
+
+        public boolean isFull() {
+            return full;
+        }
+
+        /** Field mask per move for DELTA frames; null for BATCH frames, which always carry every field. */
+        public List<Integer> getFields() {
+            return fields;
+        }
+
+        public List<PlayerMove> getMoves() {
+            return moves;
+        }
+
+        public List<Integer> getEntered() {
+            return entered;
+        }
+
+        public List<Integer> getLeft() {
+            return left;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.stranded.backend.handler;
+
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.BinaryWebSocketHandler;
+
+import java.nio.ByteBuffer;
+
+/**
+ * /game handler for connections that negotiated {@link GameBinaryCodec#SUBPROTOCOL}.
+ * Shares rooms with the JSON handler; frames are re-encoded per recipient.
+ */
+public class GameBinaryWebSocketHandler extends BinaryWebSocketHandler {
+
+    private final GameRoomRegistry roomRegistry;
+
+    public GameBinaryWebSocketHandler(GameRoomRegistry roomRegistry) {
+        this.roomRegistry = roomRegistry;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        String playerId = roomRegistry.connect(session);
+        System.out.println("Player connected (binary): " + playerId);
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
+        ByteBuffer frame = message.getPayload();
+        byte type = GameBinaryCodec.readType(frame);
+
+        if (type == GameBinaryCodec.JOIN) {
+            String roomId = GameBinaryCodec.readJoin(frame);
+            joinRoom(session, roomId.isEmpty() ? GameRoomRegistry.DEFAULT_ROOM : roomId);
+            return;
+        }
+
+        GamePlayer player = roomRegistry.getPlayer(session);
+        if (player == null) {
+            player = joinRoom(session, GameRoomRegistry.DEFAULT_ROOM);
+            if (player == null) {
+                return;
+            }
+        }
+
+        if (type == GameBinaryCodec.MOVE) {
+            PlayerMove move = player.inbound;
+            GameBinaryCodec.readMove(frame, move);
+            player.room.queueMove(player, move.getX(), move.getY(), move.getVelX(), move.isGrounded());
+        } else if (type == GameBinaryCodec.ACK) {
+            player.room.acknowledge(player, GameBinaryCodec.readAck(frame));
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+        String playerId = roomRegistry.disconnect(session);
+        if (playerId != null) {
+            System.out.println("Player disconnected (binary): " + playerId);
+        }
+    }
+
+    private GamePlayer joinRoom(WebSocketSession session, String roomId) throws Exception {
+        GamePlayer player = roomRegistry.join(roomId, session, true);
+        if (player == null) {
+            roomRegistry.reply(session, new BinaryMessage(GameBinaryCodec.encodeError(GameBinaryCodec.ERROR_ROOM_FULL)));
+        }
+        return player;
+    }
+}
@@ -0,0 +1,367 @@
+package com.stranded.backend.handler;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Streaming reader for inbound JSON /game messages. One instance per session holds the
+ * fields of the last message read, so the MOVE and ACK paths never build a tree or box
+ * a number. Only used from the session's inbound thread.
+ *
+ * Flat messages with unescaped strings and plain numbers, which is everything the game
+ * client sends, are scanned in place without allocating. Anything else (nested values,
+ * escapes, values of an unexpected type) goes through Jackson's streaming parser instead.
+ */
+class GameMessageReader {
+
+    static final int UNKNOWN = 0;
+    static final int JOIN = 1;
+    static final int MOVE = 2;
+    static final int ACK = 3;
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    // Powers of ten that are exact as doubles; a mantissa below 2^53 scaled by one of
+    // them is correctly rounded in a single multiply or divide.
+    private static final double[] EXACT_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final int MAX_MANTISSA_DIGITS = 18;
+
+    int type;
+    String room;
+    double x;
+    double y;
+    double velX;
+    boolean grounded;
+    long seq;
+    boolean hasSeq;
+
+    // Scanner state for the message being read.
+    private String text;
+    private int pos;
+    private double numberValue;
+    private long integerValue;
+    private boolean numberIsInteger;
+
+    /** Reads the top-level fields of {@code payload}; missing fields keep the defaults. */
+    void read(String payload) throws IOException {
+        reset();
+        text = payload;
+        pos = 0;
+        boolean scanned = scanObject();
+        text = null;
+        if (!scanned) {
+            reset();
+            readWithParser(payload);
+        }
+    }
+
+    private void reset() {
+        type = UNKNOWN;
+        room = null;
+        x = 0;
+        y = 0;
+        velX = 0;
+        grounded = true;
+        seq = 0;
+        hasSeq = false;
+    }
+
+    private boolean scanObject() {
+        skipWhitespace();
+        if (!consume('{')) {
+            return false;
+        }
+        skipWhitespace();
+        if (consume('}')) {
+            return true;
+        }
+        while (true) {
+            skipWhitespace();
+            if (!consume('"')) {
+                return false;
+            }
+            int nameStart = pos;
+            int nameEnd = scanStringEnd();
+            if (nameEnd < 0) {
+                return false;
+            }
+            skipWhitespace();
+            if (!consume(':')) {
+                return false;
+            }
+            skipWhitespace();
+            if (!scanValue(nameStart, nameEnd - nameStart)) {
+                return false;
+            }
+            skipWhitespace();
+            if (consume(',')) {
+                continue;
+            }
+            return consume('}');
+        }
+    }
+
+    private boolean scanValue(int nameStart, int nameLength) {
+        if (pos >= text.length()) {
+            return false;
+        }
+        char c = text.charAt(pos);
+        if (c == '"') {
+            pos++;
+            int start = pos;
+            int end = scanStringEnd();
+            if (end < 0) {
+                return false;
+            }
+            if (isField("type", nameStart, nameLength)) {
+                type = typeOf(text, start, end - start);
+            } else if (isField("room", nameStart, nameLength)) {
+                room = text.substring(start, end);
+            } else if (isNumericField(nameStart, nameLength) || isField("grounded", nameStart, nameLength)) {
+                // Numbers and booleans sent as strings are coerced by the parser.
+                return false;
+            }
+            return true;
+        }
+        if (c == '{' || c == '[') {
+            return false;
+        }
+        if (c == 'n') {
+            if (!consumeLiteral("null")) {
+                return false;
+            }
+            if (isField("grounded", nameStart, nameLength)) {
+                grounded = false;
+            } else if (isField("seq", nameStart, nameLength)) {
+                hasSeq = true;
+            }
+            return true;
+        }
+        if (c == 't' || c == 'f') {
+            boolean value = c == 't';
+            if (!consumeLiteral(value ? "true" : "false")) {
+                return false;
+            }
+            if (isField("grounded", nameStart, nameLength)) {
+                grounded = value;
+                return true;
+            }
+            return !isNumericField(nameStart, nameLength) && !isField("room", nameStart, nameLength);
+        }
+
+        if (!scanNumber()) {
+            return false;
+        }
+        if (isField("x", nameStart, nameLength)) {
+            x = numberValue;
+        } else if (isField("y", nameStart, nameLength)) {
+            y = numberValue;
+        } else if (isField("velX", nameStart, nameLength)) {
+            velX = numberValue;
+        } else if (isField("seq", nameStart, nameLength)) {
+            if (!numberIsInteger) {
+                return false;
+            }
+            seq = integerValue;
+            hasSeq = true;
+        } else if (isField("grounded", nameStart, nameLength) || isField("room", nameStart, nameLength)) {
+            return false;
+        }
+        return true;
+    }
+
+    // Returns the index of the closing quote, or -1 for escapes and malformed strings.
+    private int scanStringEnd() {
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if (c == '"') {
+                return pos++;
+            }
+            if (c == '\\' || c < 0x20) {
+                return -1;
+            }
+            pos++;
+        }
+        return -1;
+    }
+
+    private boolean scanNumber() {
+        int start = pos;
+        boolean negative = consume('-');
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean truncated = false;
+        boolean integer = true;
+
+        int intStart = pos;
+        while (pos < text.length() && isDigit(text.charAt(pos))) {
+            int digit = text.charAt(pos++) - '0';
+            if (digits < MAX_MANTISSA_DIGITS) {
+                mantissa = mantissa * 10 + digit;
+                if (mantissa != 0) {
+                    digits++;
+                }
+            } else {
+                exponent++;
+                truncated |= digit != 0;
+            }
+        }
+        if (pos == intStart) {
+            return false;
+        }
+        if (consume('.')) {
+            integer = false;
+            int fractionStart = pos;
+            while (pos < text.length() && isDigit(text.charAt(pos))) {
+                int digit = text.charAt(pos++) - '0';
+                if (digits < MAX_MANTISSA_DIGITS) {
+                    mantissa = mantissa * 10 + digit;
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                    exponent--;
+                } else {
+                    truncated |= digit != 0;
+                }
+            }
+            if (pos == fractionStart) {
+                return false;
+            }
+        }
+        if (pos < text.length() && (text.charAt(pos) == 'e' || text.charAt(pos) == 'E')) {
+            integer = false;
+            pos++;
+            boolean negativeExponent = consume('-');
+            if (!negativeExponent) {
+                consume('+');
+            }
+            int exponentStart = pos;
+            int explicitExponent = 0;
+            while (pos < text.length() && isDigit(text.charAt(pos))) {
+                explicitExponent = Math.min(explicitExponent * 10 + (text.charAt(pos++) - '0'), 10_000);
+            }
+            if (pos == exponentStart) {
+                return false;
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        numberIsInteger = integer && !truncated && exponent == 0;
+        integerValue = negative ? -mantissa : mantissa;
+        if (!truncated && mantissa <= MAX_EXACT_MANTISSA && Math.abs(exponent) < EXACT_POWERS_OF_TEN.length) {
+            double value = exponent >= 0
+                    ? mantissa * EXACT_POWERS_OF_TEN[exponent]
+                    : mantissa / EXACT_POWERS_OF_TEN[-exponent];
+            numberValue = negative ? -value : value;
+        } else {
+            // Rare long or extreme values take the exact (allocating) JDK conversion.
+            numberValue = Double.parseDouble(text.substring(start, pos));
+        }
+        return true;
+    }
+
+    private void skipWhitespace() {
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private boolean consume(char expected) {
+        if (pos < text.length() && text.charAt(pos) == expected) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean consumeLiteral(String literal) {
+        if (text.startsWith(literal, pos)) {
+            pos += literal.length();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean isField(String name, int start, int length) {
+        return name.length() == length && text.regionMatches(start, name, 0, length);
+    }
+
+    private boolean isNumericField(int start, int length) {
+        return isField("x", start, length) || isField("y", start, length)
+                || isField("velX", start, length) || isField("seq", start, length);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private void readWithParser(String payload) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "type":
+                        type = value == JsonToken.VALUE_STRING
+                                ? typeOf(parser.getText(), 0, parser.getTextLength())
+                                : UNKNOWN;
+                        break;
+                    case "room":
+                        room = parser.getValueAsString();
+                        break;
+                    case "x":
+                        x = parser.getValueAsDouble();
+                        break;
+                    case "y":
+                        y = parser.getValueAsDouble();
+                        break;
+                    case "velX":
+                        velX = parser.getValueAsDouble();
+                        break;
+                    case "grounded":
+                        grounded = parser.getValueAsBoolean();
+                        break;
+                    case "seq":
+                        seq = parser.getValueAsLong();
+                        hasSeq = true;
+                        break;
+                    default:
+                        break;
+                }
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static int typeOf(String text, int offset, int length) {
+        if (matches("MOVE", text, offset, length)) {
+            return MOVE;
+        }
+        if (matches("ACK", text, offset, length)) {
+            return ACK;
+        }
+        if (matches("JOIN", text, offset, length)) {
+            return JOIN;
+        }
+        return UNKNOWN;
+    }
+
+    private static boolean matches(String expected, String text, int offset, int length) {
+        return expected.length() == length && text.regionMatches(offset, expected, 0, length);
+    }
+}
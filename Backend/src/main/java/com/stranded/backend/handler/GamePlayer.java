@@ -0,0 +1,74 @@
+package com.stranded.backend.handler;
+
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A session's membership in a {@link GameRoom}. Everything except the final
+ * identity fields is owned by the room lane. A player connected to another node has
+ * no session or outbound queue here.
+ */
+class GamePlayer {
+
+    final GameRoom room;
+    final WebSocketSession session;
+    final String playerId;
+    final int handle;
+    final boolean binary;
+    final OutboundQueue outbound;
+
+    // Last state relayed to other players; the handle is fixed for the room membership.
+    final PlayerMove state;
+    long movedTick;
+    Set<String> visible = new HashSet<>();
+
+    // Highest snapshot seq the client acknowledged; -1 until it opts into DELTA frames.
+    final AtomicLong ackedSeq = new AtomicLong(-1);
+    SnapshotTracker tracker;
+    // Outbound drops seen by the tracker; a new drop means the client missed a frame.
+    long seenDrops;
+
+    // JSON MOVE fragment for the current tick, built on first use.
+    String jsonMove;
+
+    // Scratch for decoding binary MOVE frames; only touched by the session's inbound thread.
+    final PlayerMove inbound = new PlayerMove();
+
+    // Latest MOVE since the last tick; older ones are overwritten. Guarded by pendingMove.
+    private final PlayerMove pendingMove = new PlayerMove();
+    private boolean movePending;
+
+    GamePlayer(GameRoom room, WebSocketSession session, String playerId, int handle, boolean binary,
+            OutboundQueue outbound) {
+        this.room = room;
+        this.session = session;
+        this.playerId = playerId;
+        this.handle = handle;
+        this.binary = binary;
+        this.outbound = outbound;
+        this.state = new PlayerMove();
+        this.state.setHandle(handle);
+    }
+
+    void offerMove(double x, double y, double velX, boolean grounded) {
+        synchronized (pendingMove) {
+            pendingMove.set(x, y, velX, grounded);
+            movePending = true;
+        }
+    }
+
+    /** Copies a pending MOVE into {@link #state}; returns false if none arrived since the last call. */
+    boolean applyPendingMove() {
+        synchronized (pendingMove) {
+            if (!movePending) {
+                return false;
+            }
+            movePending = false;
+            state.set(pendingMove.getX(), pendingMove.getY(), pendingMove.getVelX(), pendingMove.isGrounded());
+            return true;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.stranded.backend.handler;
+
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.SubProtocolCapable;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+
+/**
+ * Entry point for /game. Connections that negotiate {@link GameBinaryCodec#SUBPROTOCOL}
+ * go to the binary handler; everything else keeps the JSON protocol.
+ */
+public class GameProtocolRouter implements WebSocketHandler, SubProtocolCapable {
+
+    private final WebSocketHandler jsonHandler;
+    private final WebSocketHandler binaryHandler;
+
+    public GameProtocolRouter(WebSocketHandler jsonHandler, WebSocketHandler binaryHandler) {
+        this.jsonHandler = jsonHandler;
+        this.binaryHandler = binaryHandler;
+    }
+
+    @Override
+    public List<String> getSubProtocols() {
+        return List.of(GameBinaryCodec.SUBPROTOCOL);
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        handlerFor(session).afterConnectionEstablished(session);
+    }
+
+    @Override
+    public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
+        handlerFor(session).handleMessage(session, message);
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
+        handlerFor(session).handleTransportError(session, exception);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+        handlerFor(session).afterConnectionClosed(session, closeStatus);
+    }
+
+    @Override
+    public boolean supportsPartialMessages() {
+        return false;
+    }
+
+    private WebSocketHandler handlerFor(WebSocketSession session) {
+        return GameBinaryCodec.SUBPROTOCOL.equals(session.getAcceptedProtocol()) ? binaryHandler : jsonHandler;
+    }
+}
@@ -0,0 +1,634 @@
+package com.stranded.backend.handler;
+
+import com.stranded.backend.service.MessageBus;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One partition of the game world. Every send to the room's sessions runs on the
+ * room's own single-threaded lane, so a busy room never delays another one.
+ * Frames are encoded per recipient protocol (JSON text or {@link GameBinaryCodec}).
+ *
+ * On a clustered {@link MessageBus} the room is shared with the same room on other
+ * nodes: each tick's local moves and relayed messages are published on the room's topic,
+ * and players connected elsewhere are mirrored here as remote players. Remote players
+ * move and are seen like local ones but never receive frames from this node.
+ */
+public class GameRoom {
+
+    // A client this many ticks behind on acks is resynced with a full snapshot.
+    private static final int MAX_UNACKED_FRAMES = 64;
+
+    private static final String TOPIC_PREFIX = "game.room.";
+    private static final byte BUS_MOVES = 1;
+    private static final byte BUS_RELAY = 2;
+
+    private final String id;
+    private final int capacity;
+
+    private final Map<String, GamePlayer> members = new ConcurrentHashMap<>();
+    private final Map<String, GamePlayer> playersById = new ConcurrentHashMap<>();
+    // Players connected to other nodes, by player id.
+    private final Map<String, GamePlayer> remotePlayers = new ConcurrentHashMap<>();
+    private final BitSet usedHandles = new BitSet();
+
+    private final Queue<GamePlayer> departedPlayers = new ConcurrentLinkedQueue<>();
+
+    // Only touched from the room lane.
+    private final InterestGrid interestGrid;
+    private long tickNumber;
+    private final List<GamePlayer> moved = new ArrayList<>();
+    // Reused for every JSON frame; only the finished frame is copied out and shared.
+    private final StringBuilder frameBuffer = new StringBuilder(1024);
+    private final StringBuilder moveBuffer = new StringBuilder(128);
+
+    private final ExecutorService lane;
+    private final AtomicBoolean tickQueued = new AtomicBoolean();
+
+    private final MessageBus bus;
+    private MessageBus.Subscription subscription;
+
+    GameRoom(String id, int capacity, double interestRadius, MessageBus bus) {
+        this.id = id;
+        this.bus = bus;
+        this.capacity = Math.min(capacity, GameBinaryCodec.MAX_HANDLE);
+        this.interestGrid = interestRadius > 0 ? new InterestGrid(interestRadius) : null;
+        this.lane = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "game-room-" + id);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getPlayerCount() {
+        return members.size() + remotePlayers.size();
+    }
+
+    synchronized GamePlayer add(WebSocketSession session, String playerId, boolean binary, OutboundQueue outbound) {
+        if (getPlayerCount() >= capacity) {
+            return null;
+        }
+        int handle = usedHandles.nextClearBit(1);
+        usedHandles.set(handle);
+        GamePlayer player = new GamePlayer(this, session, playerId, handle, binary, outbound);
+        members.put(session.getId(), player);
+        playersById.put(playerId, player);
+        return player;
+    }
+
+    synchronized GamePlayer remove(String sessionId) {
+        GamePlayer player = members.remove(sessionId);
+        if (player != null) {
+            playersById.remove(player.playerId);
+            usedHandles.clear(player.handle);
+            departedPlayers.add(player);
+        }
+        return player;
+    }
+
+    /** Mirrors a player connected to another node; null if already here or the room is full. */
+    synchronized GamePlayer addRemote(String playerId) {
+        if (playersById.containsKey(playerId) || getPlayerCount() >= capacity) {
+            return null;
+        }
+        int handle = usedHandles.nextClearBit(1);
+        usedHandles.set(handle);
+        GamePlayer player = new GamePlayer(this, null, playerId, handle, false, null);
+        remotePlayers.put(playerId, player);
+        playersById.put(playerId, player);
+        return player;
+    }
+
+    synchronized GamePlayer removeRemote(String playerId) {
+        GamePlayer player = remotePlayers.remove(playerId);
+        if (player != null) {
+            playersById.remove(playerId);
+            usedHandles.clear(player.handle);
+            departedPlayers.add(player);
+        }
+        return player;
+    }
+
+    // Remote players alone do not keep a room open on this node.
+    boolean isEmpty() {
+        return members.isEmpty();
+    }
+
+    /** Starts receiving the room's moves and messages from other nodes. */
+    synchronized void attach() {
+        if (bus.isDistributed() && !lane.isShutdown()) {
+            subscription = bus.subscribe(TOPIC_PREFIX + id, this::onBusMessage);
+        }
+    }
+
+    void queueMove(GamePlayer player, double x, double y, double velX, boolean grounded) {
+        player.offerMove(x, y, velX, grounded);
+    }
+
+    // The first ACK switches the player from BATCH to DELTA frames.
+    void acknowledge(GamePlayer player, long seq) {
+        player.ackedSeq.accumulateAndGet(seq, Math::max);
+    }
+
+    void announceJoin(GamePlayer joined) {
+        String json = "{\"type\":\"JOIN\",\"id\":\"" + joined.playerId + "\",\"room\":" + jsonString(id) + "}";
+        byte[] binary = GameBinaryCodec.encodePlayerEvent(GameBinaryCodec.JOIN, joined.handle).array();
+        runOnLane(() -> {
+            if (joined.binary) {
+                send(joined, new BinaryMessage(GameBinaryCodec.encodeWelcome(joined.handle)));
+            }
+            TextMessage text = new TextMessage(json);
+            members.values().forEach(player -> {
+                if (player != joined) {
+                    send(player, player.binary ? new BinaryMessage(binary) : text);
+                }
+            });
+        });
+    }
+
+    void announceLeave(GamePlayer departed) {
+        String json = "{\"type\":\"LEAVE\",\"id\":\"" + departed.playerId + "\"}";
+        byte[] binary = GameBinaryCodec.encodePlayerEvent(GameBinaryCodec.LEAVE, departed.handle).array();
+        runOnLane(() -> {
+            TextMessage text = new TextMessage(json);
+            members.values().forEach(player -> send(player, player.binary ? new BinaryMessage(binary) : text));
+        });
+    }
+
+    // Messages of unknown type are passed through verbatim, which only JSON clients understand.
+    void relayToOthers(String senderSessionId, String payload) {
+        if (bus.isDistributed()) {
+            try {
+                byte[] text = payload.getBytes(StandardCharsets.UTF_8);
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(text.length + 8);
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeByte(BUS_RELAY);
+                out.writeInt(text.length);
+                out.write(text);
+                bus.publish(TOPIC_PREFIX + id, bytes.toByteArray());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        runOnLane(() -> {
+            TextMessage text = new TextMessage(payload);
+            members.values().forEach(player -> {
+                if (!player.binary && !player.session.getId().equals(senderSessionId)) {
+                    send(player, text);
+                }
+            });
+        });
+    }
+
+    // A room that is still busy with its previous tick skips this one instead of queueing up.
+    void requestTick() {
+        if (tickQueued.compareAndSet(false, true)) {
+            runOnLane(() -> {
+                tickQueued.set(false);
+                tick();
+            });
+        }
+    }
+
+    synchronized void close() {
+        if (subscription != null) {
+            subscription.cancel();
+            subscription = null;
+        }
+        lane.shutdown();
+    }
+
+    private void runOnLane(Runnable task) {
+        try {
+            lane.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Room was closed after its last player left; nobody is left to deliver to.
+        }
+    }
+
+    private void tick() {
+        GamePlayer departed;
+        while ((departed = departedPlayers.poll()) != null) {
+            forgetPlayer(departed);
+        }
+
+        tickNumber++;
+        moved.clear();
+        for (GamePlayer player : members.values()) {
+            applyMove(player);
+        }
+        int localMoves = moved.size();
+        for (GamePlayer player : remotePlayers.values()) {
+            applyMove(player);
+        }
+        if (localMoves > 0 && bus.isDistributed()) {
+            publishMoves(moved.subList(0, localMoves));
+        }
+
+        TextMessage[] jsonBatch = new TextMessage[1];
+        byte[][] binaryBatch = new byte[1][];
+        members.values().forEach(recipient -> {
+            if (recipient.tracker == null && recipient.ackedSeq.get() >= 0) {
+                recipient.tracker = new SnapshotTracker(MAX_UNACKED_FRAMES);
+            }
+            if (recipient.tracker != null) {
+                long drops = recipient.outbound.getDropped();
+                if (drops != recipient.seenDrops) {
+                    recipient.seenDrops = drops;
+                    recipient.tracker.reset();
+                }
+                recipient.tracker.acknowledge(recipient.ackedSeq.get());
+            }
+
+            // Until a player reports a position it has no area of interest, so it sees the whole room.
+            if (interestGrid != null && interestGrid.contains(recipient.playerId)) {
+                fanOutByInterest(recipient);
+            } else if (recipient.tracker != null) {
+                fanOutDeltaToAll(recipient, moved);
+            } else {
+                fanOutToAll(recipient, moved, jsonBatch, binaryBatch);
+            }
+        });
+    }
+
+    private void applyMove(GamePlayer player) {
+        if (!player.applyPendingMove()) {
+            return;
+        }
+        player.movedTick = tickNumber;
+        player.jsonMove = null;
+        moved.add(player);
+        if (interestGrid != null) {
+            interestGrid.update(player.playerId, player.state.getX(), player.state.getY());
+        }
+    }
+
+    private void publishMoves(List<GamePlayer> players) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + players.size() * 64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(BUS_MOVES);
+            out.writeInt(players.size());
+            for (GamePlayer player : players) {
+                PlayerMove state = player.state;
+                out.writeUTF(player.playerId);
+                out.writeDouble(state.getX());
+                out.writeDouble(state.getY());
+                out.writeDouble(state.getVelX());
+                out.writeBoolean(state.isGrounded());
+            }
+            bus.publish(TOPIC_PREFIX + id, bytes.toByteArray());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Runs on the bus thread. Moves are picked up by the next tick like local ones.
+    private void onBusMessage(String topic, String originNode, byte[] payload) {
+        if (originNode.equals(bus.getNodeId())) {
+            return;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            byte type = in.readByte();
+            if (type == BUS_MOVES) {
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    GamePlayer player = remotePlayers.get(in.readUTF());
+                    double x = in.readDouble();
+                    double y = in.readDouble();
+                    double velX = in.readDouble();
+                    boolean grounded = in.readBoolean();
+                    if (player != null) {
+                        player.offerMove(x, y, velX, grounded);
+                    }
+                }
+            } else if (type == BUS_RELAY) {
+                byte[] relayed = new byte[in.readInt()];
+                in.readFully(relayed);
+                runOnLane(() -> {
+                    TextMessage text = new TextMessage(new String(relayed, StandardCharsets.UTF_8));
+                    members.values().forEach(player -> {
+                        if (!player.binary) {
+                            send(player, text);
+                        }
+                    });
+                });
+            }
+        } catch (IOException e) {
+            System.out.println("[GameRoom] Ignoring malformed message from node " + originNode);
+        }
+    }
+
+    private void fanOutToAll(GamePlayer recipient, List<GamePlayer> moved, TextMessage[] jsonBatch,
+            byte[][] binaryBatch) {
+        if (moved.isEmpty()) {
+            return;
+        }
+        if (recipient.movedTick == tickNumber) {
+            if (moved.size() > 1) {
+                List<GamePlayer> others = new ArrayList<>(moved);
+                others.remove(recipient);
+                deliver(recipient, others, List.of(), List.of());
+            }
+            return;
+        }
+        // Everyone who did not move this tick gets the same frame, so encode it once per protocol.
+        // Text messages are immutable and shared; sending consumes a binary payload's position,
+        // so each binary recipient gets its own view of the shared bytes.
+        if (recipient.binary) {
+            if (binaryBatch[0] == null) {
+                binaryBatch[0] = binaryBatch(moved, List.of(), List.of()).array();
+            }
+            recipient.outbound.sendDroppable(new BinaryMessage(binaryBatch[0]));
+        } else {
+            if (jsonBatch[0] == null) {
+                jsonBatch[0] = new TextMessage(jsonBatch(moved, List.of(), List.of()));
+            }
+            recipient.outbound.sendDroppable(jsonBatch[0]);
+        }
+    }
+
+    private void fanOutDeltaToAll(GamePlayer recipient, List<GamePlayer> moved) {
+        SnapshotTracker tracker = recipient.tracker;
+        Set<GamePlayer> candidates = new LinkedHashSet<>();
+        if (tracker.needsFullSnapshot()) {
+            for (GamePlayer other : playersById.values()) {
+                if (other.movedTick > 0) {
+                    candidates.add(other);
+                }
+            }
+        } else {
+            candidates.addAll(moved);
+            addUnacked(tracker, candidates, null);
+        }
+        candidates.remove(recipient);
+        deliverDelta(recipient, candidates, List.of(), List.of());
+    }
+
+    private void fanOutByInterest(GamePlayer recipient) {
+        Set<String> nearby = interestGrid.nearby(recipient.playerId);
+        Set<String> visible = recipient.visible;
+        SnapshotTracker tracker = recipient.tracker;
+
+        List<GamePlayer> updates = new ArrayList<>();
+        List<GamePlayer> entered = new ArrayList<>();
+        for (String otherId : nearby) {
+            GamePlayer other = playersById.get(otherId);
+            if (other == null) {
+                continue;
+            }
+            boolean wasVisible = visible.contains(otherId);
+            if (!wasVisible) {
+                entered.add(other);
+                if (tracker != null) {
+                    tracker.forget(otherId);
+                }
+            }
+            // Players coming into view get their last known state even if they did not move.
+            if (!wasVisible || other.movedTick == tickNumber || (tracker != null && tracker.needsFullSnapshot())) {
+                updates.add(other);
+            }
+        }
+        List<GamePlayer> left = new ArrayList<>();
+        for (String otherId : visible) {
+            GamePlayer other = playersById.get(otherId);
+            if (other != null && !nearby.contains(otherId)) {
+                left.add(other);
+                if (tracker != null) {
+                    tracker.forget(otherId);
+                }
+            }
+        }
+        recipient.visible = nearby;
+
+        if (tracker != null) {
+            Set<GamePlayer> candidates = new LinkedHashSet<>(updates);
+            addUnacked(tracker, candidates, nearby);
+            deliverDelta(recipient, candidates, entered, left);
+        } else if (!updates.isEmpty() || !entered.isEmpty() || !left.isEmpty()) {
+            deliver(recipient, updates, entered, left);
+        }
+    }
+
+    private void addUnacked(SnapshotTracker tracker, Set<GamePlayer> candidates, Set<String> visibleOnly) {
+        for (String otherId : tracker.unackedPlayers()) {
+            GamePlayer other = playersById.get(otherId);
+            if (other != null && (visibleOnly == null || visibleOnly.contains(otherId))) {
+                candidates.add(other);
+            }
+        }
+    }
+
+    private void forgetPlayer(GamePlayer departed) {
+        if (interestGrid != null) {
+            interestGrid.remove(departed.playerId);
+        }
+        for (GamePlayer player : members.values()) {
+            player.visible.remove(departed.playerId);
+            if (player.tracker != null) {
+                player.tracker.forget(departed.playerId);
+            }
+        }
+    }
+
+    private void deliver(GamePlayer recipient, List<GamePlayer> updates, List<GamePlayer> entered,
+            List<GamePlayer> left) {
+        // Frames that announce players entering or leaving view must not be dropped.
+        boolean droppable = entered.isEmpty() && left.isEmpty();
+        WebSocketMessage<?> message = recipient.binary
+                ? new BinaryMessage(binaryBatch(updates, entered, left))
+                : new TextMessage(jsonBatch(updates, entered, left));
+        if (droppable) {
+            recipient.outbound.sendDroppable(message);
+        } else {
+            recipient.outbound.send(message);
+        }
+    }
+
+    private void deliverDelta(GamePlayer recipient, Set<GamePlayer> candidates, List<GamePlayer> entered,
+            List<GamePlayer> left) {
+        SnapshotTracker tracker = recipient.tracker;
+        boolean full = tracker.needsFullSnapshot();
+        List<GamePlayer> players = new ArrayList<>(candidates.size());
+        int[] fields = new int[candidates.size()];
+        for (GamePlayer other : candidates) {
+            int mask = full ? SnapshotTracker.ALL_FIELDS : tracker.changedFields(other.playerId, other.state);
+            if (mask != 0) {
+                fields[players.size()] = mask;
+                players.add(other);
+            }
+        }
+        if (!full && players.isEmpty() && entered.isEmpty() && left.isEmpty()) {
+            return;
+        }
+        tracker.recordSent(tickNumber, players, fields);
+
+        // A dropped DELTA resyncs through a full snapshot, so every DELTA frame may be dropped.
+        if (recipient.binary) {
+            List<PlayerMove> moves = new ArrayList<>(players.size());
+            for (GamePlayer player : players) {
+                moves.add(player.state);
+            }
+            recipient.outbound.sendDroppable(new BinaryMessage(GameBinaryCodec.encodeDelta(
+                    tickNumber, full, moves, fields, handles(entered), handles(left))));
+        } else {
+            recipient.outbound.sendDroppable(new TextMessage(
+                    jsonDelta(tickNumber, full, players, fields, entered, left)));
+        }
+    }
+
+    private static ByteBuffer binaryBatch(List<GamePlayer> updates, List<GamePlayer> entered, List<GamePlayer> left) {
+        List<PlayerMove> moves = new ArrayList<>(updates.size());
+        for (GamePlayer player : updates) {
+            moves.add(player.state);
+        }
+        return GameBinaryCodec.encodeBatch(moves, handles(entered), handles(left));
+    }
+
+    private static List<Integer> handles(List<GamePlayer> players) {
+        List<Integer> handles = new ArrayList<>(players.size());
+        for (GamePlayer player : players) {
+            handles.add(player.handle);
+        }
+        return handles;
+    }
+
+    private String jsonBatch(List<GamePlayer> updates, List<GamePlayer> entered, List<GamePlayer> left) {
+        StringBuilder frame = frameBuffer;
+        frame.setLength(0);
+        frame.append("{\"type\":\"BATCH\",\"players\":[");
+        for (int i = 0; i < updates.size(); i++) {
+            if (i > 0) {
+                frame.append(',');
+            }
+            frame.append(jsonMove(updates.get(i)));
+        }
+        frame.append(']');
+        appendIds(frame, "enter", entered);
+        appendIds(frame, "leave", left);
+        return frame.append('}').toString();
+    }
+
+    private String jsonDelta(long seq, boolean full, List<GamePlayer> players, int[] fields,
+            List<GamePlayer> entered, List<GamePlayer> left) {
+        StringBuilder frame = frameBuffer;
+        frame.setLength(0);
+        frame.append("{\"type\":\"DELTA\",\"seq\":").append(seq)
+                .append(",\"full\":").append(full)
+                .append(",\"players\":[");
+        for (int i = 0; i < players.size(); i++) {
+            GamePlayer player = players.get(i);
+            PlayerMove state = player.state;
+            int mask = fields[i];
+            if (i > 0) {
+                frame.append(',');
+            }
+            frame.append("{\"id\":\"").append(player.playerId).append('"');
+            if ((mask & SnapshotTracker.FIELD_X) != 0) {
+                frame.append(",\"x\":").append(state.getX());
+            }
+            if ((mask & SnapshotTracker.FIELD_Y) != 0) {
+                frame.append(",\"y\":").append(state.getY());
+            }
+            if ((mask & SnapshotTracker.FIELD_VEL_X) != 0) {
+                frame.append(",\"velX\":").append(state.getVelX());
+            }
+            if ((mask & SnapshotTracker.FIELD_GROUNDED) != 0) {
+                frame.append(",\"grounded\":").append(state.isGrounded());
+            }
+            frame.append('}');
+        }
+        frame.append(']');
+        appendIds(frame, "enter", entered);
+        appendIds(frame, "leave", left);
+        return frame.append('}').toString();
+    }
+
+    private String jsonMove(GamePlayer player) {
+        if (player.jsonMove == null) {
+            PlayerMove state = player.state;
+            moveBuffer.setLength(0);
+            player.jsonMove = moveBuffer
+                    .append("{\"type\":\"MOVE\",\"id\":\"").append(player.playerId)
+                    .append("\",\"x\":").append(state.getX())
+                    .append(",\"y\":").append(state.getY())
+                    .append(",\"velX\":").append(state.getVelX())
+                    .append(",\"grounded\":").append(state.isGrounded())
+                    .append('}')
+                    .toString();
+        }
+        return player.jsonMove;
+    }
+
+    private static void appendIds(StringBuilder frame, String field, List<GamePlayer> players) {
+        if (players.isEmpty()) {
+            return;
+        }
+        frame.append(",\"").append(field).append("\":[");
+        for (int i = 0; i < players.size(); i++) {
+            if (i > 0) {
+                frame.append(',');
+            }
+            // Player ids are server-generated UUIDs, so they never need escaping.
+            frame.append('"').append(players.get(i).playerId).append('"');
+        }
+        frame.append(']');
+    }
+
+    private static String jsonString(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static void send(GamePlayer player, WebSocketMessage<?> message) {
+        player.outbound.send(message);
+    }
+}
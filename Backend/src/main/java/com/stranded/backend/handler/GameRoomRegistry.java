@@ -0,0 +1,209 @@
+package com.stranded.backend.handler;
+
+import com.stranded.backend.service.MessageBus;
+import com.stranded.backend.service.SessionDirectory;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks /game connections and the room each one is in, and drives the shared
+ * tick. Used by both the JSON and the binary game handlers.
+ *
+ * Each local player's room is published in the {@link SessionDirectory}; players that
+ * other nodes publish are mirrored into the same room here, if this node has it open.
+ */
+public class GameRoomRegistry {
+
+    public static final String DEFAULT_ROOM = "lobby";
+    public static final String DIRECTORY_KIND = "game";
+
+    private final Map<String, GameRoom> rooms = new ConcurrentHashMap<>();
+    private final Map<String, String> sessionToPlayerId = new ConcurrentHashMap<>();
+    private final Map<String, GamePlayer> sessionToPlayer = new ConcurrentHashMap<>();
+    // Player id -> room of every player on another node.
+    private final Map<String, String> remotePlayerRooms = new ConcurrentHashMap<>();
+    private final OutboundQueueRegistry outboundQueues;
+    private final MessageBus bus;
+    private final SessionDirectory directory;
+    private final int roomCapacity;
+    private final double interestRadius;
+    private final ScheduledExecutorService tickExecutor;
+
+    public GameRoomRegistry(int tickRate, int roomCapacity, double interestRadius,
+            OutboundQueueRegistry outboundQueues, MessageBus bus, SessionDirectory directory) {
+        if (tickRate <= 0) {
+            throw new IllegalArgumentException("Tick rate must be positive");
+        }
+        if (roomCapacity <= 0) {
+            throw new IllegalArgumentException("Room capacity must be positive");
+        }
+        this.roomCapacity = roomCapacity;
+        this.interestRadius = interestRadius;
+        this.outboundQueues = outboundQueues;
+        this.bus = bus;
+        this.directory = directory;
+        directory.addListener(DIRECTORY_KIND, new SessionDirectory.Listener() {
+            @Override
+            public void onPut(SessionDirectory.Entry entry) {
+                String previous = remotePlayerRooms.put(entry.getKey(), entry.getValue());
+                if (previous != null && !previous.equals(entry.getValue())) {
+                    removeRemote(previous, entry.getKey());
+                }
+                addRemote(entry.getValue(), entry.getKey());
+            }
+
+            @Override
+            public void onRemove(SessionDirectory.Entry entry) {
+                if (remotePlayerRooms.remove(entry.getKey(), entry.getValue())) {
+                    removeRemote(entry.getValue(), entry.getKey());
+                }
+            }
+        });
+        long periodMicros = TimeUnit.SECONDS.toMicros(1) / tickRate;
+        // A platform thread in virtual-thread mode too, so a tick never waits for a free carrier.
+        this.tickExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "game-tick");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.tickExecutor.scheduleAtFixedRate(this::tick, periodMicros, periodMicros, TimeUnit.MICROSECONDS);
+    }
+
+    String connect(WebSocketSession session) {
+        String playerId = UUID.randomUUID().toString();
+        sessionToPlayerId.put(session.getId(), playerId);
+        outboundQueues.register(session, "game");
+        return playerId;
+    }
+
+    String disconnect(WebSocketSession session) {
+        leave(session.getId());
+        outboundQueues.unregister(session);
+        return sessionToPlayerId.remove(session.getId());
+    }
+
+    /** Sends a reliable frame to a single session through its outbound queue. */
+    void reply(WebSocketSession session, WebSocketMessage<?> message) {
+        OutboundQueue outbound = outboundQueues.get(session);
+        if (outbound != null) {
+            outbound.send(message);
+        }
+    }
+
+    GamePlayer getPlayer(WebSocketSession session) {
+        return sessionToPlayer.get(session.getId());
+    }
+
+    /**
+     * Moves the session into the room, creating the room on first use and leaving
+     * any previous room. Returns null when the room is full.
+     */
+    GamePlayer join(String roomId, WebSocketSession session, boolean binary) {
+        String playerId = sessionToPlayerId.get(session.getId());
+        OutboundQueue outbound = outboundQueues.get(session);
+        if (playerId == null || outbound == null) {
+            return null;
+        }
+        GamePlayer current = sessionToPlayer.get(session.getId());
+        if (current != null) {
+            if (current.room.getId().equals(roomId)) {
+                return current;
+            }
+            leave(session.getId());
+        }
+
+        GamePlayer[] joined = new GamePlayer[1];
+        GameRoom[] created = new GameRoom[1];
+        rooms.compute(roomId, (id, room) -> {
+            if (room == null) {
+                room = new GameRoom(id, roomCapacity, interestRadius, bus);
+                created[0] = room;
+            }
+            joined[0] = room.add(session, playerId, binary, outbound);
+            if (joined[0] == null && room.isEmpty()) {
+                room.close();
+                return null;
+            }
+            return room;
+        });
+
+        GamePlayer player = joined[0];
+        if (player != null) {
+            sessionToPlayer.put(session.getId(), player);
+            player.room.announceJoin(player);
+            directory.put(DIRECTORY_KIND, playerId, roomId);
+            if (created[0] == player.room) {
+                player.room.attach();
+                remotePlayerRooms.forEach((remoteId, remoteRoom) -> {
+                    if (remoteRoom.equals(roomId)) {
+                        addRemote(roomId, remoteId);
+                    }
+                });
+            }
+        }
+        return player;
+    }
+
+    private void leave(String sessionId) {
+        GamePlayer player = sessionToPlayer.remove(sessionId);
+        if (player == null) {
+            return;
+        }
+        rooms.computeIfPresent(player.room.getId(), (id, room) -> {
+            if (room != player.room) {
+                return room;
+            }
+            room.remove(sessionId);
+            if (room.isEmpty()) {
+                room.close();
+                return null;
+            }
+            return room;
+        });
+        player.room.announceLeave(player);
+        directory.remove(DIRECTORY_KIND, player.playerId);
+    }
+
+    private void addRemote(String roomId, String playerId) {
+        GameRoom room = rooms.get(roomId);
+        GamePlayer player = room != null ? room.addRemote(playerId) : null;
+        if (player != null) {
+            room.announceJoin(player);
+        }
+    }
+
+    private void removeRemote(String roomId, String playerId) {
+        GameRoom room = rooms.get(roomId);
+        GamePlayer player = room != null ? room.removeRemote(playerId) : null;
+        if (player != null) {
+            room.announceLeave(player);
+        }
+    }
+
+    public Collection<GameRoom> getRooms() {
+        return new ArrayList<>(rooms.values());
+    }
+
+    public void shutdown() {
+        tickExecutor.shutdownNow();
+        rooms.values().forEach(GameRoom::close);
+    }
+
+    private void tick() {
+        try {
+            rooms.values().forEach(GameRoom::requestTick);
+        } catch (RuntimeException e) {
+            // An escaped exception would cancel the scheduled tick for good.
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.stranded.backend.handler;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Uniform grid of player positions used for area-of-interest queries.
+ * Cells are one radius wide, so a radius query only has to look at the
+ * 3x3 block of cells around the observer. Not thread-safe: owned by the tick thread.
+ */
+class InterestGrid {
+
+    private final double radius;
+    private final double radiusSquared;
+    private final Map<Long, Set<String>> cells = new HashMap<>();
+    private final Map<String, double[]> positions = new HashMap<>();
+    private final Map<String, Long> playerCells = new HashMap<>();
+
+    InterestGrid(double radius) {
+        if (radius <= 0) {
+            throw new IllegalArgumentException("Interest radius must be positive");
+        }
+        this.radius = radius;
+        this.radiusSquared = radius * radius;
+    }
+
+    void update(String playerId, double x, double y) {
+        long cell = cellKey(cellCoord(x), cellCoord(y));
+        Long previous = playerCells.put(playerId, cell);
+        if (previous == null || previous != cell) {
+            if (previous != null) {
+                removeFromCell(previous, playerId);
+            }
+            cells.computeIfAbsent(cell, k -> new HashSet<>()).add(playerId);
+        }
+        double[] position = positions.get(playerId);
+        if (position == null) {
+            positions.put(playerId, new double[] { x, y });
+        } else {
+            position[0] = x;
+            position[1] = y;
+        }
+    }
+
+    void remove(String playerId) {
+        Long cell = playerCells.remove(playerId);
+        positions.remove(playerId);
+        if (cell != null) {
+            removeFromCell(cell, playerId);
+        }
+    }
+
+    boolean contains(String playerId) {
+        return positions.containsKey(playerId);
+    }
+
+    /** Players within the radius of the given player, excluding the player itself. */
+    Set<String> nearby(String playerId) {
+        double[] origin = positions.get(playerId);
+        if (origin == null) {
+            return new HashSet<>();
+        }
+        Set<String> result = new HashSet<>();
+        int cx = cellCoord(origin[0]);
+        int cy = cellCoord(origin[1]);
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                Set<String> occupants = cells.get(cellKey(cx + dx, cy + dy));
+                if (occupants == null) {
+                    continue;
+                }
+                for (String other : occupants) {
+                    if (other.equals(playerId)) {
+                        continue;
+                    }
+                    double[] p = positions.get(other);
+                    double ox = p[0] - origin[0];
+                    double oy = p[1] - origin[1];
+                    if (ox * ox + oy * oy <= radiusSquared) {
+                        result.add(other);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private void removeFromCell(long cell, String playerId) {
+        Set<String> occupants = cells.get(cell);
+        if (occupants != null) {
+            occupants.remove(playerId);
+            if (occupants.isEmpty()) {
+                cells.remove(cell);
+            }
+        }
+    }
+
+    private int cellCoord(double value) {
+        return (int) Math.floor(value / radius);
+    }
+
+    private static long cellKey(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xffffffffL);
+    }
+}
@@ -0,0 +1,192 @@
+package com.stranded.backend.handler;
+
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, non-blocking send queue for one WebSocket session. Callers never touch the
+ * socket; a sender thread drains the queue, so a slow client only delays itself.
+ *
+ * When the queue is full, droppable frames (position updates) evict the oldest
+ * droppable frame, while reliable frames (joins, leaves, chat, signaling) are always
+ * queued. A session that stays over capacity for longer than the backlog timeout, or
+ * whose reliable backlog reaches the hard limit, is disconnected.
+ */
+public class OutboundQueue {
+
+    // Messages sent per drain run before yielding the sender thread to other sessions.
+    private static final int DRAIN_BATCH = 32;
+    private static final int HARD_LIMIT_FACTOR = 4;
+
+    private final WebSocketSession session;
+    private final String endpoint;
+    private final Executor sender;
+    private final int capacity;
+    private final long backlogTimeoutMillis;
+
+    private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+    private boolean draining;
+    private boolean closed;
+    private long overCapacitySince = -1;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+
+    OutboundQueue(WebSocketSession session, String endpoint, Executor sender, int capacity,
+            long backlogTimeoutMillis) {
+        this.session = session;
+        this.endpoint = endpoint;
+        this.sender = sender;
+        this.capacity = capacity;
+        this.backlogTimeoutMillis = backlogTimeoutMillis;
+    }
+
+    public void send(WebSocketMessage<?> message) {
+        enqueue(message, false);
+    }
+
+    public void sendDroppable(WebSocketMessage<?> message) {
+        enqueue(message, true);
+    }
+
+    private void enqueue(WebSocketMessage<?> message, boolean droppable) {
+        boolean startDrain = false;
+        boolean overloaded = false;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (queue.size() >= capacity && droppable) {
+                if (!dropOldestDroppable()) {
+                    // Only reliable frames are queued; the new position update is the one to go.
+                    dropped.incrementAndGet();
+                    return;
+                }
+            }
+            queue.addLast(new Entry(message, droppable));
+
+            if (queue.size() >= capacity) {
+                long now = System.currentTimeMillis();
+                if (overCapacitySince < 0) {
+                    overCapacitySince = now;
+                }
+                overloaded = now - overCapacitySince > backlogTimeoutMillis
+                        || queue.size() >= capacity * HARD_LIMIT_FACTOR;
+            } else {
+                overCapacitySince = -1;
+            }
+            if (!overloaded && !draining) {
+                draining = true;
+                startDrain = true;
+            }
+        }
+
+        if (overloaded) {
+            System.out.println("[Outbound] Disconnecting slow " + endpoint + " session " + session.getId()
+                    + " (backlog " + getDepth() + ")");
+            close(CloseStatus.SESSION_NOT_RELIABLE);
+        } else if (startDrain) {
+            scheduleDrain();
+        }
+    }
+
+    public synchronized int getDepth() {
+        return queue.size();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getSent() {
+        return sent.get();
+    }
+
+    public String getSessionId() {
+        return session.getId();
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    void close(CloseStatus status) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.clear();
+        }
+        try {
+            session.close(status);
+        } catch (IOException e) {
+            // Already gone.
+        }
+    }
+
+    private boolean dropOldestDroppable() {
+        Iterator<Entry> it = queue.iterator();
+        while (it.hasNext()) {
+            if (it.next().droppable) {
+                it.remove();
+                dropped.incrementAndGet();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void scheduleDrain() {
+        try {
+            sender.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                draining = false;
+            }
+        }
+    }
+
+    private void drain() {
+        for (int i = 0; i < DRAIN_BATCH; i++) {
+            Entry entry;
+            synchronized (this) {
+                entry = queue.pollFirst();
+                if (entry == null || closed) {
+                    draining = false;
+                    return;
+                }
+            }
+            try {
+                if (!session.isOpen()) {
+                    close(CloseStatus.NORMAL);
+                    return;
+                }
+                session.sendMessage(entry.message);
+                sent.incrementAndGet();
+            } catch (IOException | IllegalStateException e) {
+                close(CloseStatus.SESSION_NOT_RELIABLE);
+                return;
+            }
+        }
+        scheduleDrain();
+    }
+
+    private static class Entry {
+        private final WebSocketMessage<?> message;
+        private final boolean droppable;
+
+        Entry(WebSocketMessage<?> message, boolean droppable) {
+            this.message = message;
+            this.droppable = droppable;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.stranded.backend.handler;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * Owns the {@link OutboundQueue} of every game, chat and voice session and the
+ * sender threads that drain them: a fixed pool, or a virtual thread per drain run
+ * when spring.threads.virtual.enabled is set, so a blocked socket write holds no
+ * pool thread.
+ *
+ * Queue health is published per endpoint (game, chat, voice) as metrics under
+ * /actuator/metrics/websocket.outbound.*; nothing identifies a single session.
+ */
+@Component
+public class OutboundQueueRegistry {
+
+    private final Map<String, OutboundQueue> queues = new ConcurrentHashMap<>();
+    private final Map<String, EndpointMeters> endpoints = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService sender;
+    private final int capacity;
+    private final long backlogTimeoutMillis;
+
+    public OutboundQueueRegistry(@Value("${websocket.outbound.capacity:256}") int capacity,
+            @Value("${websocket.outbound.backlog-timeout-ms:5000}") long backlogTimeoutMillis,
+            @Value("${websocket.outbound.sender-threads:8}") int senderThreads,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.capacity = capacity;
+        this.backlogTimeoutMillis = backlogTimeoutMillis;
+        if (virtualThreads) {
+            this.sender = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ws-sender-", 1).factory());
+            return;
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(senderThreads, r -> {
+            Thread thread = new Thread(r, "ws-sender-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public OutboundQueue register(WebSocketSession session, String endpoint) {
+        OutboundQueue queue = new OutboundQueue(session, endpoint, sender, capacity, backlogTimeoutMillis);
+        endpoints.computeIfAbsent(endpoint, EndpointMeters::new);
+        queues.put(session.getId(), queue);
+        return queue;
+    }
+
+    public OutboundQueue get(WebSocketSession session) {
+        return queues.get(session.getId());
+    }
+
+    public void unregister(WebSocketSession session) {
+        OutboundQueue queue = queues.remove(session.getId());
+        if (queue != null) {
+            endpoints.get(queue.getEndpoint()).retire(queue);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+    }
+
+    // Gauges over the live queues of one endpoint. The counters add what closed sessions
+    // sent and dropped, so they keep counting up after a session goes away.
+    private class EndpointMeters {
+        private final String endpoint;
+        private final AtomicLong retiredDropped = new AtomicLong();
+        private final AtomicLong retiredSent = new AtomicLong();
+
+        EndpointMeters(String endpoint) {
+            this.endpoint = endpoint;
+            Gauge.builder("websocket.outbound.sessions", this, meters -> meters.sum(queue -> 1))
+                    .tag("endpoint", endpoint)
+                    .description("Open sessions with an outbound queue").register(meterRegistry);
+            Gauge.builder("websocket.outbound.depth", this, meters -> meters.sum(OutboundQueue::getDepth))
+                    .tag("endpoint", endpoint)
+                    .description("Frames queued across all sessions").register(meterRegistry);
+            Gauge.builder("websocket.outbound.depth.max", this, EndpointMeters::maxDepth)
+                    .tag("endpoint", endpoint)
+                    .description("Deepest single session queue").register(meterRegistry);
+            FunctionCounter.builder("websocket.outbound.dropped", this,
+                            meters -> meters.retiredDropped.get() + meters.sum(OutboundQueue::getDropped))
+                    .tag("endpoint", endpoint)
+                    .description("Droppable frames evicted from full queues").register(meterRegistry);
+            FunctionCounter.builder("websocket.outbound.sent", this,
+                            meters -> meters.retiredSent.get() + meters.sum(OutboundQueue::getSent))
+                    .tag("endpoint", endpoint)
+                    .description("Frames written to the socket").register(meterRegistry);
+        }
+
+        void retire(OutboundQueue queue) {
+            retiredDropped.addAndGet(queue.getDropped());
+            retiredSent.addAndGet(queue.getSent());
+        }
+
+        private long sum(ToLongFunction<OutboundQueue> value) {
+            long total = 0;
+            for (OutboundQueue queue : queues.values()) {
+                if (queue.getEndpoint().equals(endpoint)) {
+                    total += value.applyAsLong(queue);
+                }
+            }
+            return total;
+        }
+
+        private double maxDepth() {
+            int max = 0;
+            for (OutboundQueue queue : queues.values()) {
+                if (queue.getEndpoint().equals(endpoint)) {
+                    max = Math.max(max, queue.getDepth());
+                }
+            }
+            return max;
+        }
+    }
+}
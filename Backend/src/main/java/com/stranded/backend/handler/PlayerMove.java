@@ -0,0 +1,52 @@
+package com.stranded.backend.handler;
+
+public class PlayerMove {
+
+    private int handle;
+    private double x;
+    private double y;
+    private double velX;
+    private boolean grounded = true;
+
+    public PlayerMove() {
+    }
+
+    public PlayerMove(int handle, double x, double y, double velX, boolean grounded) {
+        this.handle = handle;
+        this.x = x;
+        this.y = y;
+        this.velX = velX;
+        this.grounded = grounded;
+    }
+
+    public void set(double x, double y, double velX, boolean grounded) {
+        this.x = x;
+        this.y = y;
+        this.velX = velX;
+        this.grounded = grounded;
+    }
+
+    public int getHandle() {
+        return handle;
+    }
+
+    public void setHandle(int handle) {
+        this.handle = handle;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getVelX() {
+        return velX;
+    }
+
+    public boolean isGrounded() {
+        return grounded;
+    }
+}
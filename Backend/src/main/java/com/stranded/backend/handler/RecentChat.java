@@ -0,0 +1,42 @@
+package com.stranded.backend.handler;
+
+import org.springframework.web.socket.TextMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The last N serialized messages of one chat channel, overwritten oldest-first.
+ * Not thread-safe: only the chat fan-out thread touches it after startup.
+ */
+class RecentChat {
+
+    private final TextMessage[] frames;
+    private int next;
+    private int size;
+
+    RecentChat(int capacity) {
+        this.frames = new TextMessage[capacity];
+    }
+
+    void add(TextMessage frame) {
+        if (frames.length == 0) {
+            return;
+        }
+        frames[next] = frame;
+        next = (next + 1) % frames.length;
+        if (size < frames.length) {
+            size++;
+        }
+    }
+
+    /** Oldest first. */
+    List<TextMessage> frames() {
+        List<TextMessage> result = new ArrayList<>(size);
+        int start = (next - size + frames.length) % Math.max(1, frames.length);
+        for (int i = 0; i < size; i++) {
+            result.add(frames[(start + i) % frames.length]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,133 @@
+package com.stranded.backend.handler;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Per-recipient record of what a client has been sent and what it has acknowledged,
+ * used to send only the fields of a player's state that changed. Owned by the room lane.
+ *
+ * A field is resent while it differs from the acknowledged baseline or from the last
+ * value sent, so a value is never assumed delivered before the client acks it. When
+ * the client falls too far behind, the tracker resets and the next frame is a full snapshot.
+ */
+class SnapshotTracker {
+
+    static final int FIELD_X = 1;
+    static final int FIELD_Y = 2;
+    static final int FIELD_VEL_X = 4;
+    static final int FIELD_GROUNDED = 8;
+    static final int ALL_FIELDS = FIELD_X | FIELD_Y | FIELD_VEL_X | FIELD_GROUNDED;
+
+    private final int maxInFlight;
+    private final Map<String, PlayerMove> acked = new HashMap<>();
+    private final Map<String, PlayerMove> sent = new HashMap<>();
+    private final ArrayDeque<SentFrame> inFlight = new ArrayDeque<>();
+    private boolean resync = true;
+
+    SnapshotTracker(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    boolean needsFullSnapshot() {
+        return resync;
+    }
+
+    void acknowledge(long seq) {
+        while (!inFlight.isEmpty() && inFlight.peekFirst().seq <= seq) {
+            acked.putAll(inFlight.pollFirst().views);
+        }
+        if (inFlight.size() >= maxInFlight) {
+            reset();
+        }
+    }
+
+    void reset() {
+        acked.clear();
+        sent.clear();
+        inFlight.clear();
+        resync = true;
+    }
+
+    void forget(String playerId) {
+        acked.remove(playerId);
+        sent.remove(playerId);
+        for (SentFrame frame : inFlight) {
+            frame.views.remove(playerId);
+        }
+    }
+
+    /** Players with sent-but-unacknowledged state; they are rechecked every tick. */
+    Set<String> unackedPlayers() {
+        Set<String> players = new HashSet<>();
+        for (SentFrame frame : inFlight) {
+            players.addAll(frame.views.keySet());
+        }
+        return players;
+    }
+
+    int changedFields(String playerId, PlayerMove current) {
+        PlayerMove base = acked.get(playerId);
+        PlayerMove last = sent.get(playerId);
+        if (base == null || last == null) {
+            return ALL_FIELDS;
+        }
+        return diff(base, current) | diff(last, current);
+    }
+
+    /** Records a sent frame; {@code fields} holds the field mask sent for each player. */
+    void recordSent(long seq, List<GamePlayer> players, int[] fields) {
+        SentFrame frame = new SentFrame(seq);
+        for (int i = 0; i < players.size(); i++) {
+            GamePlayer player = players.get(i);
+            PlayerMove previous = sent.get(player.playerId);
+            PlayerMove current = player.state;
+            int mask = previous == null ? ALL_FIELDS : fields[i];
+            PlayerMove view = new PlayerMove(
+                    current.getHandle(),
+                    (mask & FIELD_X) != 0 ? current.getX() : previous.getX(),
+                    (mask & FIELD_Y) != 0 ? current.getY() : previous.getY(),
+                    (mask & FIELD_VEL_X) != 0 ? current.getVelX() : previous.getVelX(),
+                    (mask & FIELD_GROUNDED) != 0 ? current.isGrounded() : previous.isGrounded());
+            sent.put(player.playerId, view);
+            frame.views.put(player.playerId, view);
+        }
+        inFlight.addLast(frame);
+        resync = false;
+    }
+
+    private static int diff(PlayerMove a, PlayerMove b) {
+        int mask = 0;
+        if (quantizedPosition(a.getX()) != quantizedPosition(b.getX())) {
+            mask |= FIELD_X;
+        }
+        if (quantizedPosition(a.getY()) != quantizedPosition(b.getY())) {
+            mask |= FIELD_Y;
+        }
+        if (GameBinaryCodec.quantizeShort(a.getVelX(), GameBinaryCodec.VELOCITY_SCALE)
+                != GameBinaryCodec.quantizeShort(b.getVelX(), GameBinaryCodec.VELOCITY_SCALE)) {
+            mask |= FIELD_VEL_X;
+        }
+        if (a.isGrounded() != b.isGrounded()) {
+            mask |= FIELD_GROUNDED;
+        }
+        return mask;
+    }
+
+    private static int quantizedPosition(double value) {
+        return GameBinaryCodec.quantizeInt(value, GameBinaryCodec.POSITION_SCALE);
+    }
+
+    private static class SentFrame {
+        private final long seq;
+        private final Map<String, PlayerMove> views = new HashMap<>();
+
+        SentFrame(long seq) {
+            this.seq = seq;
+        }
+    }
+}
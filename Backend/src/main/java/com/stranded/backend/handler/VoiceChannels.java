@@ -0,0 +1,54 @@
+package com.stranded.backend.handler;
+
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Membership index for /voice: peer id -> session, so a signal finds its target with one
+ * lookup, and voice channel -> members for presence. A peer is in one channel at a time;
+ * its id is its session id.
+ */
+class VoiceChannels {
+
+    private final Map<String, WebSocketSession> peers = new ConcurrentHashMap<>();
+    private final Map<String, String> channelOf = new ConcurrentHashMap<>();
+    private final Map<String, Set<WebSocketSession>> members = new ConcurrentHashMap<>();
+
+    void join(WebSocketSession session, String channel) {
+        members.computeIfAbsent(channel, c -> ConcurrentHashMap.newKeySet()).add(session);
+        channelOf.put(session.getId(), channel);
+        peers.put(session.getId(), session);
+    }
+
+    /** Returns the channel the session was in, or null. */
+    String leave(WebSocketSession session) {
+        peers.remove(session.getId());
+        String channel = channelOf.remove(session.getId());
+        if (channel != null) {
+            members.computeIfPresent(channel, (c, sessions) -> {
+                sessions.remove(session);
+                return sessions.isEmpty() ? null : sessions;
+            });
+        }
+        return channel;
+    }
+
+    String channelOf(WebSocketSession session) {
+        return channelOf.get(session.getId());
+    }
+
+    /** The peer's session if it is in the channel, otherwise null. */
+    WebSocketSession peerIn(String channel, String peerId) {
+        WebSocketSession session = peers.get(peerId);
+        return session != null && channel.equals(channelOf.get(peerId)) ? session : null;
+    }
+
+    Set<WebSocketSession> members(String channel) {
+        Set<WebSocketSession> sessions = members.get(channel);
+        return sessions != null ? sessions : Collections.emptySet();
+    }
+}
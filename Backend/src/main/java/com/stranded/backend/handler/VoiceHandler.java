@@ -1,36 +1,269 @@
 package com.stranded.backend.handler;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stranded.backend.service.ChatChannel;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
-import java.util.Collections;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * WebRTC signaling on /voice. A connection JOINs one voice channel (global, room:{id} or
+ * party:{id}) and is told its own peer id and the peers already there. Offers, answers,
+ * candidates and hangups carry a targetId and go to that peer only, found with one map
+ * lookup; the server stamps senderId. Presence is the only broadcast: joins, leaves and
+ * a hangup without a target go to the rest of the channel.
+ *
+ * Candidates come in bursts while a peer connection gathers them, so candidates for one
+ * target are held for voice.ice-batch-ms and sent as a single "candidates" frame. Any
+ * other signal to that target sends the held candidates first, keeping their order.
+ */
 @Component
 public class VoiceHandler extends TextWebSocketHandler {
 
-    private final Set<WebSocketSession> sessions = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final OutboundQueueRegistry outboundQueues;
+    private final VoiceChannels channels = new VoiceChannels();
+    // "senderId>targetId" -> candidates waiting to go out together.
+    private final Map<String, IceBatch> iceBatches = new ConcurrentHashMap<>();
+    private final long iceBatchMillis;
+    private final ScheduledExecutorService iceFlusher;
+
+    public VoiceHandler(OutboundQueueRegistry outboundQueues,
+            @Value("${voice.ice-batch-ms:20}") long iceBatchMillis) {
+        this.outboundQueues = outboundQueues;
+        this.iceBatchMillis = iceBatchMillis;
+        this.iceFlusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "voice-ice");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        sessions.add(session);
+        outboundQueues.register(session, "voice");
     }
 
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
-        for (WebSocketSession s : sessions) {
-            if (s.isOpen() && !s.getId().equals(session.getId())) {
-                s.sendMessage(message);
+        try {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> payload = objectMapper.readValue(message.getPayload(), Map.class);
+            Object type = payload.get("type");
+            if ("JOIN".equals(type)) {
+                Object channel = payload.get("channel");
+                join(session, channel != null ? channel.toString() : ChatChannel.GLOBAL);
+                return;
+            }
+            if ("LEAVE".equals(type)) {
+                leave(session);
+                return;
+            }
+
+            String channel = channels.channelOf(session);
+            if (channel == null) {
+                error(session, "NOT_JOINED");
+                return;
+            }
+            payload.put("senderId", session.getId());
+            Object targetId = payload.get("targetId");
+            if (targetId == null) {
+                if ("hangup".equals(type)) {
+                    broadcast(channel, session, objectMapper.writeValueAsString(payload));
+                } else {
+                    error(session, "NO_TARGET");
+                }
+                return;
             }
+
+            WebSocketSession target = channels.peerIn(channel, targetId.toString());
+            if (target == null) {
+                error(session, "UNKNOWN_PEER");
+            } else if ("candidate".equals(type)) {
+                queueCandidate(session, target, channel, payload);
+            } else {
+                TextMessage frame = new TextMessage(objectMapper.writeValueAsString(payload));
+                IceBatch batch = iceBatches.get(pairKey(session, target));
+                if (batch == null) {
+                    send(target, frame);
+                } else {
+                    synchronized (batch) {
+                        flush(batch);
+                        send(target, frame);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
         }
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
-        sessions.remove(session);
+        leave(session);
+        outboundQueues.unregister(session);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        iceFlusher.shutdownNow();
+    }
+
+    private void join(WebSocketSession session, String channel) throws Exception {
+        if (!ChatChannel.isJoinable(channel)) {
+            error(session, "UNKNOWN_CHANNEL");
+            return;
+        }
+        if (channel.equals(channels.channelOf(session))) {
+            return;
+        }
+        leave(session);
+        List<String> peers = new ArrayList<>();
+        for (WebSocketSession s : channels.members(channel)) {
+            peers.add(s.getId());
+        }
+        channels.join(session, channel);
+
+        Map<String, Object> welcome = new HashMap<>();
+        welcome.put("type", "PEERS");
+        welcome.put("self", session.getId());
+        welcome.put("channel", channel);
+        welcome.put("peers", peers);
+        send(session, new TextMessage(objectMapper.writeValueAsString(welcome)));
+        broadcast(channel, session, presence("join", session, channel));
+    }
+
+    private void leave(WebSocketSession session) throws Exception {
+        String channel = channels.leave(session);
+        if (channel == null) {
+            return;
+        }
+        String id = session.getId();
+        // A candidate queued concurrently finds the peer gone under the batch lock and drops itself.
+        iceBatches.entrySet().removeIf(entry -> {
+            if (!entry.getKey().startsWith(id + ">") && !entry.getKey().endsWith(">" + id)) {
+                return false;
+            }
+            IceBatch batch = entry.getValue();
+            synchronized (batch) {
+                batch.candidates.clear();
+            }
+            return true;
+        });
+        broadcast(channel, session, presence("leave", session, channel));
+    }
+
+    private void queueCandidate(WebSocketSession from, WebSocketSession to, String channel,
+            Map<String, Object> candidate) {
+        String key = pairKey(from, to);
+        IceBatch batch = iceBatches.computeIfAbsent(key, k -> new IceBatch(from, to, channel));
+        synchronized (batch) {
+            // Checked under the lock, so a leave() running now cannot miss this batch.
+            if (!batch.bothJoined(channels)) {
+                iceBatches.remove(key, batch);
+                return;
+            }
+            batch.candidates.add(candidate);
+            if (batch.candidates.size() > 1) {
+                return;
+            }
+        }
+        try {
+            iceFlusher.schedule(() -> {
+                synchronized (batch) {
+                    flush(batch);
+                }
+            }, iceBatchMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down.
+        }
+    }
+
+    // Caller holds the batch's lock. Candidates between peers that are no longer both in
+    // the channel are dropped along with the batch.
+    private void flush(IceBatch batch) {
+        if (batch.candidates.isEmpty()) {
+            return;
+        }
+        if (!batch.bothJoined(channels)) {
+            batch.candidates.clear();
+            iceBatches.remove(pairKey(batch.sender, batch.target), batch);
+            return;
+        }
+        Map<String, Object> frame = new HashMap<>();
+        frame.put("type", "candidates");
+        frame.put("senderId", batch.sender.getId());
+        frame.put("targetId", batch.target.getId());
+        frame.put("candidates", batch.candidates);
+        try {
+            send(batch.target, new TextMessage(objectMapper.writeValueAsString(frame)));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        batch.candidates.clear();
+    }
+
+    private void broadcast(String channel, WebSocketSession origin, String payload) {
+        TextMessage frame = new TextMessage(payload);
+        for (WebSocketSession s : channels.members(channel)) {
+            if (s != origin) {
+                send(s, frame);
+            }
+        }
+    }
+
+    private void send(WebSocketSession session, TextMessage frame) {
+        OutboundQueue outbound = outboundQueues.get(session);
+        if (outbound != null) {
+            outbound.send(frame);
+        }
+    }
+
+    private void error(WebSocketSession session, String reason) throws Exception {
+        send(session, new TextMessage(objectMapper.writeValueAsString(Map.of("type", "ERROR", "reason", reason))));
+    }
+
+    private static String presence(String event, WebSocketSession session, String channel) throws Exception {
+        return objectMapper.writeValueAsString(Map.of(
+                "type", "PRESENCE",
+                "event", event,
+                "peerId", session.getId(),
+                "channel", channel));
+    }
+
+    private static String pairKey(WebSocketSession from, WebSocketSession to) {
+        return from.getId() + ">" + to.getId();
+    }
+
+    private static class IceBatch {
+        private final WebSocketSession sender;
+        private final WebSocketSession target;
+        private final String channel;
+        private final List<Map<String, Object>> candidates = new ArrayList<>();
+
+        IceBatch(WebSocketSession sender, WebSocketSession target, String channel) {
+            this.sender = sender;
+            this.target = target;
+            this.channel = channel;
+        }
+
+        boolean bothJoined(VoiceChannels channels) {
+            return channel.equals(channels.channelOf(sender)) && channel.equals(channels.channelOf(target));
+        }
     }
 }
@@ -0,0 +1,45 @@
+package com.stranded.backend.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * A player's best score in one game mode, read from the user_best_scores table by
+ * {@link UserBestScoreRepository} without loading entities. {@code achievedAt} is when
+ * the player first reached that score.
+ */
+public class BestScore {
+
+    private final Long userId;
+    private final String username;
+    private final String gameMode;
+    private final int score;
+    private final LocalDateTime achievedAt;
+
+    public BestScore(Long userId, String username, String gameMode, int score, LocalDateTime achievedAt) {
+        this.userId = userId;
+        this.username = username;
+        this.gameMode = gameMode;
+        this.score = score;
+        this.achievedAt = achievedAt;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getGameMode() {
+        return gameMode;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public LocalDateTime getAchievedAt() {
+        return achievedAt;
+    }
+}
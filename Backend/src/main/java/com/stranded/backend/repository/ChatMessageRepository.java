@@ -1,7 +1,32 @@
 package com.stranded.backend.repository;
 
 import com.stranded.backend.entity.ChatMessage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
+
+    @Query("SELECT m FROM ChatMessage m WHERE m.channel = :channel ORDER BY m.timestamp DESC, m.id DESC")
+    List<ChatMessage> findLatest(@Param("channel") String channel, Pageable pageable);
+
+    // Keyset page: the messages right before (timestamp, id), newest first, straight off the index.
+    @Query("SELECT m FROM ChatMessage m WHERE m.channel = :channel "
+            + "AND (m.timestamp < :timestamp OR (m.timestamp = :timestamp AND m.id < :id)) "
+            + "ORDER BY m.timestamp DESC, m.id DESC")
+    List<ChatMessage> findBefore(@Param("channel") String channel, @Param("timestamp") LocalDateTime timestamp,
+            @Param("id") Long id, Pageable pageable);
+
+    // For a cursor that is not written yet; it is among the newest rows, so little is skipped.
+    @Query("SELECT m FROM ChatMessage m WHERE m.channel = :channel AND m.id < :id "
+            + "ORDER BY m.timestamp DESC, m.id DESC")
+    List<ChatMessage> findBeforeId(@Param("channel") String channel, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT m.timestamp FROM ChatMessage m WHERE m.id = :id")
+    Optional<LocalDateTime> findTimestampById(@Param("id") Long id);
 }
@@ -1,13 +1,34 @@
 package com.stranded.backend.repository;
 
 import com.stranded.backend.entity.Score;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface ScoreRepository extends JpaRepository<Score, Long> {
 
-    @Query("SELECT s FROM Score s ORDER BY s.finalScore DESC")
-    List<Score> findTopScores(Pageable pageable);
+    // Best score per registered player and mode since a bucket start. Only used to warm the
+    // daily and weekly boards; retention keeps scores older than a week out of this table.
+    // Keyset paging by player: pass the last user id of the previous page.
+    @Query("SELECT new com.stranded.backend.repository.BestScore(u.id, u.username, s.gameMode, s.finalScore, MIN(s.timestamp)) "
+            + "FROM Score s JOIN s.user u "
+            + "WHERE u.isGuest = false AND u.id > :afterUserId AND s.timestamp >= :since AND s.finalScore = (SELECT MAX(b.finalScore) FROM Score b "
+            + "WHERE b.user = s.user AND b.timestamp >= :since "
+            + "AND (b.gameMode = s.gameMode OR (b.gameMode IS NULL AND s.gameMode IS NULL))) "
+            + "GROUP BY u.id, u.username, s.gameMode, s.finalScore "
+            + "ORDER BY u.id, s.gameMode")
+    List<BestScore> findBestRegisteredScoresSince(@Param("since") LocalDateTime since,
+            @Param("afterUserId") long afterUserId, Pageable pageable);
+
+    @Query("SELECT new com.stranded.backend.repository.BestScore(u.id, u.username, s.gameMode, s.finalScore, MIN(s.timestamp)) "
+            + "FROM Score s JOIN s.user u "
+            + "WHERE u.id = :userId AND s.timestamp >= :since AND s.finalScore = (SELECT MAX(b.finalScore) FROM Score b "
+            + "WHERE b.user = s.user AND b.timestamp >= :since "
+            + "AND (b.gameMode = s.gameMode OR (b.gameMode IS NULL AND s.gameMode IS NULL))) "
+            + "GROUP BY u.id, u.username, s.gameMode, s.finalScore")
+    List<BestScore> findBestScoresByUserSince(@Param("userId") Long userId, @Param("since") LocalDateTime since);
 }
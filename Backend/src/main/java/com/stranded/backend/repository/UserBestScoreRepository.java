@@ -0,0 +1,30 @@
+package com.stranded.backend.repository;
+
+import com.stranded.backend.entity.UserBestScore;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface UserBestScoreRepository extends JpaRepository<UserBestScore, Long> {
+
+    @Query("SELECT b FROM UserBestScore b WHERE b.user.id IN :userIds")
+    List<UserBestScore> findByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    // Keyset paging by player: pass the last user id of the previous page.
+    @Query("SELECT new com.stranded.backend.repository.BestScore(u.id, u.username, b.gameMode, b.bestScore, b.achievedAt) "
+            + "FROM UserBestScore b JOIN b.user u WHERE u.isGuest = false AND u.id > :afterUserId "
+            + "ORDER BY u.id, b.gameMode")
+    List<BestScore> findBestRegisteredScoresAfter(@Param("afterUserId") long afterUserId, Pageable pageable);
+
+    @Query("SELECT new com.stranded.backend.repository.BestScore(u.id, u.username, b.gameMode, b.bestScore, b.achievedAt) "
+            + "FROM UserBestScore b JOIN b.user u WHERE u.id = :userId")
+    List<BestScore> findBestScoresByUser(@Param("userId") Long userId);
+
+    @Query("SELECT new com.stranded.backend.repository.BestScore(u.id, u.username, b.gameMode, b.bestScore, b.achievedAt) "
+            + "FROM UserBestScore b JOIN b.user u WHERE u.username = :username ORDER BY b.gameMode")
+    List<BestScore> findBestScoresByUsername(@Param("username") String username);
+}
@@ -0,0 +1,30 @@
+package com.stranded.backend.repository;
+
+/**
+ * The parts of a user that score and auth paths need to resolve a username, read by
+ * {@link UserRepository} without loading the entity.
+ */
+public class UserRef {
+
+    private final Long id;
+    private final String username;
+    private final boolean guest;
+
+    public UserRef(Long id, String username, boolean guest) {
+        this.id = id;
+        this.username = username;
+        this.guest = guest;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public boolean isGuest() {
+        return guest;
+    }
+}
@@ -1,9 +1,41 @@
 package com.stranded.backend.repository;
 
 import com.stranded.backend.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
+
+    @Query("SELECT new com.stranded.backend.repository.UserRef(u.id, u.username, u.isGuest) "
+            + "FROM User u WHERE u.username = :username")
+    Optional<UserRef> findRefByUsername(@Param("username") String username);
+
+    @Query("SELECT new com.stranded.backend.repository.UserRef(u.id, u.username, u.isGuest) "
+            + "FROM User u WHERE u.username IN :usernames")
+    List<UserRef> findRefsByUsernameIn(@Param("usernames") Collection<String> usernames);
+
+    // Keyset paging by id: pass the last id of the previous page.
+    @Query("SELECT new com.stranded.backend.repository.UserRef(u.id, u.username, u.isGuest) "
+            + "FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<UserRef> findRefsAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    // Guests upgraded recently enough that their old tokens have not expired yet.
+    @Query("SELECT u.upgradedFrom FROM User u WHERE u.upgradedAt > :since")
+    List<String> findGuestsUpgradedSince(@Param("since") LocalDateTime since);
+
+    // Compare-and-set on the old hash so a rehash never overwrites a newer password.
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.password = :newHash WHERE u.id = :id AND u.password = :oldHash")
+    int updatePassword(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
 }
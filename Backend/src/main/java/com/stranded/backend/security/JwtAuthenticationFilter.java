@@ -1,10 +1,14 @@
 package com.stranded.backend.security;
 
+import com.stranded.backend.service.UserDirectory;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -14,14 +18,23 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.List;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    // Granted to guest tokens. Guests have no users row until they need one.
+    public static final String GUEST_AUTHORITY = "ROLE_GUEST";
+
+    private static final List<GrantedAuthority> GUEST_AUTHORITIES =
+            List.of(new SimpleGrantedAuthority(GUEST_AUTHORITY));
+
     private final JwtUtil jwtUtil;
+    private final UserDirectory userDirectory;
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil) {
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, UserDirectory userDirectory) {
         this.jwtUtil = jwtUtil;
+        this.userDirectory = userDirectory;
     }
 
     @Override
@@ -32,9 +45,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         if (header != null && header.startsWith("Bearer ")) {
             String token = header.substring(7);
-            if (jwtUtil.validateToken(token)) {
-                String username = jwtUtil.getUsernameFromToken(token);
-                UserDetails userDetails = new User(username, "", Collections.emptyList());
+            JwtUtil.TokenClaims claims = jwtUtil.verify(token);
+            // A guest that has registered must use its new token.
+            if (claims != null && claims.isGuest() && userDirectory.isUpgradedGuest(claims.getUsername())) {
+                claims = null;
+            }
+            if (claims != null) {
+                UserDetails userDetails = new User(claims.getUsername(), "",
+                        claims.isGuest() ? GUEST_AUTHORITIES : Collections.emptyList());
 
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
@@ -47,6 +65,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    public static boolean isGuest(Authentication authentication) {
+        return authentication.getAuthorities().stream()
+                .anyMatch(authority -> GUEST_AUTHORITY.equals(authority.getAuthority()));
+    }
+
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) {
         String path = request.getServletPath();
@@ -54,7 +77,6 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 || path.startsWith("/ws")
                 || path.equals("/auth/login")
                 || path.equals("/auth/register")
-                || path.equals("/auth/guest")
-                || path.equals("/auth/upgrade");
+                || path.equals("/auth/guest");
     }
 }
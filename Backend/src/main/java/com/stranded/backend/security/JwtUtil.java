@@ -2,22 +2,66 @@ package com.stranded.backend.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtUtil {
 
+    private static final long SWEEP_INTERVAL_MS = 1000;
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 not available", e);
+        }
+    });
+
     private final SecretKey key;
     private final long expiration;
+    // Thread-safe once built; shared by every request instead of rebuilt per call.
+    private final JwtParser parser;
 
-    public JwtUtil(@Value("${jwt.secret}") String secret, @Value("${jwt.expiration}") long expiration) {
+    // Verified tokens by SHA-256 digest, each dropped once its exp has passed.
+    private final Map<String, TokenClaims> verified = new ConcurrentHashMap<>();
+    private final int cacheCapacity;
+    private volatile long nextSweepAt;
+
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final Timer verifyTimer;
+
+    public JwtUtil(@Value("${jwt.secret}") String secret, @Value("${jwt.expiration}") long expiration,
+            @Value("${jwt.cache.max-entries:10000}") int cacheCapacity, MeterRegistry meterRegistry) {
         this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
         this.expiration = expiration;
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+        this.cacheCapacity = cacheCapacity;
+
+        this.cacheHits = Counter.builder("jwt.cache.requests").tag("result", "hit")
+                .description("Token checks answered from the verified-token cache").register(meterRegistry);
+        this.cacheMisses = Counter.builder("jwt.cache.requests").tag("result", "miss")
+                .description("Token checks that needed a signature verify").register(meterRegistry);
+        this.verifyTimer = Timer.builder("jwt.verify")
+                .description("Signature verify and claims parse on a cache miss").register(meterRegistry);
+        Gauge.builder("jwt.cache.hit.ratio", this, JwtUtil::getCacheHitRatio).register(meterRegistry);
+        Gauge.builder("jwt.cache.size", verified, Map::size).register(meterRegistry);
     }
 
     public String generateToken(String username, boolean isGuest) {
@@ -30,21 +74,95 @@ public class JwtUtil {
                 .compact();
     }
 
-    public String getUsernameFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
-    }
+    /**
+     * Verifies the token and returns its claims, or null if it is invalid or expired.
+     * Tokens seen before are answered from the cache until their exp.
+     */
+    public TokenClaims verify(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        String digest = digest(token);
+        TokenClaims cached = verified.get(digest);
+        if (cached != null) {
+            if (cached.expiresAt > now) {
+                cacheHits.increment();
+                return cached;
+            }
+            verified.remove(digest, cached);
+        }
+        cacheMisses.increment();
 
-    public boolean validateToken(String token) {
+        long start = System.nanoTime();
+        TokenClaims claims;
         try {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
-            return true;
+            Claims body = parser.parseClaimsJws(token).getBody();
+            Date exp = body.getExpiration();
+            claims = new TokenClaims(body.getSubject(), Boolean.TRUE.equals(body.get("isGuest", Boolean.class)),
+                    exp == null ? Long.MAX_VALUE : exp.getTime());
         } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            return null;
+        } finally {
+            verifyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        if (verified.size() >= cacheCapacity) {
+            sweepExpired(now);
+        }
+        // Still full of live tokens: verify this one every time rather than grow past the bound.
+        if (verified.size() < cacheCapacity) {
+            verified.put(digest, claims);
+        }
+        return claims;
+    }
+
+    public double getCacheHitRatio() {
+        double hits = cacheHits.count();
+        double total = hits + cacheMisses.count();
+        return total == 0 ? 0 : hits / total;
+    }
+
+    private void sweepExpired(long now) {
+        // A full cache of unexpired tokens would otherwise be rescanned on every miss.
+        if (now < nextSweepAt) {
+            return;
+        }
+        nextSweepAt = now + SWEEP_INTERVAL_MS;
+        Iterator<TokenClaims> entries = verified.values().iterator();
+        while (entries.hasNext()) {
+            if (entries.next().expiresAt <= now) {
+                entries.remove();
+            }
+        }
+    }
+
+    private static String digest(String token) {
+        MessageDigest sha256 = SHA_256.get();
+        return Base64.getEncoder().encodeToString(sha256.digest(token.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    public static class TokenClaims {
+        private final String username;
+        private final boolean guest;
+        private final long expiresAt;
+
+        TokenClaims(String username, boolean guest, long expiresAt) {
+            this.username = username;
+            this.guest = guest;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public boolean isGuest() {
+            return guest;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
         }
     }
 }
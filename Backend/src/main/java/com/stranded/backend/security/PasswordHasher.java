@@ -0,0 +1,116 @@
+package com.stranded.backend.security;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs BCrypt on a small fixed pool instead of request threads. Once the pool and its
+ * queue are full, new work is rejected straight away with {@link SaturatedException},
+ * so a login burst cannot tie up every Tomcat worker. The pool stays on platform
+ * threads in virtual-thread mode too: BCrypt never blocks, it would only occupy carriers.
+ */
+@Component
+public class PasswordHasher {
+
+    private final PasswordEncoder passwordEncoder;
+    private final int strength;
+    private final ThreadPoolExecutor executor;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder,
+            @Value("${auth.bcrypt.strength:10}") int strength,
+            @Value("${auth.bcrypt.threads:0}") int threads,
+            @Value("${auth.bcrypt.queue-limit:64}") int queueLimit) {
+        this.passwordEncoder = passwordEncoder;
+        this.strength = strength;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueLimit), r -> {
+                    Thread thread = new Thread(r, "bcrypt-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public String encode(String rawPassword) {
+        return await(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return await(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /** True if the hash was made with a different work factor than the configured one. */
+    public boolean needsRehash(String encodedPassword) {
+        // "$2a$10$...": the cost sits between the second and third '$'.
+        if (encodedPassword == null || !encodedPassword.startsWith("$2")) {
+            return false;
+        }
+        int start = encodedPassword.indexOf('$', 1) + 1;
+        int end = encodedPassword.indexOf('$', start);
+        if (start <= 0 || end < 0) {
+            return false;
+        }
+        try {
+            return Integer.parseInt(encodedPassword.substring(start, end)) != strength;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /** Hashes in the background and hands the result over; skipped if the pool is busy. */
+    public void rehashLater(String rawPassword, Consumer<String> onHashed) {
+        try {
+            executor.execute(() -> {
+                try {
+                    onHashed.accept(passwordEncoder.encode(rawPassword));
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Not urgent: the next successful login tries again.
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T await(Callable<T> task) {
+        Future<T> result;
+        try {
+            result = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new SaturatedException();
+        }
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Password hashing failed", e.getCause());
+        }
+    }
+
+    public static class SaturatedException extends RuntimeException {
+        public SaturatedException() {
+            super("Server is busy, try again shortly");
+        }
+    }
+}
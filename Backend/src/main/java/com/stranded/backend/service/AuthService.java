@@ -1,96 +1,149 @@
 package com.stranded.backend.service;
 
 import com.stranded.backend.entity.User;
+import com.stranded.backend.repository.UserRef;
 import com.stranded.backend.repository.UserRepository;
 import com.stranded.backend.security.JwtUtil;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import com.stranded.backend.security.PasswordHasher;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Optional;
 import java.util.UUID;
 
+// Not @Transactional as a whole: BCrypt runs on PasswordHasher's pool and a request
+// waiting on it should not hold a database connection. Each save is its own transaction.
 @Service
-@Transactional
 public class AuthService {
 
+    public static final String GUEST_PREFIX = "Guest_";
+    private static final long GUEST_SCORE_WAIT_MILLIS = 5000;
+
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final UserDirectory userDirectory;
+    private final PasswordHasher passwordHasher;
     private final JwtUtil jwtUtil;
+    private final LeaderboardService leaderboardService;
+    private final ScoreIngestQueue scoreIngestQueue;
 
-    public AuthService(UserRepository userRepository, PasswordEncoder passwordEncoder, JwtUtil jwtUtil) {
+    public AuthService(UserRepository userRepository, UserDirectory userDirectory, PasswordHasher passwordHasher,
+            JwtUtil jwtUtil, LeaderboardService leaderboardService, ScoreIngestQueue scoreIngestQueue) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.userDirectory = userDirectory;
+        this.passwordHasher = passwordHasher;
         this.jwtUtil = jwtUtil;
+        this.leaderboardService = leaderboardService;
+        this.scoreIngestQueue = scoreIngestQueue;
     }
 
     public String register(String username, String password) {
         System.out.println("[AuthService] Attempting to register user: " + username);
-        if (userRepository.findByUsername(username).isPresent()) {
+        checkNotGuestName(username);
+        if (userDirectory.exists(username)) {
             System.out.println("[AuthService] Username already exists: " + username);
             throw new RuntimeException("Username already exists");
         }
         User user = new User();
         user.setUsername(username);
-        user.setPassword(passwordEncoder.encode(password));
+        user.setPassword(passwordHasher.encode(password));
         user.setGuest(false);
         userRepository.save(user);
+        userDirectory.saved(user);
         System.out.println("[AuthService] User registered successfully: " + username);
-        System.out.println("[AuthService] Total users in DB: " + userRepository.count());
         return jwtUtil.generateToken(username, false);
     }
 
     public String login(String username, String password) {
         System.out.println("[AuthService] Attempting to login user: " + username);
-        System.out.println("[AuthService] Total users in DB: " + userRepository.count());
-
-        userRepository.findAll().forEach(
-                u -> System.out.println("[AuthService] DB User: " + u.getUsername() + " (guest=" + u.isGuest() + ")"));
 
-        User user = userRepository.findByUsername(username)
+        // The Bloom filter turns most unknown names away without a query.
+        Optional<User> found = userDirectory.mightExist(username)
+                ? userRepository.findByUsername(username) : Optional.empty();
+        User user = found
                 .orElseThrow(() -> {
                     System.out.println("[AuthService] User NOT found: " + username);
                     return new RuntimeException("User not found");
                 });
 
-        if (!passwordEncoder.matches(password, user.getPassword())) {
+        if (!passwordHasher.matches(password, user.getPassword())) {
             System.out.println("[AuthService] Invalid password for: " + username);
             throw new RuntimeException("Invalid credentials");
         }
 
+        if (passwordHasher.needsRehash(user.getPassword())) {
+            // Work factor changed: store a fresh hash unless the password changed meanwhile.
+            String oldHash = user.getPassword();
+            Long userId = user.getId();
+            passwordHasher.rehashLater(password, newHash -> userRepository.updatePassword(userId, oldHash, newHash));
+        }
+
         System.out.println("[AuthService] Login successful for: " + username);
         return jwtUtil.generateToken(username, false);
     }
 
+    /**
+     * Issues a guest token without touching the database. The guest's users row is
+     * created on first need: when a score is written or the guest upgrades.
+     */
     public GuestLoginResult guestLogin() {
-        String username = "Guest_" + UUID.randomUUID().toString().substring(0, 8);
-        User user = new User();
-        user.setUsername(username);
-        user.setGuest(true);
-        userRepository.save(user);
+        // No unique index guards guest names any more, so use enough random bits to not collide.
+        String username = GUEST_PREFIX + UUID.randomUUID().toString().replace("-", "").substring(0, 12);
         String token = jwtUtil.generateToken(username, true);
         return new GuestLoginResult(token, username);
     }
 
-    public String upgradeGuest(String currentUsername, String newUsername, String newPassword) {
-        User user = userRepository.findByUsername(currentUsername)
-                .orElseThrow(() -> new RuntimeException("Guest user not found"));
-
-        if (!user.isGuest()) {
+    public String upgradeGuest(String currentUsername, boolean guestToken, String newUsername, String newPassword) {
+        // A queued score may still create the guest's row; let it land so it is renamed with the rest.
+        awaitQueuedScores(currentUsername);
+        UserRef current = userDirectory.find(currentUsername);
+        User user = current == null ? null : userRepository.findById(current.getId()).orElse(null);
+        if (user == null) {
+            if (!guestToken) {
+                throw new RuntimeException("Guest user not found");
+            }
+            // Guest that never scored: nothing stored yet, so register them directly.
+            user = new User();
+        } else if (!user.isGuest()) {
             throw new RuntimeException("User is already registered");
         }
 
-        if (userRepository.findByUsername(newUsername).isPresent()) {
+        checkNotGuestName(newUsername);
+        if (userDirectory.exists(newUsername)) {
             throw new RuntimeException("Username already exists");
         }
 
         user.setUsername(newUsername);
-        user.setPassword(passwordEncoder.encode(newPassword));
+        user.setPassword(passwordHasher.encode(newPassword));
         user.setGuest(false);
+        user.setUpgradedFrom(currentUsername);
+        user.setUpgradedAt(LocalDateTime.now());
         userRepository.save(user);
+        // Refuse the guest token from now on; scores sent with it would recreate the guest.
+        userDirectory.upgraded(currentUsername, user);
+        // Scores earned as a guest start counting once the account is registered.
+        leaderboardService.reloadPlayer(user);
 
         return jwtUtil.generateToken(newUsername, false);
     }
 
+    private void awaitQueuedScores(String guestName) {
+        try {
+            if (!scoreIngestQueue.awaitGuestScores(guestName, GUEST_SCORE_WAIT_MILLIS)) {
+                throw new RuntimeException("Scores are still being saved, try again shortly");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while saving scores", e);
+        }
+    }
+
+    // Guest names are only reserved by their token, so registered users may not take them.
+    private static void checkNotGuestName(String username) {
+        if (username == null || username.regionMatches(true, 0, GUEST_PREFIX, 0, GUEST_PREFIX.length())) {
+            throw new RuntimeException("Username is reserved for guests");
+        }
+    }
+
     public static class GuestLoginResult {
         private final String token;
         private final String username;
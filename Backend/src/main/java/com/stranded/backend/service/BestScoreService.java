@@ -0,0 +1,156 @@
+package com.stranded.backend.service;
+
+import com.stranded.backend.entity.Score;
+import com.stranded.backend.entity.UserBestScore;
+import com.stranded.backend.repository.BestScore;
+import com.stranded.backend.repository.UserBestScoreRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The user_best_scores read model: one row per player and game mode holding their
+ * best score. The score writer updates it in the same transaction as the scores it
+ * inserts, and only when a score beats the stored best.
+ *
+ * Start with {@code --scores.best.rebuild-on-startup=true} to rebuild it from the
+ * scores table. It is also rebuilt automatically when empty while scores exist. Once
+ * {@link ScoreRetentionJob} has compacted old scores, this table is the only record
+ * of them.
+ */
+@Service
+public class BestScoreService {
+
+    private static final String MODE_KEY = "CASE WHEN game_mode IS NULL OR TRIM(game_mode) = '' THEN '"
+            + LeaderboardService.DEFAULT_MODE + "' ELSE game_mode END";
+
+    // Best score per (user, mode) among the scores matching FILTER, merged into the table.
+    // Existing rows are only ever raised: history compacted out of scores lives only here.
+    private static final String MERGE_SQL = "MERGE INTO user_best_scores t USING ("
+            + "SELECT s.user_id, s.mode, s.final_score, MIN(s.timestamp) AS achieved_at "
+            + "FROM (SELECT user_id, " + MODE_KEY + " AS mode, final_score, timestamp FROM scores WHERE FILTER) s "
+            + "JOIN (SELECT user_id, " + MODE_KEY + " AS mode, MAX(final_score) AS best FROM scores WHERE FILTER "
+            + "GROUP BY user_id, " + MODE_KEY + ") b "
+            + "ON b.user_id = s.user_id AND b.mode = s.mode AND b.best = s.final_score "
+            + "GROUP BY s.user_id, s.mode, s.final_score) n "
+            + "ON (t.user_id = n.user_id AND t.game_mode = n.mode) "
+            + "WHEN MATCHED AND n.final_score > t.best_score THEN "
+            + "UPDATE SET best_score = n.final_score, achieved_at = n.achieved_at "
+            + "WHEN NOT MATCHED THEN INSERT (user_id, game_mode, best_score, achieved_at) "
+            + "VALUES (n.user_id, n.mode, n.final_score, n.achieved_at)";
+
+    private final UserBestScoreRepository bestScoreRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean rebuildOnStartup;
+
+    public BestScoreService(UserBestScoreRepository bestScoreRepository, JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${scores.best.rebuild-on-startup:false}") boolean rebuildOnStartup) {
+        this.bestScoreRepository = bestScoreRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rebuildOnStartup = rebuildOnStartup;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (rebuildOnStartup || (bestScoreRepository.count() == 0 && hasScores())) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Recomputes bests from every stored score and merges them in. Rows are raised or
+     * added but never lowered or dropped, because scores compacted by the retention job
+     * are only represented here.
+     */
+    public int rebuild() {
+        long start = System.currentTimeMillis();
+        Integer rows = transactionTemplate.execute(status -> jdbcTemplate.update(MERGE_SQL.replace("FILTER", "1 = 1")));
+        System.out.println("[BestScoreService] Rebuilt " + rows + " best scores in "
+                + (System.currentTimeMillis() - start) + " ms");
+        return rows == null ? 0 : rows;
+    }
+
+    /**
+     * Merges the bests among scores older than {@code cutoff} with ids up to {@code maxId},
+     * so they can be deleted. Must run inside the transaction that deletes them.
+     */
+    public int foldScoresBefore(LocalDateTime cutoff, long maxId) {
+        return jdbcTemplate.update(MERGE_SQL.replace("FILTER", "timestamp < ? AND id <= ?"),
+                cutoff, maxId, cutoff, maxId);
+    }
+
+    /**
+     * Folds newly saved scores into the read model. Must run inside the transaction that
+     * saved them; rows are only written for scores that beat the stored best.
+     */
+    public void recordScores(List<Score> scores) {
+        Map<String, Score> candidates = new HashMap<>();
+        Set<Long> userIds = new HashSet<>();
+        for (Score score : scores) {
+            // Strictly greater keeps the earliest score on ties, matching achievedAt.
+            candidates.merge(key(score.getUser().getId(), score.getGameMode()), score,
+                    (current, next) -> next.getFinalScore() > current.getFinalScore() ? next : current);
+            userIds.add(score.getUser().getId());
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        Map<String, UserBestScore> stored = new HashMap<>();
+        for (UserBestScore best : bestScoreRepository.findByUserIds(userIds)) {
+            stored.put(key(best.getUser().getId(), best.getGameMode()), best);
+        }
+
+        List<UserBestScore> created = new ArrayList<>();
+        for (Map.Entry<String, Score> candidate : candidates.entrySet()) {
+            Score score = candidate.getValue();
+            UserBestScore best = stored.get(candidate.getKey());
+            if (best == null) {
+                created.add(new UserBestScore(score.getUser(), LeaderboardService.modeKey(score.getGameMode()),
+                        score.getFinalScore(), score.getTimestamp()));
+            } else if (score.getFinalScore() > best.getBestScore()) {
+                // Managed entity: flushed with the surrounding transaction.
+                best.setBestScore(score.getFinalScore());
+                best.setAchievedAt(score.getTimestamp());
+            }
+        }
+        bestScoreRepository.saveAll(created);
+    }
+
+    public List<BestScore> getBestScores(String username) {
+        return bestScoreRepository.findBestScoresByUsername(username);
+    }
+
+    public List<BestScore> getBestScores(Long userId) {
+        return bestScoreRepository.findBestScoresByUser(userId);
+    }
+
+    /** Registered players' best scores, ordered by user id, for users after afterUserId. */
+    public List<BestScore> getRegisteredBestScores(long afterUserId, int limit) {
+        return bestScoreRepository.findBestRegisteredScoresAfter(afterUserId, PageRequest.of(0, limit));
+    }
+
+    private boolean hasScores() {
+        Integer found = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (SELECT 1 FROM scores LIMIT 1) s", Integer.class);
+        return found != null && found > 0;
+    }
+
+    private static String key(Long userId, String gameMode) {
+        return userId + ":" + LeaderboardService.modeKey(gameMode);
+    }
+}
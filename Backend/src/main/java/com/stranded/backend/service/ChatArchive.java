@@ -0,0 +1,321 @@
+package com.stranded.backend.service;
+
+import com.stranded.backend.entity.ChatMessage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves chat older than the retention window out of chat_messages into compressed
+ * {@link ChatSegment} files on disk, a segment per chunk of rows; a chunk's rows are
+ * deleted only once its segment is on disk. A compaction pass afterwards merges runs of
+ * small segments so the directory stays at a few large files. History reads continue into the
+ * segments, newest first, once the table runs out.
+ *
+ * Segments are immutable, so readers work on a snapshot of the segment list while the
+ * archiver thread writes and compacts. A merge is written as a new segment before its
+ * inputs are deleted; an input left behind by a crash in between lies inside the merged
+ * segment's ranges and is deleted on open.
+ */
+@Component
+public class ChatArchive {
+
+    private static final String SELECT_CHUNK_SQL = "SELECT id, channel, sender, content, timestamp "
+            + "FROM chat_messages WHERE timestamp < ? ORDER BY timestamp, id LIMIT ?";
+    private static final String DELETE_SQL = "DELETE FROM chat_messages WHERE id = ?";
+    private static final String SEGMENT_PREFIX = "chat-";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Path directory;
+    private final long retainDays;
+    private final long intervalMinutes;
+    private final int chunkSize;
+    private final int blockMessages;
+    private final long segmentTargetBytes;
+    private final ScheduledExecutorService archiveExecutor;
+
+    // Oldest first; replaced, never modified.
+    private volatile List<ChatSegment> segments = List.of();
+    private long nextSequence = 1;
+
+    public ChatArchive(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            @Value("${chat.archive.enabled:true}") boolean enabled,
+            @Value("${chat.archive.dir:./data/chat-archive}") String directory,
+            @Value("${chat.archive.retain-days:7}") long retainDays,
+            @Value("${chat.archive.interval-minutes:60}") long intervalMinutes,
+            @Value("${chat.archive.chunk-size:5000}") int chunkSize,
+            @Value("${chat.archive.block-messages:256}") int blockMessages,
+            @Value("${chat.archive.segment-target-bytes:8388608}") long segmentTargetBytes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.retainDays = retainDays;
+        this.intervalMinutes = intervalMinutes;
+        this.chunkSize = chunkSize;
+        this.blockMessages = blockMessages;
+        this.segmentTargetBytes = segmentTargetBytes;
+        this.archiveExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "chat-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            if (!enabled) {
+                return;
+            }
+            Files.createDirectories(directory);
+        }
+        List<ChatSegment> opened = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    // Left over from a write that never finished.
+                    Files.delete(file);
+                } else if (name.endsWith(ChatSegment.SUFFIX)) {
+                    nextSequence = Math.max(nextSequence, sequenceOf(file) + 1);
+                    try {
+                        opened.add(ChatSegment.open(file));
+                    } catch (IOException e) {
+                        // History from that file is unavailable, but chat keeps working.
+                        System.out.println("[ChatArchive] Skipping unreadable segment: " + e.getMessage());
+                    }
+                }
+            }
+        }
+        opened = dropMergedInputs(opened);
+        // Merged segments take new numbers, so order by content rather than by name.
+        opened.sort(Comparator.comparingLong(ChatSegment::minMicros).thenComparingLong(ChatSegment::minId)
+                .thenComparingLong(segment -> sequenceOf(segment.getPath())));
+        segments = Collections.unmodifiableList(opened);
+        if (!opened.isEmpty()) {
+            removeArchivedRows(opened.get(opened.size() - 1));
+        }
+        System.out.println("[ChatArchive] Opened " + opened.size() + " segments in " + directory);
+
+        if (enabled) {
+            archiveExecutor.scheduleWithFixedDelay(this::run, 1, intervalMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    /** Moves every message older than the retention window to a new segment; returns how many. */
+    public int rollOut() throws IOException {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retainDays);
+        long start = System.currentTimeMillis();
+        int total = 0;
+        List<ChatMessage> chunk;
+        do {
+            chunk = jdbcTemplate.query(SELECT_CHUNK_SQL, (rs, rowNum) -> {
+                ChatMessage message = new ChatMessage();
+                message.setId(rs.getLong("id"));
+                message.setChannel(rs.getString("channel"));
+                message.setSender(rs.getString("sender"));
+                message.setContent(rs.getString("content"));
+                message.setTimestamp(rs.getTimestamp("timestamp").toLocalDateTime());
+                return message;
+            }, cutoff, chunkSize);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            ChatSegment segment = ChatSegment.write(directory.resolve(segmentName(nextSequence++)), chunk,
+                    blockMessages);
+            replace(List.of(), segment);
+            try {
+                deleteRows(chunk);
+            } catch (RuntimeException e) {
+                // Keep the rows and drop the segment, so the next run archives them exactly once.
+                replace(List.of(segment), null);
+                Files.deleteIfExists(segment.getPath());
+                throw e;
+            }
+            total += chunk.size();
+        } while (chunk.size() == chunkSize);
+
+        if (total > 0) {
+            System.out.println("[ChatArchive] Archived " + total + " messages older than " + cutoff + " in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        }
+        return total;
+    }
+
+    /**
+     * Merges each run of neighbouring segments that are under half the target size into
+     * one segment of up to the target size; returns how many segments were merged away.
+     */
+    public int compact() throws IOException {
+        List<ChatSegment> current = segments;
+        int merged = 0;
+        int i = 0;
+        while (i < current.size()) {
+            List<ChatSegment> run = new ArrayList<>();
+            long bytes = 0;
+            while (i < current.size() && current.get(i).size() < segmentTargetBytes / 2
+                    && bytes + current.get(i).size() <= segmentTargetBytes) {
+                bytes += current.get(i).size();
+                run.add(current.get(i++));
+            }
+            if (run.size() < 2) {
+                i += run.isEmpty() ? 1 : 0;
+                continue;
+            }
+            List<ChatMessage> messages = new ArrayList<>();
+            for (ChatSegment segment : run) {
+                messages.addAll(segment.readAll());
+            }
+            // A new name, so every input stays intact until the merged segment is on disk.
+            ChatSegment combined = ChatSegment.write(directory.resolve(segmentName(nextSequence++)), messages,
+                    blockMessages);
+            replace(run, combined);
+            for (ChatSegment segment : run) {
+                Files.deleteIfExists(segment.getPath());
+            }
+            merged += run.size() - 1;
+        }
+        if (merged > 0) {
+            System.out.println("[ChatArchive] Compacted " + merged + " small segments");
+        }
+        return merged;
+    }
+
+    /**
+     * Adds archived messages of the channel that sort before (timestamp, id) to {@code out},
+     * newest first, until it holds {@code limit}. A null timestamp compares by id alone.
+     */
+    public void readBefore(String channel, LocalDateTime timestamp, long id, int limit, List<ChatMessage> out) {
+        List<ChatSegment> snapshot = segments;
+        try {
+            for (int i = snapshot.size() - 1; i >= 0 && out.size() < limit; i--) {
+                snapshot.get(i).readBefore(channel, timestamp, id, limit, out);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read chat archive", e);
+        }
+    }
+
+    /** The timestamp of an archived message, or null if it is not in the archive. */
+    public LocalDateTime timestampOf(long id) {
+        List<ChatSegment> snapshot = segments;
+        try {
+            for (int i = snapshot.size() - 1; i >= 0; i--) {
+                LocalDateTime timestamp = snapshot.get(i).timestampOf(id);
+                if (timestamp != null) {
+                    return timestamp;
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read chat archive", e);
+        }
+        return null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        archiveExecutor.shutdownNow();
+    }
+
+    private void run() {
+        try {
+            rollOut();
+            compact();
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void deleteRows(List<ChatMessage> messages) {
+        List<Object[]> ids = new ArrayList<>(messages.size());
+        for (ChatMessage message : messages) {
+            ids.add(new Object[] { message.getId() });
+        }
+        transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(DELETE_SQL, ids));
+    }
+
+    // A crash between writing a merged segment and deleting its inputs leaves both on disk.
+    // An input is covered by the merge and holds fewer messages; segments from separate
+    // roll-outs never overlap, so nothing else is covered.
+    private static List<ChatSegment> dropMergedInputs(List<ChatSegment> opened) throws IOException {
+        List<ChatSegment> kept = new ArrayList<>();
+        for (ChatSegment segment : opened) {
+            boolean merged = false;
+            for (ChatSegment other : opened) {
+                if (other != segment && other.covers(segment) && (other.messageCount() > segment.messageCount()
+                        || (other.messageCount() == segment.messageCount()
+                                && sequenceOf(other.getPath()) > sequenceOf(segment.getPath())))) {
+                    merged = true;
+                    break;
+                }
+            }
+            if (merged) {
+                System.out.println("[ChatArchive] Deleting " + segment.getPath().getFileName()
+                        + ", already merged into a newer segment");
+                Files.delete(segment.getPath());
+            } else {
+                kept.add(segment);
+            }
+        }
+        return kept;
+    }
+
+    // A crash between writing a segment and deleting its rows leaves them in both places.
+    private void removeArchivedRows(ChatSegment newest) throws IOException {
+        Long minRowId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM chat_messages", Long.class);
+        if (minRowId == null || minRowId > newest.maxId()) {
+            return;
+        }
+        List<Object[]> ids = new ArrayList<>();
+        for (long id : newest.ids()) {
+            ids.add(new Object[] { id });
+        }
+        transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(DELETE_SQL, ids));
+        System.out.println("[ChatArchive] Removed rows already archived in " + newest.getPath().getFileName());
+    }
+
+    // Swaps the removed segments for the added one (null for none) in a new segment list.
+    private synchronized void replace(List<ChatSegment> removed, ChatSegment added) {
+        List<ChatSegment> next = new ArrayList<>(segments);
+        int index = removed.isEmpty() ? next.size() : next.indexOf(removed.get(0));
+        next.removeAll(removed);
+        if (added != null) {
+            next.add(Math.min(index, next.size()), added);
+        }
+        segments = Collections.unmodifiableList(next);
+    }
+
+    private static String segmentName(long sequence) {
+        return String.format("%s%012d%s", SEGMENT_PREFIX, sequence, ChatSegment.SUFFIX);
+    }
+
+    private static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - ChatSegment.SUFFIX.length()));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.stranded.backend.service;
+
+import java.util.regex.Pattern;
+
+/**
+ * Chat channel names: "global", "room:<id>" and "party:<id>" are joined by name;
+ * "whisper" addresses a single user by username and is never joined.
+ */
+public final class ChatChannel {
+
+    public static final String GLOBAL = "global";
+    public static final String WHISPER = "whisper";
+    public static final String ROOM_PREFIX = "room:";
+    public static final String PARTY_PREFIX = "party:";
+
+    private static final Pattern ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private ChatChannel() {
+    }
+
+    /** True for channels that can be joined: global, room:<id> and party:<id>. */
+    public static boolean isJoinable(String channel) {
+        if (channel == null) {
+            return false;
+        }
+        if (channel.equals(GLOBAL)) {
+            return true;
+        }
+        String prefix = channel.startsWith(ROOM_PREFIX) ? ROOM_PREFIX
+                : channel.startsWith(PARTY_PREFIX) ? PARTY_PREFIX : null;
+        return prefix != null && ID.matcher(channel.substring(prefix.length())).matches();
+    }
+
+    /** "global", "room", "party" or "whisper"; rate caps are configured per kind. */
+    public static String kind(String channel) {
+        int colon = channel.indexOf(':');
+        return colon < 0 ? channel : channel.substring(0, colon);
+    }
+
+    /** Where a whisper to the user is stored. */
+    public static String whisperTo(String username) {
+        return WHISPER + ":" + username;
+    }
+}
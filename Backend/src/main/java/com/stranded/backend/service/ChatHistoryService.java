@@ -0,0 +1,76 @@
+package com.stranded.backend.service;
+
+import com.stranded.backend.entity.ChatMessage;
+import com.stranded.backend.repository.ChatMessageRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Stored chat history, read a page at a time with an id cursor. The most recent
+ * messages are also kept in memory by the chat handler; this is for scrolling back.
+ * Pages start in chat_messages and continue into the {@link ChatArchive} once the
+ * table has nothing older.
+ */
+@Service
+public class ChatHistoryService {
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final ChatArchive chatArchive;
+
+    public ChatHistoryService(ChatMessageRepository chatMessageRepository, ChatArchive chatArchive) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.chatArchive = chatArchive;
+    }
+
+    /** The channel's newest messages in chat_messages, oldest first. */
+    public List<ChatMessage> getLatest(String channel, int limit) {
+        return oldestFirst(chatMessageRepository.findLatest(channel, PageRequest.of(0, limit)));
+    }
+
+    /**
+     * Up to {@code limit} messages of the channel older than message {@code before}, oldest
+     * first, or the newest messages when {@code before} is null. The first message's id is
+     * the cursor for the page before it.
+     */
+    public List<ChatMessage> getHistory(String channel, Long before, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        LocalDateTime timestamp = null;
+        List<ChatMessage> newestFirst;
+        if (before == null) {
+            newestFirst = chatMessageRepository.findLatest(channel, page);
+        } else {
+            timestamp = chatMessageRepository.findTimestampById(before).orElse(null);
+            if (timestamp == null) {
+                timestamp = chatArchive.timestampOf(before);
+            }
+            // Messages are written shortly after they are broadcast, so a fresh cursor may not be stored yet.
+            newestFirst = timestamp != null
+                    ? chatMessageRepository.findBefore(channel, timestamp, before, page)
+                    : chatMessageRepository.findBeforeId(channel, before, page);
+        }
+
+        if (newestFirst.size() < limit) {
+            // The table has nothing older; carry on from its oldest message into the archive.
+            List<ChatMessage> messages = new ArrayList<>(newestFirst);
+            if (messages.isEmpty()) {
+                chatArchive.readBefore(channel, timestamp, before != null ? before : Long.MAX_VALUE, limit, messages);
+            } else {
+                ChatMessage oldest = messages.get(messages.size() - 1);
+                chatArchive.readBefore(channel, oldest.getTimestamp(), oldest.getId(), limit, messages);
+            }
+            newestFirst = messages;
+        }
+        return oldestFirst(newestFirst);
+    }
+
+    private static List<ChatMessage> oldestFirst(List<ChatMessage> newestFirst) {
+        List<ChatMessage> messages = new ArrayList<>(newestFirst);
+        Collections.reverse(messages);
+        return messages;
+    }
+}
@@ -0,0 +1,153 @@
+package com.stranded.backend.service;
+
+import com.stranded.backend.entity.ChatMessage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind stage for chat messages. Messages get their id here up front, are
+ * broadcast by the caller, and are written by a single writer thread in JDBC batches,
+ * one transaction per batch. A full queue rejects new messages instead of blocking
+ * WebSocket threads. Pending messages are flushed on shutdown.
+ */
+@Component
+public class ChatMessageWriter {
+
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+    private static final String INSERT_SQL =
+            "INSERT INTO chat_messages (id, channel, sender, content, timestamp) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final BlockingQueue<ChatMessage> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // Current block of ids taken from the sequence.
+    private long nextId;
+    private long blockEnd;
+
+    public ChatMessageWriter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            @Value("${chat.persist.capacity:10000}") int capacity,
+            @Value("${chat.persist.batch-size:200}") int batchSize,
+            @Value("${chat.persist.flush-interval-ms:200}") long flushIntervalMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.writer = new Thread(this::drain, "chat-writer");
+        this.writer.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        createIdSequence();
+        // Messages from before channels existed were all global chat.
+        jdbcTemplate.update("UPDATE chat_messages SET channel = ? WHERE channel IS NULL", ChatChannel.GLOBAL);
+        writer.start();
+    }
+
+    /** Hands out the next message id, taking a new block from the sequence when needed. */
+    public synchronized long nextId() {
+        if (nextId >= blockEnd) {
+            Long start = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + ChatMessage.ID_SEQUENCE, Long.class);
+            if (start == null) {
+                throw new RuntimeException("Chat id sequence returned no value");
+            }
+            nextId = start;
+            blockEnd = start + ChatMessage.ID_BLOCK_SIZE;
+        }
+        return nextId++;
+    }
+
+    /** Queues a message that already has its id; returns false when the queue is full or shutting down. */
+    public boolean offer(ChatMessage message) {
+        return running && queue.offer(message);
+    }
+
+    public int getDepth() {
+        return queue.size();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        List<ChatMessage> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (int i = 0; i < remaining.size(); i += batchSize) {
+            write(remaining.subList(i, Math.min(remaining.size(), i + batchSize)));
+        }
+        System.out.println("[ChatMessageWriter] Flushed on shutdown (" + remaining.size() + " left in queue)");
+    }
+
+    private void drain() {
+        List<ChatMessage> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                ChatMessage first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<ChatMessage> batch) {
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        for (ChatMessage message : batch) {
+            rows.add(new Object[] { message.getId(), message.getChannel(), message.getSender(),
+                    message.getContent(), message.getTimestamp() });
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(INSERT_SQL, rows));
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= MAX_WRITE_ATTEMPTS) {
+                    System.out.println("[ChatMessageWriter] Dropping " + batch.size() + " messages after "
+                            + attempt + " attempts: " + e.getMessage());
+                    e.printStackTrace();
+                    return;
+                }
+                try {
+                    Thread.sleep(attempt * 200L);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    // Chat messages used to take IDENTITY ids; start the sequence past any stored ones.
+    private void createIdSequence() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM chat_messages", Long.class);
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + ChatMessage.ID_SEQUENCE + " START WITH "
+                + ((maxId == null ? 0 : maxId) + 1) + " INCREMENT BY " + ChatMessage.ID_BLOCK_SIZE);
+    }
+}
@@ -0,0 +1,80 @@
+package com.stranded.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-channel message rate caps, checked before a chat message reaches fan-out. Each
+ * channel (and each whisperer, for whispers) has a token bucket that refills at its
+ * kind's rate and holds up to one second of burst. Messages over the cap are shed.
+ */
+@Component
+public class ChatRateLimiter {
+
+    // Idle buckets are dropped once this many exist; an idle bucket is simply full.
+    private static final int SWEEP_THRESHOLD = 10000;
+    private static final long IDLE_NANOS = 60_000_000_000L;
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Map<String, Double> ratePerSecond;
+
+    public ChatRateLimiter(@Value("${chat.rate.global-per-second:20}") double globalRate,
+            @Value("${chat.rate.room-per-second:10}") double roomRate,
+            @Value("${chat.rate.party-per-second:10}") double partyRate,
+            @Value("${chat.rate.whisper-per-second:2}") double whisperRate) {
+        this.ratePerSecond = Map.of(
+                ChatChannel.GLOBAL, globalRate,
+                "room", roomRate,
+                "party", partyRate,
+                ChatChannel.WHISPER, whisperRate);
+    }
+
+    /**
+     * Takes a token for a message on the channel; false means the message is over the cap.
+     * Whispers are capped per sender, since every whisper goes to a different recipient.
+     */
+    public boolean tryAcquire(String channel, String sender) {
+        String kind = ChatChannel.kind(channel);
+        double rate = ratePerSecond.getOrDefault(kind, 0.0);
+        if (rate <= 0) {
+            return true;
+        }
+        String key = ChatChannel.WHISPER.equals(kind) ? ChatChannel.WHISPER + ">" + sender : channel;
+        if (buckets.size() > SWEEP_THRESHOLD) {
+            sweepIdle();
+        }
+        return buckets.computeIfAbsent(key, k -> new Bucket(rate)).tryAcquire(rate);
+    }
+
+    private void sweepIdle() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.idleSince(now) > IDLE_NANOS);
+    }
+
+    private static class Bucket {
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+
+        Bucket(double rate) {
+            this.tokens = Math.max(1, rate);
+        }
+
+        synchronized boolean tryAcquire(double rate) {
+            long now = System.nanoTime();
+            tokens = Math.min(Math.max(1, rate), tokens + (now - refilledAt) * rate / 1e9);
+            refilledAt = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+
+        synchronized long idleSince(long now) {
+            return now - refilledAt;
+        }
+    }
+}
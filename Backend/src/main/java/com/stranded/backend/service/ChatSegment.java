@@ -0,0 +1,371 @@
+package com.stranded.backend.service;
+
+import com.stranded.backend.entity.ChatMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * One immutable chat archive file: a run of deflate-compressed blocks of messages in
+ * (timestamp, id) order. Each block header carries its time and id range and the
+ * channels it contains, and the headers are kept in memory as a sparse index, so a
+ * read only inflates blocks that can hold what it is looking for. The file is read
+ * through a memory map.
+ *
+ * Block layout: magic, message count, min/max timestamp (micros since the epoch, UTC),
+ * min/max id, channel count and names, raw and compressed length, then the compressed
+ * records (id, timestamp, channel, sender, content).
+ */
+class ChatSegment {
+
+    static final String SUFFIX = ".seg";
+
+    private static final int BLOCK_MAGIC = 0x43484154; // "CHAT"
+
+    private final Path path;
+    private final MappedByteBuffer data;
+    private final List<Block> blocks;
+
+    private ChatSegment(Path path, MappedByteBuffer data, List<Block> blocks) {
+        this.path = path;
+        this.data = data;
+        this.blocks = blocks;
+    }
+
+    /**
+     * Writes the messages, already in (timestamp, id) order, as a new segment. The file
+     * only appears under its name once it is complete and on disk.
+     */
+    static ChatSegment write(Path path, List<ChatMessage> messages, int blockMessages) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (int i = 0; i < messages.size(); i += blockMessages) {
+                ByteBuffer block = encodeBlock(messages.subList(i, Math.min(messages.size(), i + blockMessages)));
+                while (block.hasRemaining()) {
+                    channel.write(block);
+                }
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return open(path);
+    }
+
+    static ChatSegment open(Path path) throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        List<Block> blocks = new ArrayList<>();
+        ByteBuffer in = data.duplicate();
+        while (in.hasRemaining()) {
+            Block block = readHeader(in);
+            if (block == null) {
+                throw new IOException("Corrupt chat segment " + path + " at offset " + in.position());
+            }
+            blocks.add(block);
+            in.position(block.dataOffset + block.compressedLength);
+        }
+        return new ChatSegment(path, data, blocks);
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    long size() {
+        return data.capacity();
+    }
+
+    int messageCount() {
+        int count = 0;
+        for (Block block : blocks) {
+            count += block.count;
+        }
+        return count;
+    }
+
+    long maxId() {
+        long max = Long.MIN_VALUE;
+        for (Block block : blocks) {
+            max = Math.max(max, block.maxId);
+        }
+        return max;
+    }
+
+    long minId() {
+        long min = Long.MAX_VALUE;
+        for (Block block : blocks) {
+            min = Math.min(min, block.minId);
+        }
+        return min;
+    }
+
+    long minMicros() {
+        return blocks.isEmpty() ? Long.MAX_VALUE : blocks.get(0).minMicros;
+    }
+
+    long maxMicros() {
+        return blocks.isEmpty() ? Long.MIN_VALUE : blocks.get(blocks.size() - 1).maxMicros;
+    }
+
+    /** True if both the time range and the id range of {@code other} lie within this segment's. */
+    boolean covers(ChatSegment other) {
+        return minMicros() <= other.minMicros() && other.maxMicros() <= maxMicros()
+                && minId() <= other.minId() && other.maxId() <= maxId();
+    }
+
+    /** Every message, oldest first; used to merge segments. */
+    List<ChatMessage> readAll() throws IOException {
+        List<ChatMessage> messages = new ArrayList<>(messageCount());
+        for (Block block : blocks) {
+            messages.addAll(decode(block));
+        }
+        return messages;
+    }
+
+    /**
+     * Adds up to {@code limit} messages of the channel that sort before (timestamp, id) to
+     * {@code out}, newest first. A null timestamp compares by id alone.
+     */
+    void readBefore(String channel, LocalDateTime timestamp, long id, int limit, List<ChatMessage> out)
+            throws IOException {
+        long micros = timestamp != null ? toMicros(timestamp) : Long.MAX_VALUE;
+        for (int i = lastBlockStartingBefore(micros); i >= 0 && out.size() < limit; i--) {
+            Block block = blocks.get(i);
+            if (!block.channels.contains(channel) || (timestamp == null && block.minId >= id)) {
+                continue;
+            }
+            List<ChatMessage> messages = decode(block);
+            for (int j = messages.size() - 1; j >= 0 && out.size() < limit; j--) {
+                ChatMessage message = messages.get(j);
+                if (channel.equals(message.getChannel()) && isBefore(message, timestamp, id)) {
+                    out.add(message);
+                }
+            }
+        }
+    }
+
+    /** The timestamp of message {@code id}, or null if it is not in this segment. */
+    LocalDateTime timestampOf(long id) throws IOException {
+        for (Block block : blocks) {
+            if (id >= block.minId && id <= block.maxId) {
+                for (ChatMessage message : decode(block)) {
+                    if (message.getId() == id) {
+                        return message.getTimestamp();
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Ids in this segment, for dropping rows that were archived but not yet deleted. */
+    List<Long> ids() throws IOException {
+        List<Long> ids = new ArrayList<>(messageCount());
+        for (ChatMessage message : readAll()) {
+            ids.add(message.getId());
+        }
+        return ids;
+    }
+
+    // Sparse index lookup: blocks are in time order, so binary search on their start.
+    private int lastBlockStartingBefore(long micros) {
+        int low = 0;
+        int high = blocks.size() - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (blocks.get(mid).minMicros <= micros) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    private static boolean isBefore(ChatMessage message, LocalDateTime timestamp, long id) {
+        if (timestamp == null) {
+            return message.getId() < id;
+        }
+        int cmp = message.getTimestamp().compareTo(timestamp);
+        return cmp < 0 || (cmp == 0 && message.getId() < id);
+    }
+
+    private List<ChatMessage> decode(Block block) throws IOException {
+        byte[] compressed = new byte[block.compressedLength];
+        ByteBuffer in = data.duplicate();
+        in.position(block.dataOffset);
+        in.get(compressed);
+
+        byte[] raw = new byte[block.rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int read = inflater.inflate(raw);
+            if (read != block.rawLength) {
+                throw new IOException("Short chat block in " + path);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt chat block in " + path, e);
+        } finally {
+            inflater.end();
+        }
+
+        ByteBuffer records = ByteBuffer.wrap(raw);
+        List<ChatMessage> messages = new ArrayList<>(block.count);
+        for (int i = 0; i < block.count; i++) {
+            ChatMessage message = new ChatMessage();
+            message.setId(records.getLong());
+            message.setTimestamp(fromMicros(records.getLong()));
+            message.setChannel(readString(records));
+            message.setSender(readString(records));
+            message.setContent(readString(records));
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private static ByteBuffer encodeBlock(List<ChatMessage> messages) throws IOException {
+        ByteArrayOutputStream rawBytes = new ByteArrayOutputStream();
+        DataOutputStream records = new DataOutputStream(rawBytes);
+        Set<String> channels = new HashSet<>();
+        long minMicros = Long.MAX_VALUE;
+        long maxMicros = Long.MIN_VALUE;
+        long minId = Long.MAX_VALUE;
+        long maxId = Long.MIN_VALUE;
+        for (ChatMessage message : messages) {
+            long micros = toMicros(message.getTimestamp());
+            minMicros = Math.min(minMicros, micros);
+            maxMicros = Math.max(maxMicros, micros);
+            minId = Math.min(minId, message.getId());
+            maxId = Math.max(maxId, message.getId());
+            channels.add(message.getChannel());
+            records.writeLong(message.getId());
+            records.writeLong(micros);
+            writeString(records, message.getChannel());
+            writeString(records, message.getSender());
+            writeString(records, message.getContent());
+        }
+        byte[] raw = rawBytes.toByteArray();
+
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 2 + 64);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                compressed.write(chunk, 0, deflater.deflate(chunk));
+            }
+        } finally {
+            deflater.end();
+        }
+
+        ByteArrayOutputStream blockBytes = new ByteArrayOutputStream(compressed.size() + 128);
+        DataOutputStream header = new DataOutputStream(blockBytes);
+        header.writeInt(BLOCK_MAGIC);
+        header.writeInt(messages.size());
+        header.writeLong(minMicros);
+        header.writeLong(maxMicros);
+        header.writeLong(minId);
+        header.writeLong(maxId);
+        header.writeShort(channels.size());
+        for (String channel : channels) {
+            writeString(header, channel);
+        }
+        header.writeInt(raw.length);
+        header.writeInt(compressed.size());
+        compressed.writeTo(header);
+        header.flush();
+        return ByteBuffer.wrap(blockBytes.toByteArray());
+    }
+
+    // Null when the bytes at the position are not a whole block.
+    private static Block readHeader(ByteBuffer in) {
+        try {
+            if (in.getInt() != BLOCK_MAGIC) {
+                return null;
+            }
+            Block block = new Block();
+            block.count = in.getInt();
+            block.minMicros = in.getLong();
+            block.maxMicros = in.getLong();
+            block.minId = in.getLong();
+            block.maxId = in.getLong();
+            int channelCount = in.getShort() & 0xFFFF;
+            for (int i = 0; i < channelCount; i++) {
+                block.channels.add(readString(in));
+            }
+            block.rawLength = in.getInt();
+            block.compressedLength = in.getInt();
+            block.dataOffset = in.position();
+            return block.compressedLength <= in.remaining() ? block : null;
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1000;
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                (int) Math.floorMod(micros, 1_000_000) * 1000, ZoneOffset.UTC);
+    }
+
+    private static class Block {
+        private int count;
+        private long minMicros;
+        private long maxMicros;
+        private long minId;
+        private long maxId;
+        private final Set<String> channels = new HashSet<>();
+        private int rawLength;
+        private int compressedLength;
+        private int dataOffset;
+    }
+}
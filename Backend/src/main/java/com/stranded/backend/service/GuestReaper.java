@@ -0,0 +1,96 @@
+package com.stranded.backend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes guest rows that never got a score once they are older than the configured
+ * age. Guests only get a row when they score or upgrade, so this mostly clears rows
+ * from before that change and guests whose scores never made it in.
+ */
+@Component
+public class GuestReaper {
+
+    private static final String UNUSED_GUEST = "u.is_guest = TRUE AND u.created_at < ? "
+            + "AND NOT EXISTS (SELECT 1 FROM scores s WHERE s.user_id = u.id) "
+            + "AND NOT EXISTS (SELECT 1 FROM user_best_scores b WHERE b.user_id = u.id)";
+    private static final String SELECT_BATCH_SQL = "SELECT u.id, u.username FROM users u WHERE " + UNUSED_GUEST
+            + " ORDER BY u.id LIMIT ?";
+    // Re-checked on delete: a guest may have scored since it was selected.
+    private static final String DELETE_SQL = "DELETE FROM users u WHERE u.id = ? AND " + UNUSED_GUEST;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserDirectory userDirectory;
+    private final long maxAgeHours;
+    private final int batchSize;
+    private final ScheduledExecutorService reaperExecutor;
+
+    public GuestReaper(JdbcTemplate jdbcTemplate, UserDirectory userDirectory,
+            @Value("${auth.guest.reaper.enabled:true}") boolean enabled,
+            @Value("${auth.guest.reaper.max-age-hours:24}") long maxAgeHours,
+            @Value("${auth.guest.reaper.interval-minutes:30}") long intervalMinutes,
+            @Value("${auth.guest.reaper.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userDirectory = userDirectory;
+        this.maxAgeHours = maxAgeHours;
+        this.batchSize = batchSize;
+        this.reaperExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "guest-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (enabled) {
+            this.reaperExecutor.scheduleWithFixedDelay(this::run, 1, intervalMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    /** Deletes every eligible guest, a JDBC batch at a time; returns how many were removed. */
+    public int reap() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(maxAgeHours);
+        int total = 0;
+        List<Map<String, Object>> batch;
+        do {
+            batch = jdbcTemplate.queryForList(SELECT_BATCH_SQL, cutoff, batchSize);
+            List<Object[]> args = new ArrayList<>(batch.size());
+            for (Map<String, Object> row : batch) {
+                args.add(new Object[] { row.get("id"), cutoff });
+            }
+            int[] counts = jdbcTemplate.batchUpdate(DELETE_SQL, args);
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    total++;
+                }
+                // Evicted either way; a stale id would only cost a retry in the score writer.
+                userDirectory.evict((String) batch.get(i).get("username"));
+            }
+        } while (batch.size() == batchSize);
+
+        if (total > 0) {
+            System.out.println("[GuestReaper] Deleted " + total + " guests without scores created before " + cutoff);
+        }
+        return total;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reaperExecutor.shutdownNow();
+    }
+
+    private void run() {
+        try {
+            reap();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+}
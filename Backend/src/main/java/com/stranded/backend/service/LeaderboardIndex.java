@@ -0,0 +1,228 @@
+package com.stranded.backend.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Best score per registered player for one game mode, ranked in memory. Higher scores
+ * rank first; ties go to whoever reached the score first.
+ *
+ * The version only moves when one of the first {@code trackedTop} places changes, so
+ * cached top lists stay valid while scores land further down.
+ */
+public class LeaderboardIndex {
+
+    private static final Comparator<Entry> RANKING = Comparator
+            .comparingInt(Entry::getScore).reversed()
+            .thenComparing(Entry::getAchievedAt, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingLong(Entry::getUserId);
+
+    private final String gameMode;
+    private final int trackedTop;
+    private volatile long version;
+    private final RankedSkipList<Entry> ranking = new RankedSkipList<>(RANKING);
+    private final Map<Long, Entry> byUserId = new HashMap<>();
+    private final Map<String, Entry> byUsername = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    LeaderboardIndex(String gameMode, int trackedTop) {
+        this.gameMode = gameMode;
+        this.trackedTop = trackedTop;
+    }
+
+    public String getGameMode() {
+        return gameMode;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ranking.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Records a score if it is the player's best; returns true if the tracked top changed. */
+    boolean offer(long userId, String username, int score, LocalDateTime achievedAt) {
+        lock.writeLock().lock();
+        try {
+            Entry current = byUserId.get(userId);
+            if (current != null && current.score >= score) {
+                if (current.username.equals(username)) {
+                    return false;
+                }
+                // Renamed player with an unchanged best: same rank, new name.
+                score = current.score;
+                achievedAt = current.achievedAt;
+            }
+            int oldRank = current == null ? 0 : ranking.rankOf(current);
+            if (current != null) {
+                removeEntry(current);
+            }
+            Entry entry = new Entry(userId, username, score, gameMode, achievedAt);
+            addEntry(entry);
+            return changedTop(oldRank, ranking.rankOf(entry));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Drops the player from this mode; returns true if the tracked top changed. */
+    boolean remove(long userId) {
+        lock.writeLock().lock();
+        try {
+            Entry current = byUserId.get(userId);
+            if (current == null) {
+                return false;
+            }
+            int oldRank = ranking.rankOf(current);
+            removeEntry(current);
+            return changedTop(oldRank, 0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<RankedScore> top(int limit) {
+        lock.readLock().lock();
+        try {
+            return ranked(1, ranking.range(1, limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** The player's standing, or null if they have no score in this mode. */
+    public RankedScore rankOf(String username) {
+        lock.readLock().lock();
+        try {
+            Entry entry = byUsername.get(username);
+            if (entry == null) {
+                return null;
+            }
+            return new RankedScore(ranking.rankOf(entry), entry);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Up to {@code radius} players on each side of the given player, including them. */
+    public List<RankedScore> around(String username, int radius) {
+        lock.readLock().lock();
+        try {
+            Entry entry = byUsername.get(username);
+            if (entry == null) {
+                return List.of();
+            }
+            int rank = ranking.rankOf(entry);
+            int from = Math.max(1, rank - radius);
+            return ranked(from, ranking.range(from, rank - from + radius + 1));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean changedTop(int oldRank, int newRank) {
+        // Moves entirely below the tracked top only shift places nobody has cached.
+        if ((oldRank > 0 && oldRank <= trackedTop) || (newRank > 0 && newRank <= trackedTop)) {
+            version++;
+            return true;
+        }
+        return false;
+    }
+
+    private void addEntry(Entry entry) {
+        ranking.insert(entry);
+        byUserId.put(entry.userId, entry);
+        byUsername.put(entry.username, entry);
+    }
+
+    private void removeEntry(Entry entry) {
+        ranking.remove(entry);
+        byUserId.remove(entry.userId);
+        byUsername.remove(entry.username, entry);
+    }
+
+    private static List<RankedScore> ranked(int fromRank, List<Entry> entries) {
+        List<RankedScore> scores = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            scores.add(new RankedScore(fromRank + i, entries.get(i)));
+        }
+        return scores;
+    }
+
+    static class Entry {
+        private final long userId;
+        private final String username;
+        private final int score;
+        private final String gameMode;
+        private final LocalDateTime achievedAt;
+
+        Entry(long userId, String username, int score, String gameMode, LocalDateTime achievedAt) {
+            this.userId = userId;
+            this.username = username;
+            this.score = score;
+            this.gameMode = gameMode;
+            this.achievedAt = achievedAt;
+        }
+
+        long getUserId() {
+            return userId;
+        }
+
+        int getScore() {
+            return score;
+        }
+
+        LocalDateTime getAchievedAt() {
+            return achievedAt;
+        }
+    }
+
+    public static class RankedScore {
+        private final int rank;
+        private final String username;
+        private final int score;
+        private final String gameMode;
+        private final LocalDateTime achievedAt;
+
+        RankedScore(int rank, Entry entry) {
+            this.rank = rank;
+            this.username = entry.username;
+            this.score = entry.score;
+            this.gameMode = entry.gameMode;
+            this.achievedAt = entry.achievedAt;
+        }
+
+        public int getRank() {
+            return rank;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public String getGameMode() {
+            return gameMode;
+        }
+
+        public LocalDateTime getAchievedAt() {
+            return achievedAt;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.stranded.backend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes leaderboard changes to {@code /topic/leaderboard/{gameMode}} (and
+ * {@code /topic/leaderboard/all} for the cross-mode board). Changes are coalesced:
+ * at most one message per board per interval, carrying only the places that differ
+ * from the last message. Subscribers get the matching full snapshot from
+ * {@link #snapshot(String)} and apply updates with a higher version on top.
+ */
+@Component
+public class LeaderboardPublisher {
+
+    public static final String ALL_MODES = "all";
+    public static final String TOPIC_PREFIX = "/topic/leaderboard/";
+
+    private final SimpMessageSendingOperations messagingTemplate;
+    private final LeaderboardService leaderboardService;
+    private final int topSize;
+    private final ScheduledExecutorService publishExecutor;
+    // Last state sent per board; snapshots are served from here so updates always apply to them.
+    private final Map<String, Board> published = new ConcurrentHashMap<>();
+
+    public LeaderboardPublisher(SimpMessageSendingOperations messagingTemplate, LeaderboardService leaderboardService,
+            @Value("${leaderboard.push.interval-ms:1000}") long intervalMillis,
+            @Value("${leaderboard.push.top-size:10}") int topSize) {
+        this.messagingTemplate = messagingTemplate;
+        this.leaderboardService = leaderboardService;
+        this.topSize = Math.max(1, Math.min(topSize, LeaderboardService.TOP_SIZE));
+        this.publishExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "leaderboard-push");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.publishExecutor.scheduleWithFixedDelay(this::publishChanges, intervalMillis, intervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /** Full board as of the last published update. */
+    public Update snapshot(String gameMode) {
+        String board = boardKey(gameMode);
+        Board current = published.computeIfAbsent(board, this::read);
+        return new Update(Update.SNAPSHOT, board, current.version, current.placements, current.placements.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        publishExecutor.shutdownNow();
+    }
+
+    private void publishChanges() {
+        try {
+            publish(ALL_MODES);
+            for (String mode : leaderboardService.getGameModes()) {
+                publish(mode);
+            }
+        } catch (RuntimeException e) {
+            // Keep the schedule alive; the next run retries with fresh state.
+            e.printStackTrace();
+        }
+    }
+
+    private void publish(String board) {
+        Board previous = published.get(board);
+        if (previous != null && previous.version == version(board)) {
+            return;
+        }
+        Board current = read(board);
+        published.put(board, current);
+        if (previous == null) {
+            // Nobody has a snapshot of this board yet, so there is nothing to diff against.
+            messagingTemplate.convertAndSend(TOPIC_PREFIX + board,
+                    new Update(Update.SNAPSHOT, board, current.version, current.placements, current.placements.size()));
+            return;
+        }
+
+        List<Placement> changed = new ArrayList<>();
+        for (Placement placement : current.placements) {
+            int index = placement.getRank() - 1;
+            if (index >= previous.placements.size() || !placement.sameAs(previous.placements.get(index))) {
+                changed.add(placement);
+            }
+        }
+        // Version moves for changes anywhere in the top 100; only send when the pushed top moved.
+        if (!changed.isEmpty() || current.placements.size() != previous.placements.size()) {
+            messagingTemplate.convertAndSend(TOPIC_PREFIX + board,
+                    new Update(Update.DELTA, board, current.version, changed, current.placements.size()));
+        }
+    }
+
+    private Board read(String board) {
+        long version = version(board);
+        List<LeaderboardIndex.RankedScore> top = ALL_MODES.equals(board)
+                ? leaderboardService.getTopAcrossModes(topSize)
+                : leaderboardService.getTop(board, topSize);
+        List<Placement> placements = new ArrayList<>(top.size());
+        for (int i = 0; i < top.size(); i++) {
+            // Cross-mode entries carry their per-mode rank; on this board the place is the position.
+            placements.add(new Placement(i + 1, top.get(i)));
+        }
+        return new Board(version, placements);
+    }
+
+    private long version(String board) {
+        return ALL_MODES.equals(board) ? leaderboardService.getVersion() : leaderboardService.getVersion(board);
+    }
+
+    private static String boardKey(String gameMode) {
+        return ALL_MODES.equals(gameMode) ? ALL_MODES : LeaderboardService.modeKey(gameMode);
+    }
+
+    private static class Board {
+        private final long version;
+        private final List<Placement> placements;
+
+        Board(long version, List<Placement> placements) {
+            this.version = version;
+            this.placements = placements;
+        }
+    }
+
+    public static class Update {
+        public static final String SNAPSHOT = "SNAPSHOT";
+        public static final String DELTA = "DELTA";
+
+        private final String type;
+        private final String gameMode;
+        private final long version;
+        private final List<Placement> entries;
+        // Length of the board after this update; clients drop places beyond it.
+        private final int size;
+
+        Update(String type, String gameMode, long version, List<Placement> entries, int size) {
+            this.type = type;
+            this.gameMode = gameMode;
+            this.version = version;
+            this.entries = entries;
+            this.size = size;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getGameMode() {
+            return gameMode;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public List<Placement> getEntries() {
+            return entries;
+        }
+
+        public int getSize() {
+            return size;
+        }
+    }
+
+    public static class Placement {
+        private final int rank;
+        private final String username;
+        private final int score;
+        private final String gameMode;
+
+        Placement(int rank, LeaderboardIndex.RankedScore score) {
+            this.rank = rank;
+            this.username = score.getUsername();
+            this.score = score.getScore();
+            this.gameMode = score.getGameMode();
+        }
+
+        boolean sameAs(Placement other) {
+            return score == other.score && username.equals(other.username) && Objects.equals(gameMode, other.gameMode);
+        }
+
+        public int getRank() {
+            return rank;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public int getScore() {
+            return score;
+        }
+
+        public String getGameMode() {
+            return gameMode;
+        }
+    }
+}
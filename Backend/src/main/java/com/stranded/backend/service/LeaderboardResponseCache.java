@@ -0,0 +1,105 @@
+package com.stranded.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Serialized leaderboard responses, kept per key until the leaderboard version they
+ * were built from moves on. Repeat readers get the same byte array and ETag without
+ * touching the index or the serializer.
+ *
+ * Responses for a daily or weekly board are filed under the bucket they were built
+ * for; when a window rolls over to a new bucket, the old bucket's entries are dropped.
+ */
+@Service
+public class LeaderboardResponseCache {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, CachedResponse> responses = new ConcurrentHashMap<>();
+    // Latest bucket requested per window.
+    private final Map<LeaderboardWindow, String> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the cached response for {@code key} if it was built at {@code version},
+     * otherwise serializes {@code body} once. Concurrent callers for the same key wait
+     * for that one rebuild instead of starting their own.
+     */
+    public CachedResponse get(String key, long version, Supplier<?> body) {
+        CachedResponse cached = responses.get(key);
+        if (cached != null && cached.version == version) {
+            return cached;
+        }
+        return responses.compute(key, (k, current) ->
+                current != null && current.version >= version ? current : build(version, body.get()));
+    }
+
+    /** Like {@link #get(String, long, Supplier)}, for a key of one bucket of a windowed board. */
+    public CachedResponse get(LeaderboardWindow window, String bucket, String key, long version, Supplier<?> body) {
+        String prefix = window.name() + "|";
+        String previous = buckets.put(window, bucket);
+        if (previous != null && !previous.equals(bucket)) {
+            // Also catches entries a request still on the old bucket added after an earlier rollover.
+            String current = prefix + bucket + "|";
+            responses.keySet().removeIf(k -> k.startsWith(prefix) && !k.startsWith(current));
+        }
+        return get(prefix + bucket + "|" + key, version, body);
+    }
+
+    int size() {
+        return responses.size();
+    }
+
+    private CachedResponse build(long version, Object body) {
+        byte[] bytes;
+        try {
+            bytes = objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize leaderboard", e);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        // Version plus a content checksum: equal tags always mean byte-identical bodies.
+        String etag = "\"" + Long.toHexString(version) + "-" + Long.toHexString(crc.getValue()) + "\"";
+        return new CachedResponse(version, bytes, etag);
+    }
+
+    public static class CachedResponse {
+        private final long version;
+        private final byte[] body;
+        private final String etag;
+
+        CachedResponse(long version, byte[] body, String etag) {
+            this.version = version;
+            this.body = body;
+            this.etag = etag;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        /** True if an If-None-Match header value names this response. */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*") || tag.equals(etag) || (tag.startsWith("W/") && tag.substring(2).equals(etag))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
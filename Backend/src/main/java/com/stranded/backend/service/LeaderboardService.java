@@ -0,0 +1,355 @@
+package com.stranded.backend.service;
+
+import com.stranded.backend.entity.User;
+import com.stranded.backend.repository.BestScore;
+import com.stranded.backend.repository.ScoreRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory leaderboards, one {@link LeaderboardIndex} per game mode and window. The
+ * all-time boards are loaded from the user_best_scores read model at startup, the
+ * daily and weekly boards from the scores in their current bucket. All are kept current
+ * by the score writer, so leaderboard reads never query the database. Guests are not ranked.
+ *
+ * Daily and weekly boards roll over lazily: the first access after a bucket boundary
+ * swaps in empty boards for the new bucket instead of recomputing anything.
+ *
+ * With a distributed {@link MessageBus}, recorded scores and reloaded players are
+ * passed on to the other nodes, so every node ranks the scores written by all of them.
+ */
+@Service
+public class LeaderboardService {
+
+    // Scores submitted without a mode are shown as "Normal" by the leaderboard pages.
+    public static final String DEFAULT_MODE = "Normal";
+    // Longest top list served; only changes within it invalidate cached responses.
+    public static final int TOP_SIZE = 100;
+
+    static final String TOPIC = "leaderboard.scores";
+
+    private static final int WARM_LOAD_PAGE_SIZE = 1000;
+    private static final byte SCORE = 1;
+    private static final byte RELOAD = 2;
+
+    private final BestScoreService bestScoreService;
+    private final ScoreRepository scoreRepository;
+    private final MessageBus bus;
+    private final Map<String, LeaderboardIndex> indexes = new ConcurrentHashMap<>();
+    // Current bucket of each time-windowed board.
+    private final Map<LeaderboardWindow, AtomicReference<Bucket>> buckets = new EnumMap<>(LeaderboardWindow.class);
+    // Bumped whenever the top of any board changes or a bucket rolls over.
+    private final AtomicLong version = new AtomicLong();
+    private final MessageBus.Subscription subscription;
+
+    public LeaderboardService(BestScoreService bestScoreService, ScoreRepository scoreRepository, MessageBus bus) {
+        this.bestScoreService = bestScoreService;
+        this.scoreRepository = scoreRepository;
+        this.bus = bus;
+        LocalDateTime now = LocalDateTime.now();
+        for (LeaderboardWindow window : LeaderboardWindow.values()) {
+            if (window != LeaderboardWindow.ALL_TIME) {
+                buckets.put(window, new AtomicReference<>(new Bucket(window.bucketStart(now))));
+            }
+        }
+        // Before the warm load, so scores written elsewhere meanwhile are not missed; offering
+        // a score the load also finds changes nothing.
+        this.subscription = bus.isDistributed() ? bus.subscribe(TOPIC, this::onMessage) : null;
+    }
+
+    @PostConstruct
+    public void warmLoad() {
+        long start = System.currentTimeMillis();
+        int loaded = load(indexes, bestScoreService::getRegisteredBestScores, bestScoreService::getBestScores);
+        System.out.println("[LeaderboardService] Loaded " + loaded + " best scores into " + indexes.size()
+                + " leaderboards in " + (System.currentTimeMillis() - start) + " ms");
+
+        for (Map.Entry<LeaderboardWindow, AtomicReference<Bucket>> entry : buckets.entrySet()) {
+            start = System.currentTimeMillis();
+            Bucket bucket = entry.getValue().get();
+            loaded = load(bucket.indexes,
+                    (after, limit) -> scoreRepository.findBestRegisteredScoresSince(bucket.start, after,
+                            PageRequest.of(0, limit)),
+                    userId -> scoreRepository.findBestScoresByUserSince(userId, bucket.start));
+            System.out.println("[LeaderboardService] Loaded " + loaded + " " + entry.getKey() + " scores since "
+                    + bucket.start + " in " + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+
+    /** Called after a score is saved; returns true if it changed the top of any board. */
+    public boolean recordScore(long userId, String username, boolean guest, int score, String gameMode,
+            LocalDateTime achievedAt) {
+        if (guest) {
+            return false;
+        }
+        if (bus.isDistributed()) {
+            publish(SCORE, out -> {
+                out.writeLong(userId);
+                out.writeUTF(username);
+                out.writeInt(score);
+                out.writeUTF(gameMode == null ? "" : gameMode);
+                out.writeUTF(achievedAt == null ? "" : achievedAt.toString());
+            });
+        }
+        return apply(userId, username, score, gameMode, achievedAt);
+    }
+
+    private boolean apply(long userId, String username, int score, String gameMode, LocalDateTime achievedAt) {
+        boolean topChanged = offer(indexes, userId, username, score, gameMode, achievedAt);
+        for (LeaderboardWindow window : buckets.keySet()) {
+            Bucket bucket = currentBucket(window);
+            // Late scores from before the boundary belong to a bucket that is already gone.
+            if (achievedAt == null || !achievedAt.isBefore(bucket.start)) {
+                topChanged |= offer(bucket.indexes, userId, username, score, gameMode, achievedAt);
+            }
+        }
+        return topChanged;
+    }
+
+    /** Re-ranks a player from their stored scores, e.g. after a guest registers. */
+    public void reloadPlayer(User user) {
+        reload(user.getId(), user.isGuest());
+        if (bus.isDistributed()) {
+            publish(RELOAD, out -> {
+                out.writeLong(user.getId());
+                out.writeBoolean(user.isGuest());
+            });
+        }
+    }
+
+    private void reload(long userId, boolean guest) {
+        removePlayer(indexes, userId);
+        for (LeaderboardWindow window : buckets.keySet()) {
+            removePlayer(currentBucket(window).indexes, userId);
+        }
+        if (guest) {
+            return;
+        }
+        for (BestScore best : bestScoreService.getBestScores(userId)) {
+            offer(indexes, best);
+        }
+        for (LeaderboardWindow window : buckets.keySet()) {
+            Bucket bucket = currentBucket(window);
+            for (BestScore best : scoreRepository.findBestScoresByUserSince(userId, bucket.start)) {
+                offer(bucket.indexes, best);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    // Runs on the bus thread. The scores are already committed to the shared database.
+    private void onMessage(String topic, String originNode, byte[] payload) {
+        if (originNode.equals(bus.getNodeId())) {
+            return;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            byte type = in.readByte();
+            if (type == SCORE) {
+                long userId = in.readLong();
+                String username = in.readUTF();
+                int score = in.readInt();
+                String gameMode = in.readUTF();
+                String achievedAt = in.readUTF();
+                apply(userId, username, score, gameMode.isEmpty() ? null : gameMode,
+                        achievedAt.isEmpty() ? null : LocalDateTime.parse(achievedAt));
+            } else if (type == RELOAD) {
+                reload(in.readLong(), in.readBoolean());
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("[LeaderboardService] Ignoring message from node " + originNode + ": " + e);
+        }
+    }
+
+    private void publish(byte type, BusWriter body) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            body.write(out);
+            bus.publish(TOPIC, bytes.toByteArray());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    public long getVersion(String gameMode) {
+        return getVersion(LeaderboardWindow.ALL_TIME, gameMode);
+    }
+
+    public long getVersion(LeaderboardWindow window, String gameMode) {
+        LeaderboardIndex index = boards(window).get(modeKey(gameMode));
+        return index == null ? 0 : index.getVersion();
+    }
+
+    /** Identifies the window's current bucket, e.g. "DAILY@2026-10-17T00:00". */
+    public String getBucketKey(LeaderboardWindow window) {
+        return window == LeaderboardWindow.ALL_TIME ? window.name() : window + "@" + currentBucket(window).start;
+    }
+
+    public List<LeaderboardIndex.RankedScore> getTop(String gameMode, int limit) {
+        return getTop(LeaderboardWindow.ALL_TIME, gameMode, limit);
+    }
+
+    public List<LeaderboardIndex.RankedScore> getTop(LeaderboardWindow window, String gameMode, int limit) {
+        LeaderboardIndex index = boards(window).get(modeKey(gameMode));
+        return index == null ? List.of() : index.top(limit);
+    }
+
+    public LeaderboardIndex.RankedScore getRank(String gameMode, String username) {
+        return getRank(LeaderboardWindow.ALL_TIME, gameMode, username);
+    }
+
+    public LeaderboardIndex.RankedScore getRank(LeaderboardWindow window, String gameMode, String username) {
+        LeaderboardIndex index = boards(window).get(modeKey(gameMode));
+        return index == null ? null : index.rankOf(username);
+    }
+
+    public List<LeaderboardIndex.RankedScore> getAround(LeaderboardWindow window, String gameMode, String username,
+            int radius) {
+        LeaderboardIndex index = boards(window).get(modeKey(gameMode));
+        return index == null ? List.of() : index.around(username, radius);
+    }
+
+    /** Best scores across every mode; a player appears once per mode they placed in. */
+    public List<LeaderboardIndex.RankedScore> getTopAcrossModes(int limit) {
+        List<LeaderboardIndex.RankedScore> candidates = new ArrayList<>();
+        for (LeaderboardIndex index : indexes.values()) {
+            candidates.addAll(index.top(limit));
+        }
+        return candidates.stream()
+                .sorted(Comparator.comparingInt(LeaderboardIndex.RankedScore::getScore).reversed()
+                        .thenComparing(LeaderboardIndex.RankedScore::getAchievedAt,
+                                Comparator.nullsLast(Comparator.naturalOrder())))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    public boolean hasMode(String gameMode) {
+        return hasMode(LeaderboardWindow.ALL_TIME, gameMode);
+    }
+
+    public boolean hasMode(LeaderboardWindow window, String gameMode) {
+        return boards(window).containsKey(modeKey(gameMode));
+    }
+
+    public List<String> getGameModes() {
+        return new ArrayList<>(new TreeSet<>(indexes.keySet()));
+    }
+
+    public static String modeKey(String gameMode) {
+        return gameMode == null || gameMode.isBlank() ? DEFAULT_MODE : gameMode;
+    }
+
+    private Map<String, LeaderboardIndex> boards(LeaderboardWindow window) {
+        return window == LeaderboardWindow.ALL_TIME ? indexes : currentBucket(window).indexes;
+    }
+
+    private Bucket currentBucket(LeaderboardWindow window) {
+        AtomicReference<Bucket> ref = buckets.get(window);
+        Bucket bucket = ref.get();
+        LocalDateTime start = window.bucketStart(LocalDateTime.now());
+        if (start.isAfter(bucket.start)) {
+            Bucket next = new Bucket(start);
+            if (ref.compareAndSet(bucket, next)) {
+                version.incrementAndGet();
+                System.out.println("[LeaderboardService] " + window + " leaderboards rolled over to " + start);
+            }
+            bucket = ref.get();
+        }
+        return bucket;
+    }
+
+    // Keyset paging by user id, so each page is an index range scan rather than an OFFSET
+    // that rereads every earlier row. A full page may end partway through its last player's
+    // modes; that player is reread whole, which is harmless since offering a score twice
+    // changes nothing.
+    private int load(Map<String, LeaderboardIndex> boards, BiFunction<Long, Integer, List<BestScore>> pageAfter,
+            Function<Long, List<BestScore>> player) {
+        int loaded = 0;
+        long after = 0;
+        List<BestScore> page;
+        do {
+            page = pageAfter.apply(after, WARM_LOAD_PAGE_SIZE);
+            for (BestScore best : page) {
+                offer(boards, best);
+            }
+            loaded += page.size();
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1).getUserId();
+            }
+            if (page.size() == WARM_LOAD_PAGE_SIZE) {
+                for (BestScore best : player.apply(after)) {
+                    offer(boards, best);
+                }
+            }
+        } while (page.size() == WARM_LOAD_PAGE_SIZE);
+        return loaded;
+    }
+
+    private void removePlayer(Map<String, LeaderboardIndex> boards, long userId) {
+        for (LeaderboardIndex index : boards.values()) {
+            if (index.remove(userId)) {
+                version.incrementAndGet();
+            }
+        }
+    }
+
+    private void offer(Map<String, LeaderboardIndex> boards, BestScore best) {
+        offer(boards, best.getUserId(), best.getUsername(), best.getScore(), best.getGameMode(), best.getAchievedAt());
+    }
+
+    private boolean offer(Map<String, LeaderboardIndex> boards, long userId, String username, int score,
+            String gameMode, LocalDateTime achievedAt) {
+        boolean topChanged = boards.computeIfAbsent(modeKey(gameMode), mode -> new LeaderboardIndex(mode, TOP_SIZE))
+                .offer(userId, username, score, achievedAt);
+        if (topChanged) {
+            version.incrementAndGet();
+        }
+        return topChanged;
+    }
+
+    private interface BusWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static class Bucket {
+        private final LocalDateTime start;
+        private final Map<String, LeaderboardIndex> indexes = new ConcurrentHashMap<>();
+
+        Bucket(LocalDateTime start) {
+            this.start = start;
+        }
+    }
+}
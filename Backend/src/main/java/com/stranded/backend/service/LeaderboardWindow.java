@@ -0,0 +1,39 @@
+package com.stranded.backend.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Time span a leaderboard covers. Daily and weekly boards are calendar buckets in
+ * server time (weeks start on Monday); a new bucket starts empty at the boundary.
+ */
+public enum LeaderboardWindow {
+    DAILY,
+    WEEKLY,
+    ALL_TIME;
+
+    /** Start of the bucket containing {@code time}, or null for the all-time board. */
+    public LocalDateTime bucketStart(LocalDateTime time) {
+        switch (this) {
+            case DAILY:
+                return time.truncatedTo(ChronoUnit.DAYS);
+            case WEEKLY:
+                return time.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            default:
+                return null;
+        }
+    }
+
+    /** Parses "daily", "weekly" or "all"; anything else means all-time. */
+    public static LeaderboardWindow fromParam(String value) {
+        if ("daily".equalsIgnoreCase(value)) {
+            return DAILY;
+        }
+        if ("weekly".equalsIgnoreCase(value)) {
+            return WEEKLY;
+        }
+        return ALL_TIME;
+    }
+}
@@ -0,0 +1,73 @@
+package com.stranded.backend.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * {@link MessageBus} for a single node: messages go straight to this JVM's subscribers
+ * on the publishing thread. Also the local half of the networked buses.
+ */
+public class LocalMessageBus implements MessageBus {
+
+    private final String nodeId;
+    private final Map<String, List<Listener>> listeners = new ConcurrentHashMap<>();
+
+    public LocalMessageBus(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public boolean isDistributed() {
+        return false;
+    }
+
+    @Override
+    public void publish(String topic, byte[] payload) {
+        dispatch(topic, nodeId, payload);
+    }
+
+    @Override
+    public Subscription subscribe(String topic, Listener listener) {
+        listeners.computeIfAbsent(topic, t -> new CopyOnWriteArrayList<>()).add(listener);
+        return () -> listeners.computeIfPresent(topic, (t, current) -> {
+            current.remove(listener);
+            return current.isEmpty() ? null : current;
+        });
+    }
+
+    @Override
+    public void shutdown() {
+        listeners.clear();
+    }
+
+    protected boolean hasListeners(String topic) {
+        return listeners.containsKey(topic);
+    }
+
+    protected List<String> getTopics() {
+        return new ArrayList<>(listeners.keySet());
+    }
+
+    // A failing listener must not keep the message from the others.
+    protected void dispatch(String topic, String originNode, byte[] payload) {
+        List<Listener> current = listeners.get(topic);
+        if (current == null) {
+            return;
+        }
+        for (Listener listener : current) {
+            try {
+                listener.onMessage(topic, originNode, payload);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
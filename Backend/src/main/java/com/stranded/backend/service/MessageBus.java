@@ -0,0 +1,31 @@
+package com.stranded.backend.service;
+
+/**
+ * Topic pub/sub between backend nodes. A message published on a topic reaches the
+ * topic's subscribers on every node, the publishing one included: local subscribers are
+ * called on the publishing thread, remote ones on the bus's receive thread. Delivery is
+ * at most once; a node that is disconnected misses what was published meanwhile.
+ */
+public interface MessageBus {
+
+    /** This node's id, unique within the cluster. */
+    String getNodeId();
+
+    /** False when this node is the whole cluster, so callers can skip cross-node work. */
+    boolean isDistributed();
+
+    void publish(String topic, byte[] payload);
+
+    Subscription subscribe(String topic, Listener listener);
+
+    void shutdown();
+
+    interface Listener {
+        /** {@code originNode} is the publisher's node id, equal to getNodeId() for local messages. */
+        void onMessage(String topic, String originNode, byte[] payload);
+    }
+
+    interface Subscription {
+        void cancel();
+    }
+}
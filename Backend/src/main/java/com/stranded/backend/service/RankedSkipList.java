@@ -0,0 +1,174 @@
+package com.stranded.backend.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Skip list that also tracks how many elements each link skips, so finding an
+ * element's rank or the element at a rank takes O(log n) like insert and delete.
+ * Ranks are 1-based in comparator order. Not thread-safe.
+ */
+class RankedSkipList<T> {
+
+    private static final int MAX_LEVEL = 32;
+    private static final double LEVEL_PROBABILITY = 0.25;
+
+    private final Comparator<? super T> comparator;
+    private final Node<T> head = new Node<>(null, MAX_LEVEL);
+    private int level = 1;
+    private int size;
+
+    RankedSkipList(Comparator<? super T> comparator) {
+        this.comparator = comparator;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        for (int i = 0; i < MAX_LEVEL; i++) {
+            head.next[i] = null;
+            head.span[i] = 0;
+        }
+        level = 1;
+        size = 0;
+    }
+
+    void insert(T value) {
+        @SuppressWarnings("unchecked")
+        Node<T>[] update = new Node[MAX_LEVEL];
+        int[] rank = new int[MAX_LEVEL];
+        Node<T> node = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (node.next[i] != null && comparator.compare(node.next[i].value, value) < 0) {
+                rank[i] += node.span[i];
+                node = node.next[i];
+            }
+            update[i] = node;
+        }
+
+        int newLevel = randomLevel();
+        if (newLevel > level) {
+            for (int i = level; i < newLevel; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                update[i].span[i] = size;
+            }
+            level = newLevel;
+        }
+
+        Node<T> inserted = new Node<>(value, newLevel);
+        for (int i = 0; i < newLevel; i++) {
+            inserted.next[i] = update[i].next[i];
+            update[i].next[i] = inserted;
+            inserted.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = rank[0] - rank[i] + 1;
+        }
+        for (int i = newLevel; i < level; i++) {
+            update[i].span[i]++;
+        }
+        size++;
+    }
+
+    /** Removes the element that compares equal to {@code value}; returns false if absent. */
+    boolean remove(T value) {
+        @SuppressWarnings("unchecked")
+        Node<T>[] update = new Node[MAX_LEVEL];
+        Node<T> node = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (node.next[i] != null && comparator.compare(node.next[i].value, value) < 0) {
+                node = node.next[i];
+            }
+            update[i] = node;
+        }
+        Node<T> target = node.next[0];
+        if (target == null || comparator.compare(target.value, value) != 0) {
+            return false;
+        }
+
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == target) {
+                update[i].span[i] += target.span[i] - 1;
+                update[i].next[i] = target.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+        size--;
+        return true;
+    }
+
+    /** 1-based rank of the element that compares equal to {@code value}, or 0 if absent. */
+    int rankOf(T value) {
+        int rank = 0;
+        Node<T> node = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (node.next[i] != null && comparator.compare(node.next[i].value, value) <= 0) {
+                rank += node.span[i];
+                node = node.next[i];
+            }
+            if (node != head && comparator.compare(node.value, value) == 0) {
+                return rank;
+            }
+        }
+        return 0;
+    }
+
+    /** Up to {@code count} elements starting at the 1-based {@code fromRank}. */
+    List<T> range(int fromRank, int count) {
+        List<T> values = new ArrayList<>(Math.max(0, Math.min(count, size - fromRank + 1)));
+        if (fromRank < 1 || fromRank > size || count <= 0) {
+            return values;
+        }
+        Node<T> node = nodeAt(fromRank);
+        while (node != null && values.size() < count) {
+            values.add(node.value);
+            node = node.next[0];
+        }
+        return values;
+    }
+
+    private Node<T> nodeAt(int rank) {
+        int traversed = 0;
+        Node<T> node = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (node.next[i] != null && traversed + node.span[i] <= rank) {
+                traversed += node.span[i];
+                node = node.next[i];
+            }
+            if (traversed == rank) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    private static int randomLevel() {
+        int level = 1;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (level < MAX_LEVEL && random.nextDouble() < LEVEL_PROBABILITY) {
+            level++;
+        }
+        return level;
+    }
+
+    private static class Node<T> {
+        private final T value;
+        private final Node<T>[] next;
+        private final int[] span;
+
+        @SuppressWarnings("unchecked")
+        Node(T value, int level) {
+            this.value = value;
+            this.next = new Node[level];
+            this.span = new int[level];
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.stranded.backend.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link MessageBus} across nodes through Redis pub/sub, spoken directly over two
+ * sockets: one publishes, one holds the subscriptions. Local subscribers are called
+ * on the publishing thread as with {@link LocalMessageBus}; every message also carries
+ * its node id, so a node skips its own messages when Redis echoes them back.
+ *
+ * Publishing never blocks the caller: commands queue up for the "bus-publisher" thread,
+ * and a full queue drops the message. After a lost connection both sockets reconnect
+ * and the subscriptions are re-sent.
+ */
+public class RedisMessageBus extends LocalMessageBus {
+
+    private static final long RECONNECT_DELAY_MILLIS = 1000;
+    private static final int CONNECT_TIMEOUT_MILLIS = 3000;
+
+    private final String host;
+    private final int port;
+    private final BlockingQueue<byte[]> outgoing;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread publisher;
+    private final Thread subscriber;
+    private volatile boolean running = true;
+
+    // Guards the subscriber socket's output and the subscribe/unsubscribe bookkeeping.
+    private final Object subscriptionLock = new Object();
+    private OutputStream subscriberOut;
+    private volatile Socket publisherSocket;
+    private volatile Socket subscriberSocket;
+
+    public RedisMessageBus(String nodeId, String host, int port, int capacity) {
+        super(nodeId);
+        this.host = host;
+        this.port = port;
+        this.outgoing = new ArrayBlockingQueue<>(capacity);
+        this.publisher = new Thread(this::publishLoop, "bus-publisher");
+        this.publisher.setDaemon(true);
+        this.subscriber = new Thread(this::subscribeLoop, "bus-subscriber");
+        this.subscriber.setDaemon(true);
+    }
+
+    public void start() {
+        publisher.start();
+        subscriber.start();
+    }
+
+    @Override
+    public boolean isDistributed() {
+        return true;
+    }
+
+    @Override
+    public void publish(String topic, byte[] payload) {
+        super.publish(topic, payload);
+        byte[] command = command("PUBLISH", topic.getBytes(StandardCharsets.UTF_8), envelope(payload));
+        if (!running || !outgoing.offer(command)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    @Override
+    public Subscription subscribe(String topic, Listener listener) {
+        synchronized (subscriptionLock) {
+            boolean first = !hasListeners(topic);
+            Subscription local = super.subscribe(topic, listener);
+            if (first) {
+                sendSubscriberCommand("SUBSCRIBE", topic);
+            }
+            return () -> {
+                synchronized (subscriptionLock) {
+                    local.cancel();
+                    if (!hasListeners(topic)) {
+                        sendSubscriberCommand("UNSUBSCRIBE", topic);
+                    }
+                }
+            };
+        }
+    }
+
+    /** Messages dropped because the publish queue was full or the bus was stopping. */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    @Override
+    public void shutdown() {
+        running = false;
+        publisher.interrupt();
+        subscriber.interrupt();
+        closeQuietly(publisherSocket);
+        closeQuietly(subscriberSocket);
+        super.shutdown();
+    }
+
+    private void publishLoop() {
+        List<byte[]> batch = new ArrayList<>();
+        while (running) {
+            try (Socket socket = connect()) {
+                publisherSocket = socket;
+                OutputStream out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024);
+                // PUBLISH replies are never read, so ask Redis not to send them.
+                out.write(command("CLIENT", bytes("REPLY"), bytes("OFF")));
+                out.flush();
+                while (running) {
+                    byte[] first = outgoing.poll(1, TimeUnit.SECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    outgoing.drainTo(batch, 255);
+                    for (byte[] command : batch) {
+                        out.write(command);
+                    }
+                    out.flush();
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                // The batch in flight is lost; pub/sub delivery is at most once anyway.
+                dropped.addAndGet(batch.size());
+                batch.clear();
+                reconnectDelay("publisher", e);
+            }
+        }
+    }
+
+    private void subscribeLoop() {
+        while (running) {
+            try (Socket socket = connect()) {
+                subscriberSocket = socket;
+                InputStream in = new BufferedInputStream(socket.getInputStream());
+                synchronized (subscriptionLock) {
+                    subscriberOut = socket.getOutputStream();
+                    for (String topic : getTopics()) {
+                        sendSubscriberCommand("SUBSCRIBE", topic);
+                    }
+                }
+                while (running) {
+                    Object reply = readReply(in);
+                    if (reply instanceof List<?> parts && parts.size() == 3
+                            && Arrays.equals(bytes("message"), (byte[]) parts.get(0))) {
+                        String topic = new String((byte[]) parts.get(1), StandardCharsets.UTF_8);
+                        receive(topic, (byte[]) parts.get(2));
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                synchronized (subscriptionLock) {
+                    subscriberOut = null;
+                }
+                reconnectDelay("subscriber", e);
+            }
+        }
+    }
+
+    private void receive(String topic, byte[] envelope) {
+        String originNode;
+        byte[] payload;
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(envelope));
+            originNode = in.readUTF();
+            payload = in.readAllBytes();
+        } catch (IOException e) {
+            System.out.println("[MessageBus] Ignoring malformed message on " + topic);
+            return;
+        }
+        if (!originNode.equals(getNodeId())) {
+            dispatch(topic, originNode, payload);
+        }
+    }
+
+    // Caller holds subscriptionLock. While disconnected the reconnect re-sends every topic.
+    private void sendSubscriberCommand(String name, String topic) {
+        if (subscriberOut == null) {
+            return;
+        }
+        try {
+            subscriberOut.write(command(name, topic.getBytes(StandardCharsets.UTF_8)));
+            subscriberOut.flush();
+        } catch (IOException e) {
+            closeQuietly(subscriberSocket);
+        }
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+        return socket;
+    }
+
+    private void reconnectDelay(String connection, Exception e) {
+        if (!running) {
+            return;
+        }
+        System.out.println("[MessageBus] Redis " + connection + " connection to " + host + ":" + port
+                + " lost, retrying: " + e.getMessage());
+        try {
+            Thread.sleep(RECONNECT_DELAY_MILLIS);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private byte[] envelope(byte[] payload) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + 40);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeUTF(getNodeId());
+            out.write(payload);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // RESP array of bulk strings, the form every Redis command takes.
+    static byte[] command(String name, byte[]... args) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeAscii(out, "*" + (args.length + 1) + "\r\n");
+        writeBulk(out, bytes(name));
+        for (byte[] arg : args) {
+            writeBulk(out, arg);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads one RESP reply: simple strings as String, integers as Long, bulk strings as
+     * byte[] (null for nil) and arrays as List.
+     */
+    static Object readReply(InputStream in) throws IOException {
+        int type = in.read();
+        if (type < 0) {
+            throw new EOFException("Redis closed the connection");
+        }
+        String line = readLine(in);
+        switch (type) {
+            case '+':
+                return line;
+            case '-':
+                throw new IOException("Redis error: " + line);
+            case ':':
+                return Long.parseLong(line);
+            case '$': {
+                int length = Integer.parseInt(line);
+                if (length < 0) {
+                    return null;
+                }
+                byte[] data = in.readNBytes(length);
+                if (data.length < length || in.read() != '\r' || in.read() != '\n') {
+                    throw new EOFException("Truncated Redis reply");
+                }
+                return data;
+            }
+            case '*': {
+                int count = Integer.parseInt(line);
+                List<Object> items = new ArrayList<>(Math.max(count, 0));
+                for (int i = 0; i < count; i++) {
+                    items.add(readReply(in));
+                }
+                return items;
+            }
+            default:
+                throw new IOException("Unexpected Redis reply type " + (char) type);
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\r') {
+            if (c < 0) {
+                throw new EOFException("Truncated Redis reply");
+            }
+            line.append((char) c);
+        }
+        if (in.read() != '\n') {
+            throw new IOException("Malformed Redis reply");
+        }
+        return line.toString();
+    }
+
+    private static void writeBulk(ByteArrayOutputStream out, byte[] data) {
+        writeAscii(out, "$" + data.length + "\r\n");
+        out.write(data, 0, data.length);
+        writeAscii(out, "\r\n");
+    }
+
+    private static void writeAscii(ByteArrayOutputStream out, String text) {
+        byte[] data = text.getBytes(StandardCharsets.US_ASCII);
+        out.write(data, 0, data.length);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void closeQuietly(Socket socket) {
+        if (socket == null) {
+            return;
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already gone.
+        }
+    }
+}
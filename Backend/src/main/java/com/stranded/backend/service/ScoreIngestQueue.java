@@ -0,0 +1,464 @@
+package com.stranded.backend.service;
+
+import com.stranded.backend.entity.Score;
+import com.stranded.backend.entity.User;
+import com.stranded.backend.repository.ScoreRepository;
+import com.stranded.backend.repository.UserRef;
+import com.stranded.backend.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind stage for submitted scores. Submissions are acknowledged once queued and
+ * appended to the {@link ScoreJournal} on disk; a single writer thread drains the queue
+ * and inserts scores in JDBC batches, one transaction per batch together with the
+ * best-score read model and the journal checkpoint, then updates the leaderboards.
+ * Scores journaled but not yet written when the process died are written at startup.
+ *
+ * A batch that fails is retried one score at a time, so only the scores that keep
+ * failing are dropped (counted in scores.ingest.dropped). A full queue rejects new
+ * submissions instead of blocking request threads. Pending scores are flushed on shutdown.
+ *
+ * A guest's first score creates its users row in the writer. A guest upgrading to an
+ * account waits for its queued scores first ({@link #awaitGuestScores}), so the row the
+ * upgrade renames is the one those scores are written to.
+ */
+@Component
+public class ScoreIngestQueue {
+
+    private static final int MAX_WRITE_ATTEMPTS = 3;
+    private static final String CHECKPOINT_TABLE = "score_journal_checkpoints";
+
+    private final ScoreRepository scoreRepository;
+    private final UserRepository userRepository;
+    private final UserDirectory userDirectory;
+    private final LeaderboardService leaderboardService;
+    private final BestScoreService bestScoreService;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final BlockingQueue<PendingScore> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final boolean journalEnabled;
+    private final Path journalDir;
+    private final long journalSegmentBytes;
+    private ScoreJournal journal;
+    // Keeps journal order and queue order the same, so checkpoints only move forward.
+    private final Object enqueueLock = new Object();
+    private final Counter dropped;
+
+    // Submission order; the writer records how far it has got so callers can wait for a score.
+    private long lastTicket;
+    private long writtenTicket;
+    private final Object writtenLock = new Object();
+    // Guest name -> ticket of its latest queued score, until that score is written.
+    private final Map<String, Long> queuedGuests = new ConcurrentHashMap<>();
+
+    public ScoreIngestQueue(ScoreRepository scoreRepository, UserRepository userRepository,
+            UserDirectory userDirectory, LeaderboardService leaderboardService, BestScoreService bestScoreService,
+            PlatformTransactionManager transactionManager,
+            JdbcTemplate jdbcTemplate,
+            @Value("${scores.ingest.capacity:10000}") int capacity,
+            @Value("${scores.ingest.batch-size:200}") int batchSize,
+            @Value("${scores.ingest.flush-interval-ms:100}") long flushIntervalMillis,
+            @Value("${scores.ingest.journal.enabled:true}") boolean journalEnabled,
+            @Value("${scores.ingest.journal.dir:./data/score-journal}") String journalDir,
+            @Value("${scores.ingest.journal.segment-bytes:4194304}") long journalSegmentBytes,
+            MeterRegistry meterRegistry) {
+        this.scoreRepository = scoreRepository;
+        this.userRepository = userRepository;
+        this.userDirectory = userDirectory;
+        this.leaderboardService = leaderboardService;
+        this.bestScoreService = bestScoreService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jdbcTemplate = jdbcTemplate;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.writer = new Thread(this::drain, "score-writer");
+        this.writer.setDaemon(true);
+        this.journalEnabled = journalEnabled;
+        this.journalDir = Path.of(journalDir);
+        this.journalSegmentBytes = journalSegmentBytes;
+        this.dropped = Counter.builder("scores.ingest.dropped")
+                .description("Scores given up on after repeated write failures").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        alignScoreSequence();
+        if (journalEnabled) {
+            replayJournal();
+        }
+        writer.start();
+    }
+
+    /**
+     * Queues a score for writing; returns false when the queue is full or shutting down.
+     * With the journal enabled, returns once the score is on disk. {@code userId} is null
+     * for a guest that has no users row yet.
+     */
+    public boolean offer(Long userId, String username, boolean guest, int score, String gameMode,
+            LocalDateTime timestamp) {
+        if (!running) {
+            return false;
+        }
+        PendingScore pending = new PendingScore(userId, username, guest, score, gameMode, timestamp);
+        try {
+            ScoreJournal.Appended appended = null;
+            synchronized (enqueueLock) {
+                // Only the writer takes from the queue, so this guarantees the add below fits.
+                if (queue.remainingCapacity() == 0) {
+                    return false;
+                }
+                if (journal != null) {
+                    appended = journal.append(encode(pending));
+                    pending.seq = appended.getSeq();
+                }
+                pending.ticket = ++lastTicket;
+                if (guest) {
+                    queuedGuests.put(username, pending.ticket);
+                }
+                queue.add(pending);
+            }
+            if (appended != null) {
+                journal.sync(appended.getPosition());
+            }
+            return true;
+        } catch (IOException e) {
+            throw new RuntimeException("Could not journal score", e);
+        }
+    }
+
+    /**
+     * Waits until every score queued so far for the guest is written or dropped; returns
+     * false if that takes longer than timeoutMillis.
+     */
+    public boolean awaitGuestScores(String username, long timeoutMillis) throws InterruptedException {
+        Long ticket = queuedGuests.get(username);
+        if (ticket == null) {
+            return true;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized (writtenLock) {
+            while (writtenTicket < ticket) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(writtenLock, remaining);
+            }
+        }
+        return true;
+    }
+
+    public int getDepth() {
+        return queue.size();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+        // Anything the writer did not get to is written here, before the datasource closes.
+        List<PendingScore> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (int i = 0; i < remaining.size(); i += batchSize) {
+            write(remaining.subList(i, Math.min(remaining.size(), i + batchSize)));
+        }
+        if (journal != null) {
+            journal.close();
+        }
+        System.out.println("[ScoreIngestQueue] Flushed on shutdown (" + remaining.size() + " left in queue)");
+    }
+
+    public double getDropped() {
+        return dropped.count();
+    }
+
+    private void drain() {
+        List<PendingScore> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingScore first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingScore> batch) {
+        try {
+            writeInTransaction(batch);
+        } catch (RuntimeException e) {
+            // Retry one by one so a single bad score cannot take the rest of the batch with it.
+            System.out.println("[ScoreIngestQueue] Batch of " + batch.size() + " scores failed, writing them "
+                    + "one at a time: " + e.getMessage());
+            for (PendingScore pending : batch) {
+                writeOne(pending);
+            }
+        }
+        if (journal != null) {
+            // Scores that were dropped are done with too.
+            long lastSeq = batch.get(batch.size() - 1).seq;
+            try {
+                markApplied(lastSeq);
+                journal.applied(lastSeq);
+            } catch (RuntimeException e) {
+                System.out.println("[ScoreIngestQueue] Could not advance journal checkpoint: " + e.getMessage());
+            }
+        }
+        for (PendingScore pending : batch) {
+            if (pending.guest) {
+                queuedGuests.remove(pending.username, pending.ticket);
+            }
+        }
+        synchronized (writtenLock) {
+            writtenTicket = Math.max(writtenTicket, batch.get(batch.size() - 1).ticket);
+            writtenLock.notifyAll();
+        }
+    }
+
+    private void writeOne(PendingScore pending) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                writeInTransaction(List.of(pending));
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= MAX_WRITE_ATTEMPTS) {
+                    dropped.increment();
+                    System.out.println("[ScoreIngestQueue] Dropping score " + pending.score + " of "
+                            + pending.username + " after " + attempt + " attempts: " + e.getMessage());
+                    return;
+                }
+                try {
+                    Thread.sleep(attempt * 200L);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private void writeInTransaction(List<PendingScore> batch) {
+        List<User> createdGuests = new ArrayList<>();
+        List<PendingScore> written;
+        try {
+            written = transactionTemplate.execute(status -> {
+                List<PendingScore> inserted = insert(batch, createdGuests);
+                if (journal != null) {
+                    markApplied(batch.get(batch.size() - 1).seq);
+                }
+                return inserted;
+            });
+        } catch (RuntimeException e) {
+            // A guest may have been reaped since its id was cached; resolve guests afresh.
+            for (PendingScore pending : batch) {
+                userDirectory.evict(pending.username);
+                if (pending.guest) {
+                    pending.userId = null;
+                }
+            }
+            throw e;
+        }
+        createdGuests.forEach(userDirectory::saved);
+        for (PendingScore pending : written) {
+            leaderboardService.recordScore(pending.userId, pending.username, pending.guest, pending.score,
+                    pending.gameMode, pending.timestamp);
+        }
+    }
+
+    private List<PendingScore> insert(List<PendingScore> batch, List<User> createdGuests) {
+        Map<String, User> guests = materializeGuests(batch, createdGuests);
+
+        List<Score> scores = new ArrayList<>(batch.size());
+        List<PendingScore> written = new ArrayList<>(batch.size());
+        for (PendingScore pending : batch) {
+            User user;
+            if (pending.userId != null) {
+                // Resolved by id at submit time: a reference is enough, the user is never loaded.
+                user = userRepository.getReferenceById(pending.userId);
+            } else {
+                user = guests.get(pending.username);
+                if (user == null) {
+                    System.out.println("[ScoreIngestQueue] Skipping score for unknown user: " + pending.username);
+                    continue;
+                }
+                pending.userId = user.getId();
+            }
+            scores.add(new Score(user, pending.score, pending.gameMode, pending.timestamp));
+            written.add(pending);
+        }
+        bestScoreService.recordScores(scoreRepository.saveAll(scores));
+        return written;
+    }
+
+    // Guests only exist in their token until they first score. Reuse rows an earlier batch
+    // created and create the rest now.
+    private Map<String, User> materializeGuests(List<PendingScore> batch, List<User> createdGuests) {
+        Set<String> names = new HashSet<>();
+        for (PendingScore pending : batch) {
+            if (pending.userId == null && pending.guest) {
+                names.add(pending.username);
+            }
+        }
+        Map<String, User> guests = new HashMap<>();
+        if (names.isEmpty()) {
+            return guests;
+        }
+        for (UserRef ref : userDirectory.findAll(names).values()) {
+            // A guest token never speaks for a registered account, even under the same name.
+            if (ref.isGuest()) {
+                guests.put(ref.getUsername(), userRepository.getReferenceById(ref.getId()));
+            }
+            names.remove(ref.getUsername());
+        }
+        for (String name : names) {
+            User guest = new User();
+            guest.setUsername(name);
+            guest.setGuest(true);
+            guests.put(name, guest);
+            createdGuests.add(guest);
+        }
+        userRepository.saveAll(createdGuests);
+        return guests;
+    }
+
+    // Writes the scores the journal holds past its checkpoint, before new submissions arrive.
+    private void replayJournal() throws IOException {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + CHECKPOINT_TABLE
+                + " (journal_id VARCHAR(64) PRIMARY KEY, applied_seq BIGINT NOT NULL)");
+        ScoreJournal opened = ScoreJournal.open(journalDir, journalSegmentBytes);
+        List<Long> applied = jdbcTemplate.queryForList("SELECT applied_seq FROM " + CHECKPOINT_TABLE
+                + " WHERE journal_id = ?", Long.class, opened.getId());
+        if (applied.isEmpty()) {
+            jdbcTemplate.update("INSERT INTO " + CHECKPOINT_TABLE + " (journal_id, applied_seq) VALUES (?, 0)",
+                    opened.getId());
+        }
+        List<ScoreJournal.Record> records = opened.recover(applied.isEmpty() ? 0 : applied.get(0));
+        journal = opened;
+
+        List<PendingScore> replayed = new ArrayList<>(records.size());
+        for (ScoreJournal.Record record : records) {
+            PendingScore pending = decode(record.getPayload());
+            pending.seq = record.getSeq();
+            replayed.add(pending);
+        }
+        for (int i = 0; i < replayed.size(); i += batchSize) {
+            write(replayed.subList(i, Math.min(replayed.size(), i + batchSize)));
+        }
+        if (!replayed.isEmpty()) {
+            System.out.println("[ScoreIngestQueue] Wrote " + replayed.size() + " scores recovered from the journal");
+        }
+    }
+
+    // Only forward: a checkpoint never goes back over scores a later batch already wrote.
+    private void markApplied(long seq) {
+        jdbcTemplate.update("UPDATE " + CHECKPOINT_TABLE
+                + " SET applied_seq = ? WHERE journal_id = ? AND applied_seq < ?", seq, journal.getId(), seq);
+    }
+
+    private static byte[] encode(PendingScore pending) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(pending.userId == null ? -1 : pending.userId);
+        out.writeUTF(pending.username);
+        out.writeBoolean(pending.guest);
+        out.writeInt(pending.score);
+        out.writeUTF(pending.gameMode == null ? "" : pending.gameMode);
+        out.writeUTF(pending.timestamp == null ? "" : pending.timestamp.toString());
+        return bytes.toByteArray();
+    }
+
+    private static PendingScore decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        long userId = in.readLong();
+        String username = in.readUTF();
+        boolean guest = in.readBoolean();
+        int score = in.readInt();
+        String gameMode = in.readUTF();
+        String timestamp = in.readUTF();
+        return new PendingScore(userId < 0 ? null : userId, username, guest, score,
+                gameMode.isEmpty() ? null : gameMode, timestamp.isEmpty() ? null : LocalDateTime.parse(timestamp));
+    }
+
+    // Scores used to take IDENTITY ids. Move the pooled sequence past them so existing
+    // databases do not hand out ids that are already taken.
+    private void alignScoreSequence() {
+        try {
+            Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM scores", Long.class);
+            Long next = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + Score.ID_SEQUENCE, Long.class);
+            if (maxId != null && next != null && next <= maxId + Score.ID_ALLOCATION_SIZE) {
+                long restart = maxId + Score.ID_ALLOCATION_SIZE + 1;
+                jdbcTemplate.execute("ALTER SEQUENCE " + Score.ID_SEQUENCE + " RESTART WITH " + restart);
+                System.out.println("[ScoreIngestQueue] Score id sequence restarted at " + restart);
+            }
+        } catch (RuntimeException e) {
+            System.out.println("[ScoreIngestQueue] Could not align score id sequence: " + e.getMessage());
+        }
+    }
+
+    private static class PendingScore {
+        // Filled in by the writer for guests whose row it finds or creates.
+        private Long userId;
+        // Position in the journal; 0 without one.
+        private long seq;
+        // Position in submission order; 0 for scores replayed from the journal.
+        private long ticket;
+        private final String username;
+        private final boolean guest;
+        private final int score;
+        private final String gameMode;
+        private final LocalDateTime timestamp;
+
+        PendingScore(Long userId, String username, boolean guest, int score, String gameMode,
+                LocalDateTime timestamp) {
+            this.userId = userId;
+            this.username = username;
+            this.guest = guest;
+            this.score = score;
+            this.gameMode = gameMode;
+            this.timestamp = timestamp;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.stranded.backend.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of accepted scores, so a score is on disk before it is acknowledged.
+ * Records carry an increasing sequence number and are checksummed; a record torn by a
+ * crash ends the readable part of its segment. The log is split into segments, named
+ * by the first sequence number they hold, and a segment is deleted once every record
+ * in it has been applied.
+ *
+ * Appends are serialized; {@link #sync} forces the log to disk and lets callers that
+ * append at the same time share one fsync.
+ */
+class ScoreJournal {
+
+    private static final String PREFIX = "scores-";
+    private static final String SUFFIX = ".log";
+    private static final String ID_FILE = "journal.id";
+    private static final int HEADER_BYTES = 8;
+
+    private final Path dir;
+    private final String id;
+    private final long segmentBytes;
+
+    // Closed segments, oldest first.
+    private final List<Segment> segments = new ArrayList<>();
+    private Segment current;
+    private volatile FileChannel channel;
+    private long nextSeq = 1;
+
+    // Bytes appended over the life of this instance, and how many of them are forced.
+    private volatile long written;
+    private volatile long synced;
+    private final Object syncLock = new Object();
+
+    private ScoreJournal(Path dir, String id, long segmentBytes) {
+        this.dir = dir;
+        this.id = id;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /** Opens the journal in dir, creating it on first use. Call {@link #recover} before appending. */
+    static ScoreJournal open(Path dir, long segmentBytes) throws IOException {
+        Files.createDirectories(dir);
+        Path idFile = dir.resolve(ID_FILE);
+        if (!Files.exists(idFile)) {
+            Files.writeString(idFile, UUID.randomUUID().toString(), StandardCharsets.US_ASCII);
+        }
+        return new ScoreJournal(dir, Files.readString(idFile, StandardCharsets.US_ASCII).trim(), segmentBytes);
+    }
+
+    /** Identifies this journal's checkpoint; unique per journal directory. */
+    String getId() {
+        return id;
+    }
+
+    /**
+     * Reads every record after appliedSeq, oldest first, and starts a fresh segment for
+     * new records numbered after both.
+     */
+    synchronized List<Record> recover(long appliedSeq) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> files = Files.list(dir)) {
+            paths = files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }).sorted().toList();
+        }
+        List<Record> records = new ArrayList<>();
+        long lastSeq = appliedSeq;
+        for (Path path : paths) {
+            List<Record> read = read(path);
+            if (read.isEmpty()) {
+                // Created just before a crash; the new segment may reuse its name.
+                Files.delete(path);
+                continue;
+            }
+            String name = path.getFileName().toString();
+            segments.add(new Segment(Long.parseLong(name.substring(PREFIX.length(),
+                    name.length() - SUFFIX.length())), path));
+            for (Record record : read) {
+                lastSeq = Math.max(lastSeq, record.seq);
+                if (record.seq > appliedSeq) {
+                    records.add(record);
+                }
+            }
+        }
+        nextSeq = lastSeq + 1;
+        startSegment();
+        return records;
+    }
+
+    /** Appends a record and returns its sequence number and the position to {@link #sync} to. */
+    synchronized Appended append(byte[] payload) throws IOException {
+        if (channel == null || channel.size() >= segmentBytes) {
+            rotate();
+        }
+        long seq = nextSeq;
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + 8 + payload.length);
+        CRC32 crc = new CRC32();
+        ByteBuffer body = ByteBuffer.allocate(8 + payload.length).putLong(seq).put(payload).flip();
+        crc.update(body.duplicate());
+        record.putInt(body.remaining()).putInt((int) crc.getValue()).put(body).flip();
+
+        long start = channel.position();
+        try {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+        } catch (IOException e) {
+            // Never leave a torn record in front of later ones.
+            try {
+                channel.truncate(start);
+            } catch (IOException truncateFailed) {
+                closeChannel();
+            }
+            throw e;
+        }
+        nextSeq++;
+        written += record.limit();
+        return new Appended(seq, written);
+    }
+
+    /** Returns once everything appended up to position is on disk. */
+    void sync(long position) throws IOException {
+        if (synced >= position) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (synced >= position) {
+                return;
+            }
+            // Older segments were forced when they were closed.
+            long target = written;
+            FileChannel open = channel;
+            if (open == null) {
+                throw new IOException("Score journal segment is closed");
+            }
+            open.force(false);
+            synced = target;
+        }
+    }
+
+    /** Deletes closed segments whose records are all applied. */
+    synchronized void applied(long seq) {
+        while (!segments.isEmpty()) {
+            Segment oldest = segments.get(0);
+            long nextFirst = segments.size() > 1 ? segments.get(1).firstSeq : current.firstSeq;
+            if (nextFirst - 1 > seq) {
+                return;
+            }
+            segments.remove(0);
+            try {
+                Files.deleteIfExists(oldest.path);
+            } catch (IOException e) {
+                System.out.println("[ScoreJournal] Could not delete " + oldest.path + ": " + e.getMessage());
+            }
+        }
+    }
+
+    synchronized void close() {
+        if (channel != null) {
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            closeChannel();
+        }
+    }
+
+    // Caller holds this. The sync lock keeps a concurrent sync off the channel being closed.
+    private void rotate() throws IOException {
+        synchronized (syncLock) {
+            if (channel != null) {
+                channel.force(false);
+                synced = written;
+                closeChannel();
+            }
+            if (current != null) {
+                segments.add(current);
+            }
+            startSegment();
+        }
+    }
+
+    private void startSegment() throws IOException {
+        Path path = dir.resolve(String.format("%s%020d%s", PREFIX, nextSeq, SUFFIX));
+        current = new Segment(nextSeq, path);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private void closeChannel() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Already closed.
+        }
+        channel = null;
+    }
+
+    static List<Record> read(Path path) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path));
+        List<Record> records = new ArrayList<>();
+        while (in.remaining() >= HEADER_BYTES) {
+            int length = in.getInt();
+            int checksum = in.getInt();
+            if (length < 8 || length > in.remaining()) {
+                break;
+            }
+            ByteBuffer body = in.slice(in.position(), length);
+            CRC32 crc = new CRC32();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            long seq = body.getLong();
+            byte[] payload = new byte[length - 8];
+            body.get(payload);
+            records.add(new Record(seq, payload));
+            in.position(in.position() + length);
+        }
+        if (in.hasRemaining()) {
+            System.out.println("[ScoreJournal] Ignoring " + in.remaining() + " torn bytes at the end of " + path);
+        }
+        return records;
+    }
+
+    static class Record {
+        private final long seq;
+        private final byte[] payload;
+
+        Record(long seq, byte[] payload) {
+            this.seq = seq;
+            this.payload = payload;
+        }
+
+        long getSeq() {
+            return seq;
+        }
+
+        byte[] getPayload() {
+            return payload;
+        }
+    }
+
+    static class Appended {
+        private final long seq;
+        private final long position;
+
+        Appended(long seq, long position) {
+            this.seq = seq;
+            this.position = position;
+        }
+
+        long getSeq() {
+            return seq;
+        }
+
+        long getPosition() {
+            return position;
+        }
+    }
+
+    private static class Segment {
+        private final long firstSeq;
+        private final Path path;
+
+        Segment(long firstSeq, Path path) {
+            this.firstSeq = firstSeq;
+            this.path = path;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.stranded.backend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the scores table down to the longest leaderboard window. Scores from before
+ * the current weekly bucket are folded into user_best_scores and deleted, a chunk per
+ * transaction so the score writer is never locked out for long.
+ */
+@Component
+public class ScoreRetentionJob {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BestScoreService bestScoreService;
+    private final int chunkSize;
+    private final ScheduledExecutorService retentionExecutor;
+
+    public ScoreRetentionJob(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            BestScoreService bestScoreService,
+            @Value("${scores.retention.enabled:true}") boolean enabled,
+            @Value("${scores.retention.interval-minutes:60}") long intervalMinutes,
+            @Value("${scores.retention.chunk-size:1000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.bestScoreService = bestScoreService;
+        this.chunkSize = chunkSize;
+        this.retentionExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "score-retention");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (enabled) {
+            this.retentionExecutor.scheduleWithFixedDelay(this::run, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    /** Compacts every score older than the longest window; returns how many were removed. */
+    public int compact() {
+        LocalDateTime cutoff = LeaderboardWindow.WEEKLY.bucketStart(LocalDateTime.now());
+        long start = System.currentTimeMillis();
+        int total = 0;
+        int removed;
+        do {
+            removed = transactionTemplate.execute(status -> compactChunk(cutoff));
+            total += removed;
+        } while (removed == chunkSize);
+
+        if (total > 0) {
+            System.out.println("[ScoreRetentionJob] Compacted " + total + " scores older than " + cutoff + " in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        }
+        return total;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        retentionExecutor.shutdownNow();
+    }
+
+    private void run() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            // Whole chunks roll back, so the next run picks up where this one failed.
+            e.printStackTrace();
+        }
+    }
+
+    private int compactChunk(LocalDateTime cutoff) {
+        // Oldest ids first; new scores always land after the cutoff, so the range is stable.
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM (SELECT id FROM scores WHERE timestamp < ? "
+                + "ORDER BY id LIMIT ?) c", Long.class, cutoff, chunkSize);
+        if (maxId == null) {
+            return 0;
+        }
+        bestScoreService.foldScoresBefore(cutoff, maxId);
+        return jdbcTemplate.update("DELETE FROM scores WHERE timestamp < ? AND id <= ?", cutoff, maxId);
+    }
+}
@@ -1,34 +1,44 @@
 package com.stranded.backend.service;
 
-import com.stranded.backend.entity.Score;
-import com.stranded.backend.entity.User;
-import com.stranded.backend.repository.ScoreRepository;
-import com.stranded.backend.repository.UserRepository;
+import com.stranded.backend.repository.BestScore;
+import com.stranded.backend.repository.UserRef;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Service
 public class ScoreService {
 
-    private final ScoreRepository scoreRepository;
-    private final UserRepository userRepository;
+    private final ScoreIngestQueue scoreIngestQueue;
+    private final UserDirectory userDirectory;
+    private final BestScoreService bestScoreService;
 
-    public ScoreService(ScoreRepository scoreRepository, UserRepository userRepository) {
-        this.scoreRepository = scoreRepository;
-        this.userRepository = userRepository;
+    public ScoreService(ScoreIngestQueue scoreIngestQueue, UserDirectory userDirectory,
+            BestScoreService bestScoreService) {
+        this.scoreIngestQueue = scoreIngestQueue;
+        this.userDirectory = userDirectory;
+        this.bestScoreService = bestScoreService;
     }
 
-    public void submitScore(String username, int scoreValue, String gameMode, String timestampStr) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        Score score = new Score();
-        score.setUser(user);
-        score.setFinalScore(scoreValue);
-        score.setGameMode(gameMode);
-        score.setTimestamp(LocalDateTime.now());
+    /**
+     * Accepts a score for writing. The score is stored and ranked shortly after, by the
+     * ingest queue; returns false if the queue is full and the client should retry.
+     * A guest's users row is created with their first score.
+     */
+    public boolean submitScore(String username, boolean guest, int scoreValue, String gameMode,
+            String timestampStr) {
+        // Resolved to an id here, usually from cache; the writer never loads the user.
+        UserRef user = userDirectory.find(username);
+        if (user == null ? !guest : guest && !user.isGuest()) {
+            throw new RuntimeException("User not found");
+        }
+        return scoreIngestQueue.offer(user == null ? null : user.getId(), username, guest, scoreValue, gameMode,
+                LocalDateTime.now());
+    }
 
-        scoreRepository.save(score);
+    /** The player's best score in each mode they have played. */
+    public List<BestScore> getPersonalBests(String username) {
+        return bestScoreService.getBestScores(username);
     }
 }
@@ -0,0 +1,310 @@
+package com.stranded.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Which node holds a game player or chat user, for the whole cluster. Each node owns
+ * the entries of its own sessions and announces every change on the {@link MessageBus};
+ * every node keeps a copy of the other nodes' entries. Entries are grouped by kind
+ * ("game" player id -> room, "chat-user" username).
+ *
+ * A starting node asks the others for their entries. Nodes heartbeat every
+ * cluster.heartbeat-ms; one that misses cluster.node-timeout-ms, or says goodbye, is
+ * gone, and its entries are dropped as if removed. Listeners only hear about other
+ * nodes' entries and are called on the bus thread.
+ */
+@Component
+public class SessionDirectory {
+
+    static final String TOPIC = "cluster.directory";
+
+    private static final byte HELLO = 1;
+    private static final byte HEARTBEAT = 2;
+    private static final byte PUT = 3;
+    private static final byte REMOVE = 4;
+    private static final byte SNAPSHOT = 5;
+    private static final byte BYE = 6;
+
+    private final MessageBus bus;
+    private final long heartbeatMillis;
+    private final long nodeTimeoutMillis;
+
+    // kind -> key -> entry
+    private final Map<String, Map<String, Entry>> local = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Entry>> remote = new ConcurrentHashMap<>();
+    private final Map<String, Long> nodesLastSeen = new ConcurrentHashMap<>();
+    private final Map<String, List<Listener>> listeners = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService heartbeatExecutor;
+    private MessageBus.Subscription subscription;
+
+    public SessionDirectory(MessageBus bus,
+            @Value("${cluster.heartbeat-ms:2000}") long heartbeatMillis,
+            @Value("${cluster.node-timeout-ms:10000}") long nodeTimeoutMillis) {
+        this.bus = bus;
+        this.heartbeatMillis = heartbeatMillis;
+        this.nodeTimeoutMillis = nodeTimeoutMillis;
+        this.heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cluster-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!bus.isDistributed()) {
+            return;
+        }
+        subscription = bus.subscribe(TOPIC, this::onMessage);
+        send(HELLO, null, null, null);
+        heartbeatExecutor.scheduleWithFixedDelay(this::heartbeat, heartbeatMillis, heartbeatMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    public void put(String kind, String key, String value) {
+        local.computeIfAbsent(kind, k -> new ConcurrentHashMap<>())
+                .put(key, new Entry(kind, key, value, bus.getNodeId()));
+        if (bus.isDistributed()) {
+            send(PUT, kind, key, value);
+        }
+    }
+
+    public void remove(String kind, String key) {
+        Map<String, Entry> entries = local.get(kind);
+        if (entries != null && entries.remove(key) != null && bus.isDistributed()) {
+            send(REMOVE, kind, key, null);
+        }
+    }
+
+    /** This node's entry for the key if there is one, otherwise another node's; null if none. */
+    public Entry get(String kind, String key) {
+        Entry entry = find(local, kind, key);
+        return entry != null ? entry : find(remote, kind, key);
+    }
+
+    /** Registers a listener and replays the other nodes' current entries of the kind to it. */
+    public void addListener(String kind, Listener listener) {
+        listeners.computeIfAbsent(kind, k -> new CopyOnWriteArrayList<>()).add(listener);
+        Map<String, Entry> entries = remote.get(kind);
+        if (entries != null) {
+            entries.values().forEach(listener::onPut);
+        }
+    }
+
+    /** Nodes heard from within the timeout, this one excluded. */
+    public List<String> getRemoteNodes() {
+        return new ArrayList<>(nodesLastSeen.keySet());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeatExecutor.shutdownNow();
+        if (subscription != null) {
+            send(BYE, null, null, null);
+            subscription.cancel();
+        }
+    }
+
+    private void heartbeat() {
+        try {
+            send(HEARTBEAT, null, null, null);
+            long cutoff = System.currentTimeMillis() - nodeTimeoutMillis;
+            nodesLastSeen.forEach((node, lastSeen) -> {
+                if (lastSeen < cutoff && nodesLastSeen.remove(node, lastSeen)) {
+                    System.out.println("[SessionDirectory] Node " + node + " timed out");
+                    dropNode(node);
+                }
+            });
+        } catch (RuntimeException e) {
+            // An escaped exception would cancel the scheduled heartbeat for good.
+            e.printStackTrace();
+        }
+    }
+
+    private void onMessage(String topic, String originNode, byte[] payload) {
+        if (originNode.equals(bus.getNodeId())) {
+            return;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            byte type = in.readByte();
+            if (type == BYE) {
+                nodesLastSeen.remove(originNode);
+                dropNode(originNode);
+                return;
+            }
+            if (nodesLastSeen.put(originNode, System.currentTimeMillis()) == null && type != HELLO
+                    && type != SNAPSHOT) {
+                // A node we had timed out is back: ask for its entries again.
+                send(HELLO, null, null, null);
+            }
+            switch (type) {
+                case HELLO:
+                    sendSnapshot();
+                    break;
+                case PUT:
+                    remotePut(new Entry(in.readUTF(), in.readUTF(), in.readUTF(), originNode));
+                    break;
+                case REMOVE:
+                    remoteRemove(in.readUTF(), in.readUTF(), originNode);
+                    break;
+                case SNAPSHOT:
+                    int count = in.readInt();
+                    for (int i = 0; i < count; i++) {
+                        remotePut(new Entry(in.readUTF(), in.readUTF(), in.readUTF(), originNode));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        } catch (IOException e) {
+            System.out.println("[SessionDirectory] Ignoring malformed message from " + originNode);
+        }
+    }
+
+    private void remotePut(Entry entry) {
+        Entry previous = remote.computeIfAbsent(entry.kind, k -> new ConcurrentHashMap<>()).put(entry.key, entry);
+        if (previous == null || !previous.value.equals(entry.value) || !previous.node.equals(entry.node)) {
+            notify(entry.kind, listener -> listener.onPut(entry));
+        }
+    }
+
+    private void remoteRemove(String kind, String key, String node) {
+        Map<String, Entry> entries = remote.get(kind);
+        if (entries == null) {
+            return;
+        }
+        Entry[] removed = new Entry[1];
+        // Only the owning node's entry; the key may have moved to another node since.
+        entries.computeIfPresent(key, (k, entry) -> {
+            if (!entry.node.equals(node)) {
+                return entry;
+            }
+            removed[0] = entry;
+            return null;
+        });
+        if (removed[0] != null) {
+            notify(kind, listener -> listener.onRemove(removed[0]));
+        }
+    }
+
+    private void dropNode(String node) {
+        remote.forEach((kind, entries) -> {
+            for (Entry entry : new ArrayList<>(entries.values())) {
+                if (entry.node.equals(node)) {
+                    remoteRemove(kind, entry.key, node);
+                }
+            }
+        });
+    }
+
+    private void notify(String kind, Consumer<Listener> call) {
+        List<Listener> current = listeners.get(kind);
+        if (current == null) {
+            return;
+        }
+        for (Listener listener : current) {
+            try {
+                call.accept(listener);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void sendSnapshot() {
+        List<Entry> entries = new ArrayList<>();
+        local.values().forEach(byKey -> entries.addAll(byKey.values()));
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(SNAPSHOT);
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                out.writeUTF(entry.kind);
+                out.writeUTF(entry.key);
+                out.writeUTF(entry.value);
+            }
+            bus.publish(TOPIC, bytes.toByteArray());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void send(byte type, String kind, String key, String value) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            if (kind != null) {
+                out.writeUTF(kind);
+                out.writeUTF(key);
+            }
+            if (value != null) {
+                out.writeUTF(value);
+            }
+            bus.publish(TOPIC, bytes.toByteArray());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Entry find(Map<String, Map<String, Entry>> entries, String kind, String key) {
+        Map<String, Entry> byKey = entries.get(kind);
+        return byKey != null ? byKey.get(key) : null;
+    }
+
+    public interface Listener {
+        void onPut(Entry entry);
+
+        void onRemove(Entry entry);
+    }
+
+    public static class Entry {
+        private final String kind;
+        private final String key;
+        private final String value;
+        private final String node;
+
+        Entry(String kind, String key, String value, String node) {
+            this.kind = kind;
+            this.key = key;
+            this.value = value;
+            this.node = node;
+        }
+
+        public String getKind() {
+            return kind;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public String getNode() {
+            return node;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.stranded.backend.service;
+
+import com.stranded.backend.entity.User;
+import com.stranded.backend.repository.UserRef;
+import com.stranded.backend.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves usernames to (id, guest) without loading users. Recently used names are
+ * kept in a bounded LRU cache; a Bloom filter of every stored name answers "no such
+ * user" without a query in the common case.
+ *
+ * Writes go through here: callers report new, renamed and deleted users so the
+ * cache never hands out a stale id. With a distributed {@link MessageBus} the reports
+ * are passed on to the other nodes, so a user created on one node is known to the
+ * Bloom filter of every node.
+ *
+ * Guests who registered are remembered until their old guest tokens expire, so a
+ * token still held by the client cannot recreate the guest.
+ */
+@Service
+public class UserDirectory {
+
+    static final String TOPIC = "users.directory";
+
+    private static final int LOAD_PAGE_SIZE = 5000;
+    private static final byte SAVED = 1;
+    private static final byte EVICTED = 2;
+    private static final byte UPGRADED = 3;
+
+    private final UserRepository userRepository;
+    private final MessageBus bus;
+    private final int expectedUsers;
+    private final double falsePositiveRate;
+    private final long tokenLifetimeMillis;
+    private final Map<String, UserRef> cache;
+    // Upgraded guest name -> when the last token issued to it expires.
+    private final Map<String, Long> upgradedGuests = new ConcurrentHashMap<>();
+    private volatile BloomFilter knownNames;
+    // Names saved on other nodes while the filter was still loading; guarded by this.
+    private List<String> savedDuringLoad = new ArrayList<>();
+    private MessageBus.Subscription subscription;
+
+    public UserDirectory(UserRepository userRepository, MessageBus bus,
+            @Value("${users.cache.max-entries:10000}") int maxEntries,
+            @Value("${users.bloom.expected-users:100000}") int expectedUsers,
+            @Value("${users.bloom.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${jwt.expiration}") long tokenLifetimeMillis) {
+        this.userRepository = userRepository;
+        this.bus = bus;
+        this.expectedUsers = expectedUsers;
+        this.falsePositiveRate = falsePositiveRate;
+        this.tokenLifetimeMillis = tokenLifetimeMillis;
+        this.cache = new LinkedHashMap<String, UserRef>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserRef> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @PostConstruct
+    public void loadNames() {
+        if (bus.isDistributed()) {
+            // Before the load, so a user created meanwhile on another node is not missed.
+            subscription = bus.subscribe(TOPIC, this::onMessage);
+        }
+        long start = System.currentTimeMillis();
+        List<String> names = new ArrayList<>();
+        // Keyset rather than OFFSET paging: a user deleted mid-load would otherwise shift
+        // the pages and skip a name, and a skipped name is a Bloom filter false negative.
+        long after = 0;
+        List<UserRef> page;
+        do {
+            page = userRepository.findRefsAfter(after, PageRequest.of(0, LOAD_PAGE_SIZE));
+            for (UserRef ref : page) {
+                names.add(ref.getUsername());
+            }
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == LOAD_PAGE_SIZE);
+
+        // Leave room to grow so the false positive rate holds until the next restart.
+        BloomFilter filter = new BloomFilter(Math.max(expectedUsers, names.size() * 2L), falsePositiveRate);
+        names.forEach(filter::put);
+        synchronized (this) {
+            savedDuringLoad.forEach(filter::put);
+            savedDuringLoad = null;
+            knownNames = filter;
+        }
+        // Guests upgraded before this node started may still hold live guest tokens.
+        LocalDateTime since = LocalDateTime.now().minusNanos(tokenLifetimeMillis * 1_000_000);
+        userRepository.findGuestsUpgradedSince(since).forEach(this::retireGuest);
+
+        System.out.println("[UserDirectory] Indexed " + names.size() + " usernames in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /** The user with this name, or null if there is none. */
+    public UserRef find(String username) {
+        if (username == null) {
+            return null;
+        }
+        UserRef cached = cached(username);
+        if (cached != null) {
+            return cached;
+        }
+        if (!knownNames.mightContain(username)) {
+            return null;
+        }
+        UserRef ref = userRepository.findRefByUsername(username).orElse(null);
+        if (ref != null) {
+            cache(ref);
+        }
+        return ref;
+    }
+
+    /** Resolves many names with at most one query; unknown names are left out. */
+    public Map<String, UserRef> findAll(Collection<String> usernames) {
+        Map<String, UserRef> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String username : usernames) {
+            UserRef cached = cached(username);
+            if (cached != null) {
+                found.put(username, cached);
+            } else if (knownNames.mightContain(username)) {
+                missing.add(username);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (UserRef ref : userRepository.findRefsByUsernameIn(missing)) {
+                cache(ref);
+                found.put(ref.getUsername(), ref);
+            }
+        }
+        return found;
+    }
+
+    public boolean exists(String username) {
+        return find(username) != null;
+    }
+
+    /** False means the name is certainly not taken; true means it probably is. */
+    public boolean mightExist(String username) {
+        return username != null && (cached(username) != null || knownNames.mightContain(username));
+    }
+
+    /** Call after a user row is committed under a new name. */
+    public void saved(User user) {
+        knownNames.put(user.getUsername());
+        cache(new UserRef(user.getId(), user.getUsername(), user.isGuest()));
+        if (bus.isDistributed()) {
+            publish(SAVED, user.getUsername());
+        }
+    }
+
+    /** Call after a user row is committed under a different name than before. */
+    public void renamed(String oldUsername, User user) {
+        evict(oldUsername);
+        saved(user);
+    }
+
+    /** Call after a guest's row is committed as a registered user; the guest's tokens stop working. */
+    public void upgraded(String guestName, User user) {
+        retireGuest(guestName);
+        renamed(guestName, user);
+        if (bus.isDistributed()) {
+            publish(UPGRADED, guestName);
+        }
+    }
+
+    /** True if this guest has since registered, so tokens issued to it must be refused. */
+    public boolean isUpgradedGuest(String guestName) {
+        Long expiresAt = upgradedGuests.get(guestName);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (expiresAt <= System.currentTimeMillis()) {
+            upgradedGuests.remove(guestName, expiresAt);
+            return false;
+        }
+        return true;
+    }
+
+    /** Call after a user row is deleted or changed outside this class. */
+    public void evict(String username) {
+        evictLocal(username);
+        if (bus.isDistributed()) {
+            publish(EVICTED, username);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    // Runs on the bus thread. Other nodes' cached refs for the name are dropped rather
+    // than replaced, so the next lookup reads the committed row.
+    private void onMessage(String topic, String originNode, byte[] payload) {
+        if (originNode.equals(bus.getNodeId())) {
+            return;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            byte type = in.readByte();
+            String username = in.readUTF();
+            if (type == SAVED) {
+                remember(username);
+            } else if (type == UPGRADED) {
+                retireGuest(username);
+            }
+            evictLocal(username);
+        } catch (IOException e) {
+            System.out.println("[UserDirectory] Ignoring malformed message from node " + originNode);
+        }
+    }
+
+    private void remember(String username) {
+        synchronized (this) {
+            if (savedDuringLoad != null) {
+                savedDuringLoad.add(username);
+                return;
+            }
+        }
+        knownNames.put(username);
+    }
+
+    private void retireGuest(String guestName) {
+        long now = System.currentTimeMillis();
+        // Upgrades are rare, so dropping expired names here keeps the map small enough.
+        upgradedGuests.values().removeIf(expiresAt -> expiresAt <= now);
+        upgradedGuests.put(guestName, now + tokenLifetimeMillis);
+    }
+
+    private void publish(byte type, String username) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            out.writeUTF(username);
+            bus.publish(TOPIC, bytes.toByteArray());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void evictLocal(String username) {
+        synchronized (cache) {
+            cache.remove(username);
+        }
+    }
+
+    private UserRef cached(String username) {
+        synchronized (cache) {
+            return cache.get(username);
+        }
+    }
+
+    private void cache(UserRef ref) {
+        synchronized (cache) {
+            cache.put(ref.getUsername(), ref);
+        }
+    }
+}
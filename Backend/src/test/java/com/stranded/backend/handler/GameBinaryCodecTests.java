@@ -0,0 +1,243 @@
+package com.stranded.backend.handler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameBinaryCodecTests {
+
+    private static final double POSITION_EPSILON = 1.0 / GameBinaryCodec.POSITION_SCALE;
+    private static final double VELOCITY_EPSILON = 1.0 / GameBinaryCodec.VELOCITY_SCALE;
+
+    @Test
+    void moveRoundTripsWithinQuantization() {
+        ByteBuffer frame = GameBinaryCodec.encodeMove(123.456, -78.9, -4.321, false);
+
+        assertEquals(GameBinaryCodec.MOVE, GameBinaryCodec.readType(frame));
+        PlayerMove move = new PlayerMove();
+        GameBinaryCodec.readMove(frame, move);
+
+        assertEquals(123.456, move.getX(), POSITION_EPSILON);
+        assertEquals(-78.9, move.getY(), POSITION_EPSILON);
+        assertEquals(-4.321, move.getVelX(), VELOCITY_EPSILON);
+        assertFalse(move.isGrounded());
+        assertFalse(frame.hasRemaining());
+    }
+
+    @Test
+    void moveClampsOutOfRangeVelocity() {
+        ByteBuffer frame = GameBinaryCodec.encodeMove(0, 0, 1_000_000, true);
+        GameBinaryCodec.readType(frame);
+        PlayerMove move = new PlayerMove();
+        GameBinaryCodec.readMove(frame, move);
+
+        assertEquals(Short.MAX_VALUE / (double) GameBinaryCodec.VELOCITY_SCALE, move.getVelX());
+        assertTrue(move.isGrounded());
+    }
+
+    @Test
+    void joinRoundTripsRoomId() {
+        ByteBuffer frame = GameBinaryCodec.encodeJoin("arena-\u00fc");
+
+        assertEquals(GameBinaryCodec.JOIN, GameBinaryCodec.readType(frame));
+        assertEquals("arena-\u00fc", GameBinaryCodec.readJoin(frame));
+    }
+
+    @Test
+    void playerEventsRoundTripHandles() {
+        ByteBuffer join = GameBinaryCodec.encodePlayerEvent(GameBinaryCodec.JOIN, 65535);
+        assertEquals(GameBinaryCodec.JOIN, GameBinaryCodec.readType(join));
+        assertEquals(65535, GameBinaryCodec.readHandle(join));
+
+        ByteBuffer leave = GameBinaryCodec.encodePlayerEvent(GameBinaryCodec.LEAVE, 7);
+        assertEquals(GameBinaryCodec.LEAVE, GameBinaryCodec.readType(leave));
+        assertEquals(7, GameBinaryCodec.readHandle(leave));
+
+        ByteBuffer welcome = GameBinaryCodec.encodeWelcome(42);
+        assertEquals(GameBinaryCodec.WELCOME, GameBinaryCodec.readType(welcome));
+        assertEquals(42, GameBinaryCodec.readHandle(welcome));
+
+        ByteBuffer error = GameBinaryCodec.encodeError(GameBinaryCodec.ERROR_ROOM_FULL);
+        assertEquals(GameBinaryCodec.ERROR, GameBinaryCodec.readType(error));
+        assertEquals(GameBinaryCodec.ERROR_ROOM_FULL, GameBinaryCodec.readError(error));
+    }
+
+    @Test
+    void batchRoundTripsMovesAndInterestChanges() {
+        List<PlayerMove> moves = List.of(
+                new PlayerMove(1, 10.5, 20.25, 3.5, true),
+                new PlayerMove(300, -1000.0, 0.0, -0.01, false));
+
+        ByteBuffer frame = GameBinaryCodec.encodeBatch(moves, List.of(300), List.of(9, 12));
+
+        assertEquals(GameBinaryCodec.BATCH, GameBinaryCodec.readType(frame));
+        GameBinaryCodec.Batch batch = GameBinaryCodec.readBatch(frame);
+        assertEquals(2, batch.getMoves().size());
+        for (int i = 0; i < moves.size(); i++) {
+            PlayerMove expected = moves.get(i);
+            PlayerMove actual = batch.getMoves().get(i);
+            assertEquals(expected.getHandle(), actual.getHandle());
+            assertEquals(expected.getX(), actual.getX(), POSITION_EPSILON);
+            assertEquals(expected.getY(), actual.getY(), POSITION_EPSILON);
+            assertEquals(expected.getVelX(), actual.getVelX(), VELOCITY_EPSILON);
+            assertEquals(expected.isGrounded(), actual.isGrounded());
+        }
+        assertEquals(List.of(300), batch.getEntered());
+        assertEquals(List.of(9, 12), batch.getLeft());
+        assertFalse(frame.hasRemaining());
+    }
+
+    @Test
+    void ackRoundTripsUnsignedSequence() {
+        ByteBuffer small = GameBinaryCodec.encodeAck(42);
+        assertEquals(GameBinaryCodec.ACK, GameBinaryCodec.readType(small));
+        assertEquals(42L, GameBinaryCodec.readAck(small));
+        assertFalse(small.hasRemaining());
+
+        ByteBuffer large = GameBinaryCodec.encodeAck(3_000_000_000L);
+        GameBinaryCodec.readType(large);
+        assertEquals(3_000_000_000L, GameBinaryCodec.readAck(large));
+
+        ByteBuffer truncated = GameBinaryCodec.encodeAck(7);
+        truncated.limit(truncated.limit() - 1);
+        GameBinaryCodec.readType(truncated);
+        assertThrows(IllegalArgumentException.class, () -> GameBinaryCodec.readAck(truncated));
+    }
+
+    @Test
+    void deltaCarriesOnlyMaskedFields() {
+        List<PlayerMove> moves = List.of(
+                new PlayerMove(1, 10.5, 20.25, 3.5, true),
+                new PlayerMove(2, 99.0, -40.0, -2.0, false),
+                new PlayerMove(3, 5.0, 6.0, 7.0, true));
+        int[] fields = {
+                SnapshotTracker.ALL_FIELDS,
+                SnapshotTracker.FIELD_X,
+                SnapshotTracker.FIELD_GROUNDED };
+
+        ByteBuffer frame = GameBinaryCodec.encodeDelta(3_000_000_000L, false, moves, fields, List.of(3), List.of(8));
+
+        // Header, seq, flags, count; records of handle + mask + present fields; entered and left lists.
+        int expected = 2 + 4 + 1 + 2 + (3 + 4 + 4 + 2) + (3 + 4) + 3 + (2 + 2) + (2 + 2);
+        assertEquals(expected, frame.remaining());
+        assertEquals(GameBinaryCodec.DELTA, GameBinaryCodec.readType(frame));
+        GameBinaryCodec.Batch delta = GameBinaryCodec.readDelta(frame);
+        assertFalse(frame.hasRemaining());
+
+        assertEquals(3_000_000_000L, delta.getSeq());
+        assertFalse(delta.isFull());
+        assertEquals(List.of(SnapshotTracker.ALL_FIELDS, SnapshotTracker.FIELD_X, SnapshotTracker.FIELD_GROUNDED),
+                delta.getFields());
+
+        PlayerMove all = delta.getMoves().get(0);
+        assertEquals(1, all.getHandle());
+        assertEquals(10.5, all.getX(), POSITION_EPSILON);
+        assertEquals(20.25, all.getY(), POSITION_EPSILON);
+        assertEquals(3.5, all.getVelX(), VELOCITY_EPSILON);
+        assertTrue(all.isGrounded());
+
+        PlayerMove xOnly = delta.getMoves().get(1);
+        assertEquals(2, xOnly.getHandle());
+        assertEquals(99.0, xOnly.getX(), POSITION_EPSILON);
+        assertEquals(0.0, xOnly.getY());
+        assertEquals(0.0, xOnly.getVelX());
+        assertFalse(xOnly.isGrounded());
+
+        PlayerMove groundedOnly = delta.getMoves().get(2);
+        assertEquals(3, groundedOnly.getHandle());
+        assertEquals(0.0, groundedOnly.getX());
+        assertEquals(0.0, groundedOnly.getY());
+        assertEquals(0.0, groundedOnly.getVelX());
+        assertTrue(groundedOnly.isGrounded());
+
+        assertEquals(List.of(3), delta.getEntered());
+        assertEquals(List.of(8), delta.getLeft());
+    }
+
+    @Test
+    void fullDeltaSetsTheFullFlag() {
+        List<PlayerMove> moves = List.of(new PlayerMove(4, 1.0, 2.0, 0.5, false));
+        ByteBuffer frame = GameBinaryCodec.encodeDelta(1, true, moves, new int[] { SnapshotTracker.ALL_FIELDS },
+                List.of(), List.of());
+
+        GameBinaryCodec.readType(frame);
+        GameBinaryCodec.Batch delta = GameBinaryCodec.readDelta(frame);
+
+        assertTrue(delta.isFull());
+        assertEquals(1L, delta.getSeq());
+        assertEquals(1, delta.getMoves().size());
+        assertTrue(delta.getEntered().isEmpty());
+        assertTrue(delta.getLeft().isEmpty());
+
+        ByteBuffer truncated = GameBinaryCodec.encodeDelta(2, true, moves,
+                new int[] { SnapshotTracker.ALL_FIELDS }, List.of(), List.of());
+        truncated.limit(truncated.limit() - 3);
+        GameBinaryCodec.readType(truncated);
+        assertThrows(IllegalArgumentException.class, () -> GameBinaryCodec.readDelta(truncated));
+    }
+
+    @Test
+    void rejectsUnknownVersionAndTruncatedFrames() {
+        ByteBuffer wrongVersion = ByteBuffer.wrap(new byte[] { 99, GameBinaryCodec.MOVE });
+        assertThrows(IllegalArgumentException.class, () -> GameBinaryCodec.readType(wrongVersion));
+
+        ByteBuffer truncated = GameBinaryCodec.encodeMove(1, 2, 3, true);
+        truncated.limit(truncated.limit() - 3);
+        GameBinaryCodec.readType(truncated);
+        assertThrows(IllegalArgumentException.class, () -> GameBinaryCodec.readMove(truncated, new PlayerMove()));
+    }
+
+    @Test
+    void binaryMoveIsSmallerThanJsonPath() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        String inbound = "{\"type\":\"MOVE\",\"x\":1234.5678,\"y\":-98.765,\"velX\":4.25,\"grounded\":true}";
+        ByteBuffer binaryInbound = GameBinaryCodec.encodeMove(1234.5678, -98.765, 4.25, true);
+
+        String jsonOutbound = jsonRelay(objectMapper, inbound, UUID.randomUUID().toString());
+        ByteBuffer binaryOutbound = binaryRelay(binaryInbound, new PlayerMove());
+        int jsonBytes = jsonOutbound.getBytes(StandardCharsets.UTF_8).length;
+        int binaryBytes = binaryOutbound.remaining();
+        assertTrue(binaryBytes * 4 < jsonBytes, "binary " + binaryBytes + "B vs json " + jsonBytes + "B");
+
+        GameBinaryCodec.readType(binaryOutbound);
+        PlayerMove relayed = GameBinaryCodec.readBatch(binaryOutbound).getMoves().get(0);
+        assertEquals(17, relayed.getHandle());
+        assertEquals(1234.5678, relayed.getX(), POSITION_EPSILON);
+        assertEquals(-98.765, relayed.getY(), POSITION_EPSILON);
+        assertEquals(4.25, relayed.getVelX(), VELOCITY_EPSILON);
+        assertTrue(relayed.isGrounded());
+    }
+
+    // Mirrors the JSON handler: parse the inbound frame and serialize the outbound MOVE.
+    private static String jsonRelay(ObjectMapper objectMapper, String inbound, String playerId) throws Exception {
+        JsonNode json = objectMapper.readTree(inbound);
+        return objectMapper.writeValueAsString(Map.of(
+                "type", "MOVE",
+                "id", playerId,
+                "x", json.get("x").asDouble(),
+                "y", json.get("y").asDouble(),
+                "velX", json.get("velX").asDouble(),
+                "grounded", json.get("grounded").asBoolean()));
+    }
+
+    private static ByteBuffer binaryRelay(ByteBuffer inbound, PlayerMove move) {
+        GameBinaryCodec.readType(inbound);
+        GameBinaryCodec.readMove(inbound, move);
+        move.setHandle(17);
+        List<PlayerMove> moves = new ArrayList<>(1);
+        moves.add(move);
+        return GameBinaryCodec.encodeBatch(moves, List.of(), List.of());
+    }
+}
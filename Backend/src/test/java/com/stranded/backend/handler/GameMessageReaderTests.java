@@ -0,0 +1,82 @@
+package com.stranded.backend.handler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameMessageReaderTests {
+
+    private static final String MOVE = "{\"type\":\"MOVE\",\"x\":1234.5678,\"y\":-98.765,\"velX\":4.25,\"grounded\":false}";
+
+    @Test
+    void readsMoveFields() throws Exception {
+        GameMessageReader reader = new GameMessageReader();
+        reader.read(MOVE);
+
+        assertEquals(GameMessageReader.MOVE, reader.type);
+        assertEquals(1234.5678, reader.x);
+        assertEquals(-98.765, reader.y);
+        assertEquals(4.25, reader.velX);
+        assertFalse(reader.grounded);
+    }
+
+    @Test
+    void resetsFieldsBetweenMessages() throws Exception {
+        GameMessageReader reader = new GameMessageReader();
+        reader.read(MOVE);
+        reader.read("{ \"seq\" : 42, \"type\" : \"ACK\" }");
+
+        assertEquals(GameMessageReader.ACK, reader.type);
+        assertTrue(reader.hasSeq);
+        assertEquals(42, reader.seq);
+        assertEquals(0, reader.x);
+        assertTrue(reader.grounded);
+
+        reader.read("{\"type\":\"JOIN\"}");
+        assertEquals(GameMessageReader.JOIN, reader.type);
+        assertNull(reader.room);
+        assertFalse(reader.hasSeq);
+    }
+
+    @Test
+    void fallsBackToParserForEscapesNestingAndCoercion() throws Exception {
+        GameMessageReader reader = new GameMessageReader();
+
+        reader.read("{\"type\":\"JOIN\",\"room\":\"arena \\\"2\\\"\"}");
+        assertEquals(GameMessageReader.JOIN, reader.type);
+        assertEquals("arena \"2\"", reader.room);
+
+        reader.read("{\"meta\":{\"type\":\"ACK\"},\"type\":\"MOVE\",\"x\":\"7.5\",\"grounded\":\"false\"}");
+        assertEquals(GameMessageReader.MOVE, reader.type);
+        assertEquals(7.5, reader.x);
+        assertFalse(reader.grounded);
+
+        reader.read("{\"type\":\"CHAT\",\"text\":[1,2,3]}");
+        assertEquals(GameMessageReader.UNKNOWN, reader.type);
+
+        reader.read("[\"MOVE\"]");
+        assertEquals(GameMessageReader.UNKNOWN, reader.type);
+    }
+
+    @Test
+    void numbersMatchJdkParsing() throws Exception {
+        GameMessageReader reader = new GameMessageReader();
+        Random random = new Random(7);
+        String[] fixed = {"0", "-0.0", "0.001", "1e3", "-2.5E-3", "123456789012345678901234", "1.7976931348623157e308",
+                "4.9e-324", "0.30000000000000004", "9007199254740993"};
+        for (String value : fixed) {
+            reader.read("{\"type\":\"MOVE\",\"x\":" + value + "}");
+            assertEquals(Double.parseDouble(value), reader.x, value);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            String value = Float.toString((random.nextFloat() - 0.5f) * 10_000f);
+            reader.read("{\"type\":\"MOVE\",\"x\":" + value + "}");
+            assertEquals(Double.parseDouble(value), reader.x, value);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.stranded.backend.handler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotTrackerTests {
+
+    @Test
+    void newTrackerStartsWithAFullSnapshot() {
+        SnapshotTracker tracker = new SnapshotTracker(4);
+        GamePlayer player = player("a", 10, 20, 1, true);
+
+        assertTrue(tracker.needsFullSnapshot());
+        assertEquals(SnapshotTracker.ALL_FIELDS, tracker.changedFields("a", player.state));
+
+        tracker.recordSent(1, List.of(player), new int[] { SnapshotTracker.ALL_FIELDS });
+        assertFalse(tracker.needsFullSnapshot());
+    }
+
+    @Test
+    void onlyChangedFieldsAreSentAfterAnAck() {
+        SnapshotTracker tracker = new SnapshotTracker(4);
+        GamePlayer player = player("a", 10, 20, 1, true);
+        tracker.recordSent(1, List.of(player), new int[] { SnapshotTracker.ALL_FIELDS });
+        tracker.acknowledge(1);
+
+        assertEquals(0, tracker.changedFields("a", player.state));
+        assertTrue(tracker.unackedPlayers().isEmpty());
+
+        player.state.set(11, 20, 1, true);
+        assertEquals(SnapshotTracker.FIELD_X, tracker.changedFields("a", player.state));
+
+        player.state.set(11, 20, 1, false);
+        assertEquals(SnapshotTracker.FIELD_X | SnapshotTracker.FIELD_GROUNDED,
+                tracker.changedFields("a", player.state));
+    }
+
+    @Test
+    void unackedFieldIsResentUntilAcknowledged() {
+        SnapshotTracker tracker = new SnapshotTracker(4);
+        GamePlayer player = player("a", 10, 20, 1, true);
+        tracker.recordSent(1, List.of(player), new int[] { SnapshotTracker.ALL_FIELDS });
+        tracker.acknowledge(1);
+
+        player.state.set(10, 25, 1, true);
+        tracker.recordSent(2, List.of(player), new int[] { SnapshotTracker.FIELD_Y });
+        assertEquals(Set.of("a"), tracker.unackedPlayers());
+
+        // Sent but not acked: the client may not have it, so Y keeps going out.
+        assertEquals(SnapshotTracker.FIELD_Y, tracker.changedFields("a", player.state));
+
+        // An ACK for an older frame changes nothing.
+        tracker.acknowledge(1);
+        assertEquals(SnapshotTracker.FIELD_Y, tracker.changedFields("a", player.state));
+
+        tracker.acknowledge(2);
+        assertEquals(0, tracker.changedFields("a", player.state));
+        assertTrue(tracker.unackedPlayers().isEmpty());
+    }
+
+    @Test
+    void lateAckCoversEveryEarlierFrame() {
+        SnapshotTracker tracker = new SnapshotTracker(8);
+        GamePlayer player = player("a", 0, 0, 0, false);
+        tracker.recordSent(1, List.of(player), new int[] { SnapshotTracker.ALL_FIELDS });
+        for (int seq = 2; seq <= 4; seq++) {
+            player.state.set(seq, 0, 0, false);
+            tracker.recordSent(seq, List.of(player), new int[] { SnapshotTracker.FIELD_X });
+        }
+
+        // The ACK for frame 3 is lost; the one for frame 4 still settles frames 1 to 4.
+        tracker.acknowledge(4);
+
+        assertEquals(0, tracker.changedFields("a", player.state));
+        assertTrue(tracker.unackedPlayers().isEmpty());
+        assertFalse(tracker.needsFullSnapshot());
+    }
+
+    @Test
+    void lostAcksForceTheNextSnapshotToBeFull() {
+        SnapshotTracker tracker = new SnapshotTracker(3);
+        GamePlayer player = player("a", 10, 20, 1, true);
+        tracker.recordSent(1, List.of(player), new int[] { SnapshotTracker.ALL_FIELDS });
+        tracker.acknowledge(1);
+        for (int seq = 2; seq <= 4; seq++) {
+            tracker.recordSent(seq, List.of(player), new int[] { 0 });
+        }
+
+        // Three frames in flight without an ACK: the client is too far behind.
+        tracker.acknowledge(1);
+
+        assertTrue(tracker.needsFullSnapshot());
+        assertEquals(SnapshotTracker.ALL_FIELDS, tracker.changedFields("a", player.state));
+        assertTrue(tracker.unackedPlayers().isEmpty());
+    }
+
+    @Test
+    void forgottenPlayerIsSentInFullAgain() {
+        SnapshotTracker tracker = new SnapshotTracker(4);
+        GamePlayer player = player("a", 10, 20, 1, true);
+        tracker.recordSent(1, List.of(player), new int[] { SnapshotTracker.ALL_FIELDS });
+        tracker.acknowledge(1);
+
+        tracker.forget("a");
+
+        assertEquals(SnapshotTracker.ALL_FIELDS, tracker.changedFields("a", player.state));
+    }
+
+    private static GamePlayer player(String id, double x, double y, double velX, boolean grounded) {
+        GamePlayer player = new GamePlayer(null, null, id, 1, true, null);
+        player.state.set(x, y, velX, grounded);
+        return player;
+    }
+}
@@ -0,0 +1,218 @@
+package com.stranded.backend.service;
+
+import com.stranded.backend.entity.ChatMessage;
+import com.stranded.backend.repository.ChatMessageRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ChatArchiveTests {
+
+    private static final int CHUNK_SIZE = 100;
+    private static final RowMapper<ChatMessage> ROW = (rs, rowNum) -> {
+        ChatMessage message = new ChatMessage();
+        message.setId(rs.getLong("id"));
+        message.setChannel(rs.getString("channel"));
+        message.setSender(rs.getString("sender"));
+        message.setContent(rs.getString("content"));
+        message.setTimestamp(rs.getTimestamp("timestamp").toLocalDateTime());
+        return message;
+    };
+
+    @TempDir
+    Path directory;
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void createTable() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:chat-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE chat_messages (id BIGINT PRIMARY KEY, channel VARCHAR(255), "
+                + "sender VARCHAR(255), content VARCHAR(255), timestamp TIMESTAMP(6))");
+    }
+
+    @AfterEach
+    void dropDatabase() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Test
+    void rowsPastRetentionMoveIntoSegments() throws IOException {
+        insert(1, 250, LocalDateTime.now().minusDays(30));
+        insert(251, 10, LocalDateTime.now().minusHours(1));
+        ChatArchive archive = archive(1 << 20);
+
+        assertEquals(250, archive.rollOut());
+
+        assertEquals(3, segmentFiles().size());
+        assertEquals(10, rowCount());
+        assertEquals(251L, jdbcTemplate.queryForObject("SELECT MIN(id) FROM chat_messages", Long.class));
+        assertEquals(0, archive.rollOut());
+        List<ChatMessage> archived = new ArrayList<>();
+        archive.readBefore("global", null, Long.MAX_VALUE, 1000, archived);
+        assertEquals(125, archived.size());
+        assertEquals(249L, archived.get(0).getId());
+    }
+
+    @Test
+    void compactionMergesSmallSegmentsInOrder() throws IOException {
+        insert(1, 250, LocalDateTime.now().minusDays(30));
+        ChatArchive archive = archive(1 << 20);
+        archive.rollOut();
+        assertEquals(3, segmentFiles().size());
+
+        assertEquals(2, archive.compact());
+
+        List<Path> files = segmentFiles();
+        assertEquals(1, files.size());
+        List<ChatMessage> merged = ChatSegment.open(files.get(0)).readAll();
+        assertEquals(250, merged.size());
+        for (int i = 0; i < merged.size(); i++) {
+            assertEquals(i + 1L, merged.get(i).getId());
+        }
+        assertEquals(250, allArchived(archive).size());
+        assertEquals(0, archive.compact());
+    }
+
+    @Test
+    void inputLeftByACrashedCompactionIsDropped() throws IOException {
+        insert(1, 250, LocalDateTime.now().minusDays(30));
+        ChatArchive archive = archive(1 << 20);
+        archive.rollOut();
+        Path input = segmentFiles().get(1);
+        byte[] inputBytes = Files.readAllBytes(input);
+        archive.compact();
+        archive.shutdown();
+
+        // As if the process died after writing the merged segment but before deleting this input.
+        Files.write(input, inputBytes);
+        ChatArchive reopened = archive(1 << 20);
+
+        assertEquals(1, segmentFiles().size());
+        List<ChatMessage> archived = allArchived(reopened);
+        assertEquals(250, archived.size());
+        assertEquals(250, ids(archived).size());
+    }
+
+    @Test
+    void historyPagesFromTableIntoArchive() throws IOException {
+        insert(1, 250, LocalDateTime.now().minusDays(30));
+        insert(251, 60, LocalDateTime.now().minusHours(1));
+        ChatArchive archive = archive(1 << 20);
+        archive.rollOut();
+        archive.compact();
+        ChatHistoryService history = new ChatHistoryService(repository(), archive);
+
+        List<Long> seen = new ArrayList<>();
+        List<ChatMessage> page = history.getHistory("global", null, 20);
+        while (!page.isEmpty()) {
+            List<Long> pageIds = new ArrayList<>();
+            for (ChatMessage message : page) {
+                assertEquals("global", message.getChannel());
+                pageIds.add(message.getId());
+            }
+            // Each page is oldest first and ends right before the previous one.
+            seen.addAll(0, pageIds);
+            page = history.getHistory("global", page.get(0).getId(), 20);
+        }
+
+        List<Long> expected = new ArrayList<>();
+        for (long id = 1; id <= 310; id += 2) {
+            expected.add(id);
+        }
+        assertEquals(expected, seen);
+    }
+
+    private ChatArchive archive(long segmentTargetBytes) throws IOException {
+        ChatArchive archive = new ChatArchive(jdbcTemplate, new DataSourceTransactionManager(dataSource), false,
+                directory.toString(), 7, 60, CHUNK_SIZE, 16, segmentTargetBytes);
+        archive.open();
+        return archive;
+    }
+
+    // Ids first..first+count-1, a second apart; odd ids in global, even ids in room:a.
+    private void insert(long first, int count, LocalDateTime start) {
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long id = first + i;
+            rows.add(new Object[] { id, id % 2 == 0 ? "room:a" : "global", "player" + (id % 7), "message " + id,
+                    start.plusSeconds(i).withNano(0) });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO chat_messages (id, channel, sender, content, timestamp) "
+                + "VALUES (?, ?, ?, ?, ?)", rows);
+    }
+
+    private int rowCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chat_messages", Integer.class);
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(ChatSegment.SUFFIX)).sorted().toList();
+        }
+    }
+
+    private static List<ChatMessage> allArchived(ChatArchive archive) {
+        List<ChatMessage> messages = new ArrayList<>();
+        archive.readBefore("global", null, Long.MAX_VALUE, 1000, messages);
+        archive.readBefore("room:a", null, Long.MAX_VALUE, 1000, messages);
+        return messages;
+    }
+
+    private static Set<Long> ids(List<ChatMessage> messages) {
+        Set<Long> ids = new HashSet<>();
+        for (ChatMessage message : messages) {
+            ids.add(message.getId());
+        }
+        return ids;
+    }
+
+    // The repository's queries, run against the test table.
+    private ChatMessageRepository repository() {
+        String columns = "SELECT id, channel, sender, content, timestamp FROM chat_messages ";
+        String newestFirst = " ORDER BY timestamp DESC, id DESC LIMIT ?";
+        return (ChatMessageRepository) Proxy.newProxyInstance(ChatMessageRepository.class.getClassLoader(),
+                new Class<?>[] {ChatMessageRepository.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findLatest":
+                            return jdbcTemplate.query(columns + "WHERE channel = ?" + newestFirst, ROW,
+                                    args[0], ((Pageable) args[1]).getPageSize());
+                        case "findBefore":
+                            return jdbcTemplate.query(columns + "WHERE channel = ? AND (timestamp < ? "
+                                    + "OR (timestamp = ? AND id < ?))" + newestFirst, ROW,
+                                    args[0], args[1], args[1], args[2], ((Pageable) args[3]).getPageSize());
+                        case "findBeforeId":
+                            return jdbcTemplate.query(columns + "WHERE channel = ? AND id < ?" + newestFirst, ROW,
+                                    args[0], args[1], ((Pageable) args[2]).getPageSize());
+                        case "findTimestampById":
+                            return jdbcTemplate.query("SELECT timestamp FROM chat_messages WHERE id = ?",
+                                    (rs, rowNum) -> rs.getTimestamp(1).toLocalDateTime(), args[0])
+                                    .stream().findFirst();
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
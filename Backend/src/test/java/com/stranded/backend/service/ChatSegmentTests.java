@@ -0,0 +1,105 @@
+package com.stranded.backend.service;
+
+import com.stranded.backend.entity.ChatMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatSegmentTests {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 12, 0, 0, 123_456_000);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void messagesRoundTripAcrossBlocks() throws IOException {
+        List<ChatMessage> messages = messages(1000);
+        ChatSegment segment = ChatSegment.write(directory.resolve("chat-1.seg"), messages, 64);
+
+        List<ChatMessage> read = ChatSegment.open(segment.getPath()).readAll();
+
+        assertEquals(messages.size(), read.size());
+        for (int i = 0; i < messages.size(); i++) {
+            assertEquals(messages.get(i).getId(), read.get(i).getId());
+            assertEquals(messages.get(i).getChannel(), read.get(i).getChannel());
+            assertEquals(messages.get(i).getSender(), read.get(i).getSender());
+            assertEquals(messages.get(i).getContent(), read.get(i).getContent());
+            assertEquals(messages.get(i).getTimestamp(), read.get(i).getTimestamp());
+        }
+        assertEquals(1000, segment.maxId());
+        assertTrue(segment.size() < 1000 * 40, "repetitive chat should compress well");
+    }
+
+    @Test
+    void readBeforeWalksBackwardsInOneChannel() throws IOException {
+        ChatSegment segment = ChatSegment.write(directory.resolve("chat-1.seg"), messages(1000), 64);
+        ChatMessage cursor = messages(1000).get(499);
+
+        List<ChatMessage> page = new ArrayList<>();
+        segment.readBefore("room:a", cursor.getTimestamp(), cursor.getId(), 10, page);
+
+        assertEquals(10, page.size());
+        long previous = cursor.getId();
+        for (ChatMessage message : page) {
+            assertEquals("room:a", message.getChannel());
+            assertTrue(message.getId() < previous);
+            previous = message.getId();
+        }
+        assertEquals(498L, page.get(0).getId());
+    }
+
+    @Test
+    void readBeforeWithoutTimestampComparesIds() throws IOException {
+        ChatSegment segment = ChatSegment.write(directory.resolve("chat-1.seg"), messages(300), 64);
+
+        List<ChatMessage> page = new ArrayList<>();
+        segment.readBefore("global", null, Long.MAX_VALUE, 5, page);
+
+        assertEquals(5, page.size());
+        assertEquals(299L, page.get(0).getId());
+    }
+
+    @Test
+    void findsTimestampById() throws IOException {
+        List<ChatMessage> messages = messages(300);
+        ChatSegment segment = ChatSegment.write(directory.resolve("chat-1.seg"), messages, 64);
+
+        assertEquals(messages.get(199).getTimestamp(), segment.timestampOf(200));
+        assertNull(segment.timestampOf(301));
+    }
+
+    @Test
+    void truncatedSegmentIsRejected() throws IOException {
+        Path path = ChatSegment.write(directory.resolve("chat-1.seg"), messages(300), 64).getPath();
+        byte[] bytes = Files.readAllBytes(path);
+        Path truncated = directory.resolve("chat-2.seg");
+        Files.write(truncated, java.util.Arrays.copyOf(bytes, bytes.length - 10));
+
+        assertThrows(IOException.class, () -> ChatSegment.open(truncated));
+    }
+
+    // Ids 1..count, a millisecond apart; odd ids in global, even ids in room:a.
+    private static List<ChatMessage> messages(int count) {
+        List<ChatMessage> messages = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            ChatMessage message = new ChatMessage(i % 2 == 0 ? "room:a" : "global", "player" + (i % 7),
+                    "message number " + i);
+            message.setId((long) i);
+            message.setTimestamp(START.plusNanos(i * 1_000_000L));
+            messages.add(message);
+        }
+        return messages;
+    }
+}
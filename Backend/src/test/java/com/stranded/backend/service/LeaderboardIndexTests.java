@@ -0,0 +1,102 @@
+package com.stranded.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LeaderboardIndexTests {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @Test
+    void ranksByScoreThenByWhoGotThereFirst() {
+        LeaderboardIndex index = new LeaderboardIndex("Normal", 100);
+        index.offer(1, "late", 500, START.plusMinutes(5));
+        index.offer(2, "early", 500, START);
+        index.offer(3, "best", 900, START.plusMinutes(9));
+
+        assertEquals(List.of("best", "early", "late"), names(index.top(10)));
+        assertEquals(2, index.rankOf("early").getRank());
+        assertNull(index.rankOf("nobody"));
+
+        // A lower score is not a new best and changes nothing.
+        assertFalse(index.offer(3, "best", 100, START.plusMinutes(10)));
+        assertEquals(900, index.rankOf("best").getScore());
+    }
+
+    @Test
+    void aroundIsClampedAtBothEnds() {
+        LeaderboardIndex index = board(20);
+
+        List<LeaderboardIndex.RankedScore> middle = index.around("player10", 2);
+        assertEquals(List.of("player8", "player9", "player10", "player11", "player12"), names(middle));
+        assertEquals(8, middle.get(0).getRank());
+
+        assertEquals(List.of("player1", "player2", "player3"), names(index.around("player1", 2)));
+        assertEquals(List.of("player18", "player19", "player20"), names(index.around("player20", 2)));
+        assertTrue(index.around("nobody", 2).isEmpty());
+    }
+
+    @Test
+    void renameKeepsRankAndScore() {
+        LeaderboardIndex index = board(5);
+
+        index.offer(3, "renamed", 0, START);
+
+        assertNull(index.rankOf("player3"));
+        assertEquals(3, index.rankOf("renamed").getRank());
+        assertEquals(index.rankOf("player2").getScore() - 10, index.rankOf("renamed").getScore());
+    }
+
+    @Test
+    void versionMovesOnlyWhenTheTrackedTopChanges() {
+        // player1..player150, player1 highest.
+        LeaderboardIndex index = board(150);
+        long version = index.getVersion();
+
+        // New entries and improvements that stay below 100th place.
+        assertFalse(index.offer(1000, "newcomer", 1, START));
+        assertFalse(index.offer(140, "player140", scoreOf(130) + 5, START));
+        assertFalse(index.remove(150));
+        assertFalse(index.offer(120, "renamed120", 0, START));
+        assertEquals(version, index.getVersion());
+
+        // Climbing into the top 100, a rename inside it, and leaving it all move the version.
+        assertTrue(index.offer(130, "player130", scoreOf(50) + 5, START));
+        assertEquals(version + 1, index.getVersion());
+        assertTrue(index.offer(10, "renamed10", 0, START));
+        assertEquals(version + 2, index.getVersion());
+        assertTrue(index.remove(1));
+        assertEquals(version + 3, index.getVersion());
+        assertFalse(index.remove(1));
+        assertEquals(version + 3, index.getVersion());
+    }
+
+    // Players 1..count scored count*10 down to 10, so player N is ranked N; with 150 players that is scoreOf(N).
+    private static LeaderboardIndex board(int count) {
+        LeaderboardIndex index = new LeaderboardIndex("Normal", 100);
+        for (int i = 1; i <= count; i++) {
+            index.offer(i, "player" + i, scoreOf(i) + (count - 150) * 10, START.plusSeconds(i));
+        }
+        return index;
+    }
+
+    private static int scoreOf(int rank) {
+        return (151 - rank) * 10;
+    }
+
+    private static List<String> names(List<LeaderboardIndex.RankedScore> scores) {
+        List<String> names = new ArrayList<>(scores.size());
+        for (LeaderboardIndex.RankedScore score : scores) {
+            names.add(score.getUsername());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,38 @@
+package com.stranded.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LeaderboardResponseCacheTests {
+
+    @Test
+    void sameVersionReusesTheResponse() {
+        LeaderboardResponseCache cache = new LeaderboardResponseCache();
+        LeaderboardResponseCache.CachedResponse first = cache.get("all", 1, () -> List.of("a"));
+
+        assertTrue(first == cache.get("all", 1, () -> List.of("b")));
+        assertTrue(first != cache.get("all", 2, () -> List.of("b")));
+        assertTrue(first.matches(first.getEtag()));
+    }
+
+    @Test
+    void rolloverDropsTheOldBucket() {
+        LeaderboardResponseCache cache = new LeaderboardResponseCache();
+        cache.get(LeaderboardWindow.DAILY, "DAILY@2026-01-01T00:00", "mode:10:classic", 1, () -> List.of());
+        cache.get(LeaderboardWindow.DAILY, "DAILY@2026-01-01T00:00", "mode:20:classic", 1, () -> List.of());
+        cache.get(LeaderboardWindow.WEEKLY, "WEEKLY@2025-12-29T00:00", "mode:10:classic", 1, () -> List.of());
+        assertEquals(3, cache.size());
+
+        cache.get(LeaderboardWindow.DAILY, "DAILY@2026-01-02T00:00", "mode:10:classic", 1, () -> List.of());
+        assertEquals(2, cache.size());
+
+        // A request that read the old bucket just before the rollover is cleared on the next one.
+        cache.get(LeaderboardWindow.DAILY, "DAILY@2026-01-01T00:00", "mode:10:classic", 1, () -> List.of());
+        cache.get(LeaderboardWindow.DAILY, "DAILY@2026-01-02T00:00", "mode:10:classic", 1, () -> List.of());
+        assertEquals(2, cache.size());
+    }
+}
@@ -0,0 +1,234 @@
+package com.stranded.backend.service;
+
+import com.stranded.backend.entity.User;
+import com.stranded.backend.repository.UserRef;
+import com.stranded.backend.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageBusTests {
+
+    @Test
+    void localBusDeliversOnThePublishingThread() {
+        LocalMessageBus bus = new LocalMessageBus("a");
+        List<String> received = new CopyOnWriteArrayList<>();
+        MessageBus.Subscription subscription = bus.subscribe("t", (topic, origin, payload) ->
+                received.add(origin + ":" + new String(payload, StandardCharsets.UTF_8)));
+
+        bus.publish("t", bytes("hello"));
+        subscription.cancel();
+        bus.publish("t", bytes("ignored"));
+
+        assertEquals(List.of("a:hello"), received);
+    }
+
+    @Test
+    void redisBusCarriesMessagesBetweenNodes() throws Exception {
+        try (RedisStandIn redis = new RedisStandIn()) {
+            RedisMessageBus a = bus("a", redis);
+            RedisMessageBus b = bus("b", redis);
+            List<String> onA = new CopyOnWriteArrayList<>();
+            List<String> onB = new CopyOnWriteArrayList<>();
+            a.subscribe("room", (topic, origin, payload) -> onA.add(origin + ":" + text(payload)));
+            b.subscribe("room", (topic, origin, payload) -> onB.add(origin + ":" + text(payload)));
+            awaitDelivery(a, "room", onB);
+            onA.clear();
+            onB.clear();
+
+            a.publish("room", bytes("move"));
+            await(() -> onB.contains("a:move"));
+            Thread.sleep(100);
+
+            // Delivered locally at once, and not a second time when Redis echoes it back.
+            assertEquals(List.of("a:move"), onA);
+            assertEquals(1, onB.stream().filter("a:move"::equals).count());
+            a.shutdown();
+            b.shutdown();
+        }
+    }
+
+    @Test
+    void redisBusResubscribesAfterReconnecting() throws Exception {
+        try (RedisStandIn redis = new RedisStandIn()) {
+            RedisMessageBus a = bus("a", redis);
+            RedisMessageBus b = bus("b", redis);
+            List<String> onB = new CopyOnWriteArrayList<>();
+            b.subscribe("chat", (topic, origin, payload) -> onB.add(text(payload)));
+            awaitDelivery(a, "chat", onB);
+
+            redis.dropConnections();
+            onB.clear();
+            awaitDelivery(a, "chat", onB);
+
+            assertTrue(onB.contains("probe"));
+            a.shutdown();
+            b.shutdown();
+        }
+    }
+
+    @Test
+    void directoryReplicatesEntriesAndForgetsNodesThatLeave() throws Exception {
+        try (RedisStandIn redis = new RedisStandIn()) {
+            RedisMessageBus busA = bus("a", redis);
+            RedisMessageBus busB = bus("b", redis);
+            SessionDirectory a = new SessionDirectory(busA, 50, 1000);
+            SessionDirectory b = new SessionDirectory(busB, 50, 1000);
+            a.start();
+            b.start();
+            List<String> removedOnB = new CopyOnWriteArrayList<>();
+            b.addListener("game", new SessionDirectory.Listener() {
+                @Override
+                public void onPut(SessionDirectory.Entry entry) {
+                }
+
+                @Override
+                public void onRemove(SessionDirectory.Entry entry) {
+                    removedOnB.add(entry.getKey());
+                }
+            });
+            await(() -> a.getRemoteNodes().contains("b") && b.getRemoteNodes().contains("a"));
+
+            a.put("game", "p1", "lobby");
+            await(() -> b.get("game", "p1") != null);
+            assertEquals("a", b.get("game", "p1").getNode());
+            assertEquals("lobby", b.get("game", "p1").getValue());
+
+            // A node that starts later is sent the entries that already exist.
+            RedisMessageBus busC = bus("c", redis);
+            SessionDirectory c = new SessionDirectory(busC, 50, 1000);
+            c.start();
+            await(() -> c.get("game", "p1") != null);
+
+            a.shutdown();
+            busA.shutdown();
+            await(() -> b.get("game", "p1") == null && c.get("game", "p1") == null);
+            assertEquals(List.of("p1"), removedOnB);
+            assertFalse(b.getRemoteNodes().contains("a"));
+
+            b.shutdown();
+            c.shutdown();
+            busB.shutdown();
+            busC.shutdown();
+        }
+    }
+
+    @Test
+    void usersAndScoresSavedOnOneNodeReachTheOthers() throws Exception {
+        try (RedisStandIn redis = new RedisStandIn()) {
+            RedisMessageBus busA = bus("a", redis);
+            RedisMessageBus busB = bus("b", redis);
+            // The shared database, seen by both nodes.
+            Map<String, UserRef> users = new ConcurrentHashMap<>();
+            UserDirectory directoryA = directory(busA, users);
+            UserDirectory directoryB = directory(busB, users);
+            LeaderboardService leaderboardA = new LeaderboardService(null, null, busA);
+            LeaderboardService leaderboardB = new LeaderboardService(null, null, busB);
+            awaitSubscribed(busA, busB, UserDirectory.TOPIC);
+            awaitSubscribed(busA, busB, LeaderboardService.TOPIC);
+
+            User alice = new User();
+            alice.setId(7L);
+            alice.setUsername("alice");
+            users.put("alice", new UserRef(7L, "alice", false));
+            // Not yet announced: node B's Bloom filter still turns the name away.
+            assertNull(directoryB.find("alice"));
+            directoryA.saved(alice);
+            await(() -> directoryB.mightExist("alice"));
+            assertEquals(7L, directoryB.find("alice").getId());
+            assertEquals(1, directoryB.findAll(List.of("alice", "bob")).size());
+
+            leaderboardA.recordScore(7L, "alice", false, 500, "Normal", LocalDateTime.now());
+            await(() -> leaderboardB.getRank("Normal", "alice") != null);
+            assertEquals(500, leaderboardB.getRank("Normal", "alice").getScore());
+            assertEquals(500, leaderboardB.getTop(LeaderboardWindow.DAILY, "Normal", 10).get(0).getScore());
+
+            leaderboardA.shutdown();
+            leaderboardB.shutdown();
+            directoryA.shutdown();
+            directoryB.shutdown();
+            busA.shutdown();
+            busB.shutdown();
+        }
+    }
+
+    private static UserDirectory directory(MessageBus bus, Map<String, UserRef> users) {
+        UserRepository repository = (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+                new Class<?>[] {UserRepository.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findRefsAfter":
+                        case "findGuestsUpgradedSince":
+                            return List.of();
+                        case "findRefByUsername":
+                            return Optional.ofNullable(users.get((String) args[0]));
+                        case "findRefsByUsernameIn":
+                            return users.values().stream()
+                                    .filter(ref -> ((Collection<?>) args[0]).contains(ref.getUsername()))
+                                    .toList();
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        UserDirectory directory = new UserDirectory(repository, bus, 100, 1000, 0.01, 86400000);
+        directory.loadNames();
+        return directory;
+    }
+
+    // Publishes probes from one node until the other node's subscription to the topic is live.
+    private static void awaitSubscribed(MessageBus from, MessageBus to, String topic) throws InterruptedException {
+        List<String> received = new CopyOnWriteArrayList<>();
+        MessageBus.Subscription probe = to.subscribe(topic, (t, origin, payload) -> received.add(origin));
+        await(() -> {
+            from.publish(topic, new byte[0]);
+            return !received.isEmpty();
+        });
+        probe.cancel();
+    }
+
+    private static RedisMessageBus bus(String nodeId, RedisStandIn redis) {
+        RedisMessageBus bus = new RedisMessageBus(nodeId, "127.0.0.1", redis.getPort(), 1000);
+        bus.start();
+        return bus;
+    }
+
+    // Subscriptions are asynchronous; publish until the other node has one.
+    private static void awaitDelivery(MessageBus from, String topic, List<String> received)
+            throws InterruptedException {
+        await(() -> {
+            from.publish(topic, bytes("probe"));
+            return !received.isEmpty();
+        });
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Timed out waiting for the cluster");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(byte[] payload) {
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+}
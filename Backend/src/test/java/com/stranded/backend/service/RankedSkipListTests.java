@@ -0,0 +1,135 @@
+package com.stranded.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RankedSkipListTests {
+
+    // {score, id}: higher scores first, equal scores by id.
+    private static final Comparator<int[]> ORDER = Comparator.<int[]>comparingInt(entry -> -entry[0])
+            .thenComparingInt(entry -> entry[1]);
+
+    @Test
+    void insertRemoveAndUpdateKeepRanks() {
+        RankedSkipList<int[]> list = new RankedSkipList<>(ORDER);
+        list.insert(entry(50, 1));
+        list.insert(entry(80, 2));
+        list.insert(entry(20, 3));
+
+        assertEquals(3, list.size());
+        assertEquals(1, list.rankOf(entry(80, 2)));
+        assertEquals(2, list.rankOf(entry(50, 1)));
+        assertEquals(3, list.rankOf(entry(20, 3)));
+        assertEquals(0, list.rankOf(entry(20, 9)));
+
+        // An update is a remove of the old entry and an insert of the new one.
+        assertTrue(list.remove(entry(20, 3)));
+        list.insert(entry(90, 3));
+        assertEquals(1, list.rankOf(entry(90, 3)));
+        assertEquals(2, list.rankOf(entry(80, 2)));
+        assertEquals(3, list.rankOf(entry(50, 1)));
+
+        assertFalse(list.remove(entry(20, 3)));
+        assertEquals(3, list.size());
+    }
+
+    @Test
+    void equalScoresRankByTiebreak() {
+        RankedSkipList<int[]> list = new RankedSkipList<>(ORDER);
+        list.insert(entry(100, 7));
+        list.insert(entry(100, 3));
+        list.insert(entry(100, 5));
+
+        assertEquals(1, list.rankOf(entry(100, 3)));
+        assertEquals(2, list.rankOf(entry(100, 5)));
+        assertEquals(3, list.rankOf(entry(100, 7)));
+        assertEquals(List.of(3, 5, 7), ids(list.range(1, 3)));
+    }
+
+    @Test
+    void rangeClampsToTheList() {
+        RankedSkipList<int[]> list = new RankedSkipList<>(ORDER);
+        for (int i = 1; i <= 10; i++) {
+            list.insert(entry(i * 10, i));
+        }
+
+        assertEquals(List.of(10, 9, 8), ids(list.range(1, 3)));
+        assertEquals(List.of(3, 2, 1), ids(list.range(8, 5)));
+        assertEquals(List.of(1), ids(list.range(10, 1)));
+        assertTrue(list.range(11, 5).isEmpty());
+        assertTrue(list.range(0, 5).isEmpty());
+        assertTrue(list.range(1, 0).isEmpty());
+    }
+
+    @Test
+    void removingHeadAndTailShiftsRanks() {
+        RankedSkipList<int[]> list = new RankedSkipList<>(ORDER);
+        for (int i = 1; i <= 100; i++) {
+            list.insert(entry(i, i));
+        }
+
+        assertTrue(list.remove(entry(100, 100)));
+        assertEquals(1, list.rankOf(entry(99, 99)));
+        assertTrue(list.remove(entry(1, 1)));
+        assertEquals(98, list.rankOf(entry(2, 2)));
+        assertEquals(98, list.size());
+        assertEquals(List.of(2), ids(list.range(98, 5)));
+
+        list.clear();
+        assertEquals(0, list.size());
+        assertTrue(list.range(1, 1).isEmpty());
+        list.insert(entry(5, 5));
+        assertEquals(1, list.rankOf(entry(5, 5)));
+    }
+
+    @Test
+    void matchesASortedListUnderRandomChanges() {
+        Random random = new Random(42);
+        RankedSkipList<int[]> list = new RankedSkipList<>(ORDER);
+        List<int[]> expected = new ArrayList<>();
+        int nextId = 1;
+        for (int step = 0; step < 5000; step++) {
+            if (expected.isEmpty() || random.nextInt(3) > 0) {
+                int[] entry = entry(random.nextInt(200), nextId++);
+                list.insert(entry);
+                int at = Collections.binarySearch(expected, entry, ORDER);
+                expected.add(-at - 1, entry);
+            } else {
+                int[] entry = expected.remove(random.nextInt(expected.size()));
+                assertTrue(list.remove(entry));
+            }
+            assertEquals(expected.size(), list.size());
+
+            if (step % 50 == 0) {
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(i + 1, list.rankOf(expected.get(i)));
+                }
+                int from = 1 + random.nextInt(expected.size());
+                int count = 1 + random.nextInt(20);
+                assertEquals(ids(expected.subList(from - 1, Math.min(expected.size(), from - 1 + count))),
+                        ids(list.range(from, count)));
+            }
+        }
+    }
+
+    private static int[] entry(int score, int id) {
+        return new int[] { score, id };
+    }
+
+    private static List<Integer> ids(List<int[]> entries) {
+        List<Integer> ids = new ArrayList<>(entries.size());
+        for (int[] entry : entries) {
+            ids.add(entry[1]);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,164 @@
+package com.stranded.backend.service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Just enough of a Redis server for {@link RedisMessageBus}: PUBLISH, SUBSCRIBE,
+ * UNSUBSCRIBE and CLIENT REPLY OFF over RESP, on a random local port.
+ */
+class RedisStandIn implements AutoCloseable {
+
+    private final ServerSocket server;
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+
+    RedisStandIn() throws IOException {
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "redis-stand-in");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    int getPort() {
+        return server.getLocalPort();
+    }
+
+    /** Closes every client connection, as a Redis restart would. */
+    void dropConnections() {
+        for (Connection connection : connections) {
+            connection.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        dropConnections();
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Connection connection = new Connection(server.accept());
+                connections.add(connection);
+                Thread reader = new Thread(connection::serve, "redis-stand-in-client");
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void publish(byte[] channel, byte[] message) {
+        String name = new String(channel, StandardCharsets.UTF_8);
+        for (Connection connection : connections) {
+            if (connection.channels.contains(name)) {
+                connection.write(array(bulk("message"), bulk(channel), bulk(message)));
+            }
+        }
+    }
+
+    private class Connection {
+        private final Socket socket;
+        private final Set<String> channels = ConcurrentHashMap.newKeySet();
+        private boolean replyOff;
+
+        Connection(Socket socket) {
+            this.socket = socket;
+        }
+
+        void serve() {
+            try {
+                InputStream in = new BufferedInputStream(socket.getInputStream());
+                while (true) {
+                    List<?> command = (List<?>) RedisMessageBus.readReply(in);
+                    String name = new String((byte[]) command.get(0), StandardCharsets.UTF_8).toUpperCase();
+                    switch (name) {
+                        case "CLIENT":
+                            replyOff = true;
+                            break;
+                        case "PUBLISH":
+                            publish((byte[]) command.get(1), (byte[]) command.get(2));
+                            reply(":1\r\n".getBytes(StandardCharsets.US_ASCII));
+                            break;
+                        case "SUBSCRIBE":
+                        case "UNSUBSCRIBE":
+                            for (Object channel : command.subList(1, command.size())) {
+                                String topic = new String((byte[]) channel, StandardCharsets.UTF_8);
+                                if (name.equals("SUBSCRIBE")) {
+                                    channels.add(topic);
+                                } else {
+                                    channels.remove(topic);
+                                }
+                                reply(array(bulk(name.toLowerCase()), bulk(topic),
+                                        (":" + channels.size() + "\r\n").getBytes(StandardCharsets.US_ASCII)));
+                            }
+                            break;
+                        default:
+                            reply("-ERR unknown command\r\n".getBytes(StandardCharsets.US_ASCII));
+                            break;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                close();
+            }
+        }
+
+        void reply(byte[] data) {
+            if (!replyOff) {
+                write(data);
+            }
+        }
+
+        synchronized void write(byte[] data) {
+            try {
+                OutputStream out = socket.getOutputStream();
+                out.write(data);
+                out.flush();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        void close() {
+            connections.remove(this);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already closed.
+            }
+        }
+    }
+
+    private static byte[] bulk(String text) {
+        return bulk(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] bulk(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(("$" + data.length + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.writeBytes(data);
+        out.writeBytes("\r\n".getBytes(StandardCharsets.US_ASCII));
+        return out.toByteArray();
+    }
+
+    private static byte[] array(byte[]... items) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(("*" + items.length + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        for (byte[] item : items) {
+            out.writeBytes(item);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,97 @@
+package com.stranded.backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScoreJournalTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoversRecordsPastTheCheckpoint() throws IOException {
+        ScoreJournal journal = ScoreJournal.open(directory, 1 << 20);
+        journal.recover(0);
+        for (int i = 1; i <= 5; i++) {
+            ScoreJournal.Appended appended = journal.append(bytes("score-" + i));
+            journal.sync(appended.getPosition());
+            assertEquals(i, appended.getSeq());
+        }
+        journal.close();
+
+        ScoreJournal reopened = ScoreJournal.open(directory, 1 << 20);
+        List<ScoreJournal.Record> records = reopened.recover(3);
+
+        assertEquals(journal.getId(), reopened.getId());
+        assertEquals(2, records.size());
+        assertEquals(4L, records.get(0).getSeq());
+        assertEquals("score-5", new String(records.get(1).getPayload(), StandardCharsets.UTF_8));
+        assertEquals(6L, reopened.append(bytes("score-6")).getSeq());
+    }
+
+    @Test
+    void tornTailIsIgnored() throws IOException {
+        ScoreJournal journal = ScoreJournal.open(directory, 1 << 20);
+        journal.recover(0);
+        journal.append(bytes("kept"));
+        journal.append(bytes("torn"));
+        journal.close();
+        Path segment = segments().get(0);
+        byte[] content = Files.readAllBytes(segment);
+        Files.write(segment, Arrays.copyOf(content, content.length - 2), StandardOpenOption.TRUNCATE_EXISTING);
+
+        List<ScoreJournal.Record> records = ScoreJournal.open(directory, 1 << 20).recover(0);
+
+        assertEquals(1, records.size());
+        assertEquals("kept", new String(records.get(0).getPayload(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void appliedSegmentsAreDeletedAndNumberingContinues() throws IOException {
+        // Small segments: every append after the first starts a new one.
+        ScoreJournal journal = ScoreJournal.open(directory, 16);
+        journal.recover(0);
+        for (int i = 1; i <= 4; i++) {
+            journal.append(bytes("score-" + i));
+        }
+        assertEquals(4, segments().size());
+
+        journal.applied(3);
+        journal.close();
+
+        assertEquals(1, segments().size());
+        ScoreJournal reopened = ScoreJournal.open(directory, 16);
+        List<ScoreJournal.Record> records = reopened.recover(3);
+        assertEquals(1, records.size());
+        assertEquals(4L, records.get(0).getSeq());
+
+        // With every record applied and the files gone, numbering still starts past the checkpoint.
+        reopened.applied(4);
+        reopened.close();
+        ScoreJournal restarted = ScoreJournal.open(directory, 16);
+        assertTrue(restarted.recover(10).isEmpty());
+        assertEquals(11L, restarted.append(bytes("score-11")).getSeq());
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
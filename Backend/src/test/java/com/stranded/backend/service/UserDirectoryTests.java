@@ -0,0 +1,85 @@
+package com.stranded.backend.service;
+
+import com.stranded.backend.entity.User;
+import com.stranded.backend.repository.UserRef;
+import com.stranded.backend.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserDirectoryTests {
+
+    private static final long TOKEN_LIFETIME_MILLIS = 86400000;
+
+    @Test
+    void userDeletedDuringLoadDoesNotHideOtherNames() {
+        TreeMap<Long, UserRef> users = new TreeMap<>();
+        for (long id = 1; id <= 12000; id++) {
+            users.put(id, new UserRef(id, "player" + id, false));
+        }
+
+        UserDirectory directory = directory(repository(users, List.of(), true), TOKEN_LIFETIME_MILLIS);
+
+        for (long id = 11; id <= 12000; id++) {
+            assertTrue(directory.mightExist("player" + id), "player" + id);
+        }
+        directory.shutdown();
+    }
+
+    @Test
+    void upgradedGuestsAreRememberedUntilTheirTokensExpire() throws InterruptedException {
+        UserDirectory directory = directory(repository(new TreeMap<>(), List.of("Guest_before"), false),
+                TOKEN_LIFETIME_MILLIS);
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("alice");
+
+        directory.upgraded("Guest_abc", user);
+
+        assertTrue(directory.isUpgradedGuest("Guest_abc"));
+        assertTrue(directory.isUpgradedGuest("Guest_before"));
+        assertFalse(directory.isUpgradedGuest("Guest_other"));
+        assertTrue(directory.mightExist("alice"));
+
+        UserDirectory shortLived = directory(repository(new TreeMap<>(), List.of(), false), 1);
+        shortLived.upgraded("Guest_abc", user);
+        Thread.sleep(5);
+        assertFalse(shortLived.isUpgradedGuest("Guest_abc"));
+    }
+
+    private static UserDirectory directory(UserRepository repository, long tokenLifetimeMillis) {
+        UserDirectory directory = new UserDirectory(repository, new LocalMessageBus("a"), 100, 1000, 0.01,
+                tokenLifetimeMillis);
+        directory.loadNames();
+        return directory;
+    }
+
+    // Pages users by id; with deleteMidLoad, user 10 is deleted between two page reads.
+    private static UserRepository repository(TreeMap<Long, UserRef> users, List<String> upgradedGuests,
+            boolean deleteMidLoad) {
+        return (UserRepository) Proxy.newProxyInstance(UserRepository.class.getClassLoader(),
+                new Class<?>[] {UserRepository.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findRefsAfter":
+                            long after = (Long) args[0];
+                            List<UserRef> page = new ArrayList<>(users.tailMap(after, false).values());
+                            page = page.subList(0, Math.min(page.size(), ((Pageable) args[1]).getPageSize()));
+                            if (deleteMidLoad && after > 0) {
+                                users.remove(10L);
+                            }
+                            return new ArrayList<>(page);
+                        case "findGuestsUpgradedSince":
+                            return upgradedGuests;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
@@ -5,13 +5,17 @@ const peerConfig = {
     ]
 };
 
-const myPeerId = "peer_" + Math.random().toString(36).substr(2, 9);
-console.log("[Voice] My Peer ID:", myPeerId);
+// Filled in by the server's PEERS frame; peer ids are the server's session ids.
+let myPeerId = null;
+let voiceChannel = "global";
+let voiceSocket = null;
 
 let localStream = null;
-let peerConnections = {}; 
+let peers = new Set();
+let outgoing = {};  // listener peer id -> connection carrying our microphone
+let incoming = {};  // talker peer id -> connection playing their audio
 let isVoiceActive = false;
-let pendingCandidates = {}; 
+let pendingCandidates = {};  // "talker:sender" -> candidates that arrived before the description
 
 let voiceIndicator = null;
 
@@ -42,36 +46,42 @@ function createVoiceIndicator() {
 }
 
 function initVoice() {
-    if (typeof stomp === 'undefined' || !isChatConnected) {
-        console.log("[Voice] Waiting for STOMP connection...");
-        setTimeout(initVoice, 500);
-        return;
-    }
-    
-    console.log("[Voice] System initialized!");
     createVoiceIndicator();
-    
-    stomp.subscribe("/topic/voice", function(response) {
-        const data = JSON.parse(response.body);
-        
-        if (data.senderId === myPeerId) {
-            return;
-        }
-        
-        console.log("[Voice] Signal received:", data.type, "from:", data.senderId);
-        
-        if (data.targetId && data.targetId !== myPeerId) {
-            console.log("[Voice] Message not for us, ignoring");
-            return;
-        }
-        
-        switch(data.type) {
+    connectVoice();
+}
+
+function connectVoice() {
+    voiceSocket = new WebSocket(CONFIG.API_URL.replace(/^http/, "ws") + "/voice");
+
+    voiceSocket.onopen = () => {
+        console.log("[Voice] Connected, joining", voiceChannel);
+        voiceSocket.send(JSON.stringify({ type: "JOIN", channel: voiceChannel }));
+    };
+
+    voiceSocket.onmessage = (event) => {
+        const data = JSON.parse(event.data);
+
+        switch (data.type) {
+            case "PEERS":
+                myPeerId = data.self;
+                peers = new Set(data.peers);
+                console.log("[Voice] My Peer ID:", myPeerId, "peers:", data.peers.length);
+                break;
+            case "PRESENCE":
+                handlePresence(data);
+                break;
+            case "ERROR":
+                console.warn("[Voice] Server error:", data.reason);
+                break;
             case "offer":
                 handleOffer(data);
                 break;
             case "answer":
                 handleAnswer(data);
                 break;
+            case "candidates":
+                data.candidates.forEach(c => handleCandidate(c));
+                break;
             case "candidate":
                 handleCandidate(data);
                 break;
@@ -79,20 +89,42 @@ function initVoice() {
                 handleHangup(data);
                 break;
         }
-    });
+    };
+
+    voiceSocket.onclose = () => {
+        console.log("[Voice] Disconnected, retrying...");
+        closeAll();
+        myPeerId = null;
+        peers = new Set();
+        setTimeout(connectVoice, 2000);
+    };
 }
 
 function sendSignal(data) {
-    data.senderId = myPeerId;
-    console.log("[Voice] Sending signal:", data.type, data.targetId ? "to:" + data.targetId : "(broadcast)");
-    stomp.send("/app/voice", {}, JSON.stringify(data));
+    if (!voiceSocket || voiceSocket.readyState !== WebSocket.OPEN) return;
+    console.log("[Voice] Sending signal:", data.type, data.targetId ? "to:" + data.targetId : "(channel)");
+    voiceSocket.send(JSON.stringify(data));
+}
+
+function handlePresence(data) {
+    if (data.event === "join") {
+        peers.add(data.peerId);
+        // Someone joined while we are talking: bring them in too.
+        if (isVoiceActive && localStream) {
+            offerTo(data.peerId);
+        }
+    } else if (data.event === "leave") {
+        peers.delete(data.peerId);
+        closePeer(outgoing, data.peerId);
+        handleHangup({ senderId: data.peerId });
+    }
 }
 
 async function startVoice() {
-    if (isVoiceActive) return;
+    if (isVoiceActive || !myPeerId) return;
     isVoiceActive = true;
     
-    console.log("[Voice] Starting broadcast...");
+    console.log("[Voice] Starting to talk to", peers.size, "peers...");
     
     try {
         localStream = await navigator.mediaDevices.getUserMedia({ 
@@ -107,27 +139,9 @@ async function startVoice() {
         
         if (voiceIndicator) voiceIndicator.style.display = 'block';
         
-        const broadcastPc = createPeerConnection("broadcast");
-        peerConnections["broadcast"] = broadcastPc;
-        
-        localStream.getTracks().forEach(track => {
-            console.log("[Voice] Adding track:", track.kind);
-            broadcastPc.addTrack(track, localStream);
-        });
-        
-        const offer = await broadcastPc.createOffer();
-        await broadcastPc.setLocalDescription(offer);
-        
-        sendSignal({
-            type: "offer",
-            offer: {
-                type: offer.type,
-                sdp: offer.sdp
-            }
-        });
-        
-        console.log("[Voice] Offer sent!");
-        
+        for (const peerId of peers) {
+            await offerTo(peerId);
+        }
     } catch (err) {
         console.error("[Voice] Error:", err);
         isVoiceActive = false;
@@ -135,6 +149,28 @@ async function startVoice() {
     }
 }
 
+async function offerTo(peerId) {
+    const pc = createPeerConnection(peerId, myPeerId);
+    closePeer(outgoing, peerId);
+    outgoing[peerId] = pc;
+
+    localStream.getTracks().forEach(track => pc.addTrack(track, localStream));
+
+    const offer = await pc.createOffer();
+    await pc.setLocalDescription(offer);
+
+    sendSignal({
+        type: "offer",
+        targetId: peerId,
+        talker: myPeerId,
+        offer: {
+            type: offer.type,
+            sdp: offer.sdp
+        }
+    });
+    console.log("[Voice] Offer sent to:", peerId);
+}
+
 function stopVoice() {
     if (!isVoiceActive) return;
     
@@ -145,39 +181,47 @@ function stopVoice() {
         localStream = null;
     }
     
-    Object.keys(peerConnections).forEach(id => {
-        if (peerConnections[id]) {
-            peerConnections[id].close();
-        }
-    });
-    peerConnections = {};
-    pendingCandidates = {};
-    
-    document.querySelectorAll('audio[id^="audio_"]').forEach(el => el.remove());
+    Object.keys(outgoing).forEach(id => closePeer(outgoing, id));
     
     if (voiceIndicator) voiceIndicator.style.display = 'none';
     
+    // No target: the server passes this on to everyone in the channel.
     sendSignal({ type: "hangup" });
     
     isVoiceActive = false;
 }
 
-function createPeerConnection(peerId) {
+function closePeer(connections, peerId) {
+    if (connections[peerId]) {
+        connections[peerId].close();
+        delete connections[peerId];
+    }
+}
+
+function closeAll() {
+    stopVoice();
+    Object.keys(incoming).forEach(id => handleHangup({ senderId: id }));
+    pendingCandidates = {};
+}
+
+// talker is whose microphone this connection carries; candidates name it so the
+// receiver can tell our outgoing connection to a peer from our incoming one.
+function createPeerConnection(peerId, talker) {
     console.log("[Voice] Creating peer connection for:", peerId);
     
     const pc = new RTCPeerConnection(peerConfig);
     
     pc.onicecandidate = (event) => {
         if (event.candidate) {
-            console.log("[Voice] ICE candidate generated for:", peerId);
             sendSignal({
                 type: "candidate",
+                targetId: peerId,
+                talker: talker,
                 candidate: {
                     candidate: event.candidate.candidate,
                     sdpMid: event.candidate.sdpMid,
                     sdpMLineIndex: event.candidate.sdpMLineIndex
-                },
-                targetId: peerId === "broadcast" ? undefined : peerId
+                }
             });
         }
     };
@@ -219,42 +263,38 @@ function createPeerConnection(peerId) {
         console.log("[Voice] Connection state for", peerId + ":", pc.connectionState);
     };
     
-    pc.oniceconnectionstatechange = () => {
-        console.log("[Voice] ICE state for", peerId + ":", pc.iceConnectionState);
-    };
-    
     return pc;
 }
 
+async function applyPending(pc, key) {
+    for (const candidate of pendingCandidates[key] || []) {
+        await pc.addIceCandidate(new RTCIceCandidate(candidate));
+    }
+    delete pendingCandidates[key];
+}
+
 async function handleOffer(data) {
     console.log("[Voice] Handling offer from:", data.senderId);
     
     try {
-        const pc = createPeerConnection(data.senderId);
-        peerConnections[data.senderId] = pc;
+        const pc = createPeerConnection(data.senderId, data.senderId);
+        closePeer(incoming, data.senderId);
+        incoming[data.senderId] = pc;
         
         await pc.setRemoteDescription(new RTCSessionDescription(data.offer));
-        console.log("[Voice] Remote description set for:", data.senderId);
-        
-        if (pendingCandidates[data.senderId]) {
-            for (const candidate of pendingCandidates[data.senderId]) {
-                await pc.addIceCandidate(new RTCIceCandidate(candidate));
-                console.log("[Voice] Applied pending ICE candidate");
-            }
-            delete pendingCandidates[data.senderId];
-        }
+        await applyPending(pc, data.senderId + ":" + data.senderId);
         
         const answer = await pc.createAnswer();
         await pc.setLocalDescription(answer);
-        console.log("[Voice] Local description set for:", data.senderId);
         
         sendSignal({
             type: "answer",
+            targetId: data.senderId,
+            talker: data.senderId,
             answer: {
                 type: answer.type,
                 sdp: answer.sdp
-            },
-            targetId: data.senderId
+            }
         });
         
         console.log("[Voice] Answer sent to:", data.senderId);
@@ -266,56 +306,39 @@ async function handleOffer(data) {
 async function handleAnswer(data) {
     console.log("[Voice] Handling answer from:", data.senderId);
     
-    const pc = peerConnections["broadcast"];
-    if (!pc) {
-        console.warn("[Voice] No broadcast connection found");
+    const pc = outgoing[data.senderId];
+    if (!pc || pc.signalingState !== 'have-local-offer') {
+        console.warn("[Voice] No pending offer to:", data.senderId);
         return;
     }
     
     try {
-        if (pc.signalingState === 'have-local-offer') {
-            await pc.setRemoteDescription(new RTCSessionDescription(data.answer));
-            console.log("[Voice] Remote description set from answer");
-            
-            if (pendingCandidates[data.senderId] || pendingCandidates["broadcast"]) {
-                const candidates = (pendingCandidates[data.senderId] || []).concat(pendingCandidates["broadcast"] || []);
-                for (const candidate of candidates) {
-                    await pc.addIceCandidate(new RTCIceCandidate(candidate));
-                    console.log("[Voice] Applied pending ICE candidate from answer handler");
-                }
-                delete pendingCandidates[data.senderId];
-                delete pendingCandidates["broadcast"];
-            }
-        } else {
-            console.warn("[Voice] Unexpected signaling state:", pc.signalingState);
-        }
+        await pc.setRemoteDescription(new RTCSessionDescription(data.answer));
+        await applyPending(pc, myPeerId + ":" + data.senderId);
     } catch (err) {
         console.error("[Voice] Error handling answer:", err);
     }
 }
 
 async function handleCandidate(data) {
-    console.log("[Voice] Handling ICE candidate from:", data.senderId);
-    
-    let pc = peerConnections[data.senderId] || peerConnections["broadcast"];
-    
     if (!data.candidate) {
         console.warn("[Voice] Empty candidate received");
         return;
     }
     
+    const pc = data.talker === myPeerId ? outgoing[data.senderId] : incoming[data.senderId];
+    
     if (!pc || !pc.remoteDescription) {
-        console.log("[Voice] No ready peer connection, queuing ICE candidate");
-        if (!pendingCandidates[data.senderId]) {
-            pendingCandidates[data.senderId] = [];
+        const key = data.talker + ":" + data.senderId;
+        if (!pendingCandidates[key]) {
+            pendingCandidates[key] = [];
         }
-        pendingCandidates[data.senderId].push(data.candidate);
+        pendingCandidates[key].push(data.candidate);
         return;
     }
     
     try {
         await pc.addIceCandidate(new RTCIceCandidate(data.candidate));
-        console.log("[Voice] ICE candidate added for:", data.senderId);
     } catch (e) {
         console.warn("[Voice] ICE candidate error:", e.message);
     }
@@ -327,12 +350,9 @@ function handleHangup(data) {
     const audio = document.getElementById('audio_' + data.senderId);
     if (audio) audio.remove();
     
-    if (peerConnections[data.senderId]) {
-        peerConnections[data.senderId].close();
-        delete peerConnections[data.senderId];
-    }
+    closePeer(incoming, data.senderId);
     
-    delete pendingCandidates[data.senderId];
+    delete pendingCandidates[data.senderId + ":" + data.senderId];
 }
 
 document.addEventListener("keydown", (e) => {